@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.benchmarks;
+
+import ai.shape.basics.db.id.IdGenerator;
+import ai.shape.basics.db.id.TimeOrderedIdGenerator;
+import ai.shape.basics.db.id.UUIDIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Compares {@link TimeOrderedIdGenerator} with the SecureRandom
+ * based {@link UUIDIdGenerator}, single and multi threaded. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+  IdGenerator timeOrderedIdGenerator = new TimeOrderedIdGenerator("benchmark");
+  IdGenerator uuidIdGenerator = new UUIDIdGenerator();
+
+  @Benchmark
+  public String timeOrdered() {
+    return timeOrderedIdGenerator.generateId("user-");
+  }
+
+  @Benchmark
+  public String uuid() {
+    return uuidIdGenerator.generateId("user-");
+  }
+
+  @Benchmark
+  @Threads(8)
+  public String timeOrderedThreads() {
+    return timeOrderedIdGenerator.generateId("user-");
+  }
+
+  @Benchmark
+  @Threads(8)
+  public String uuidThreads() {
+    return uuidIdGenerator.generateId("user-");
+  }
+}
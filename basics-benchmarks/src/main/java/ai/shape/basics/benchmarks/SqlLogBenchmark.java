@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.benchmarks;
+
+import ai.shape.basics.db.BatchInsert;
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.Tx;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static ai.shape.basics.db.Condition.gte;
+
+/** Select of {@link #ROWS} rows from an in memory H2 database with the
+ * sql log disabled and enabled.  The log text is built but not written
+ * so that only the cost of building it is measured. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlLogBenchmark {
+
+  static final int ROWS = 100;
+
+  static Column ID = new Column()
+    .name("id")
+    .typeInteger()
+    .primaryKey();
+  static Column NAME = new Column()
+    .name("name")
+    .typeVarchar(255);
+  static Table TABLE = new Table()
+    .name("sqlLogBenchmark")
+    .column(ID)
+    .column(NAME);
+
+  @Param({"false", "true"})
+  boolean sqlLog;
+
+  Connection connection;
+  Tx tx;
+  long loggedChars;
+
+  @Setup
+  public void setup() throws SQLException {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:sqlLogBenchmark"+sqlLog)
+      .build();
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+    db.tx(tx->{
+      BatchInsert batchInsert = tx.newBatchInsert(TABLE).columns(ID, NAME);
+      for (int i=0; i<ROWS; i++) {
+        batchInsert.row(i, "name"+i);
+      }
+      batchInsert.execute();
+    });
+    connection = db.getDataSource().getConnection();
+    tx = new Tx(db, connection) {
+      @Override
+      public boolean isSqlLogEnabled() {
+        return sqlLog;
+      }
+      @Override
+      public void logSQL(String sql) {
+        if (sql!=null) {
+          loggedChars += sql.length();
+        }
+      }
+    };
+  }
+
+  @TearDown
+  public void tearDown() throws SQLException {
+    connection.close();
+  }
+
+  @Benchmark
+  public List<String> selectRows() {
+    return tx.newSelect(TABLE)
+      .where(gte(ID, 0))
+      .execute()
+      .getAll(selectResults->selectResults.get(NAME));
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import ai.shape.basics.db.constraints.ForeignKey;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static ai.shape.basics.util.Exceptions.assertNotNull;
+import static ai.shape.basics.util.Exceptions.assertNotNullParameter;
+
+/**
+ * Loads the children of many parents with a single select over
+ * a foreign key column instead of one select per parent.
+ *
+ * <pre>
+ * List&lt;Customer&gt; customers = ...;
+ * Map&lt;Integer,List&lt;Order&gt;&gt; ordersByCustomer = tx.newBatchFetch(Orders.CUSTOMER_ID)
+ *   .orderAsc(Orders.CREATED)
+ *   .execute(customerIds, Order::new);
+ * </pre>
+ *
+ * The parent keys become an IN condition, see {@link ai.shape.basics.db.conditions.InCondition}
+ * for how large lists are bound.  The parent keys must have the Java type of
+ * the foreign key column, eg Integer for an integer column.
+ *
+ * Each execute does a new select, so a BatchFetch can be executed
+ * multiple times, eg once per page of parents.
+ */
+public class BatchFetch {
+
+  protected Tx tx;
+  protected Column foreignKeyColumn;
+  protected List<Condition> whereConditions = new ArrayList<>();
+  protected List<OrderBy.FieldDirection> orderFieldDirections = new ArrayList<>();
+
+  public BatchFetch(Tx tx, Column foreignKeyColumn) {
+    assertNotNullParameter(foreignKeyColumn, "foreignKeyColumn");
+    ForeignKey foreignKey = foreignKeyColumn.findForeignKey();
+    assertNotNull(foreignKey, "Column %s is not a foreign key", foreignKeyColumn.getName());
+    this.tx = tx;
+    this.foreignKeyColumn = foreignKeyColumn;
+  }
+
+  /** Additional condition on the children */
+  public BatchFetch where(Condition condition) {
+    assertNotNullParameter(condition, "condition");
+    whereConditions.add(condition);
+    return this;
+  }
+
+  /** Order of the children within each parent */
+  public BatchFetch orderAsc(SqlExpression expression) {
+    orderFieldDirections.add(new OrderBy.Ascending(expression));
+    return this;
+  }
+
+  public BatchFetch orderDesc(SqlExpression expression) {
+    orderFieldDirections.add(new OrderBy.Descending(expression));
+    return this;
+  }
+
+  /** Selects the children of all parents at once.
+   * @return the children by parent key.  All parent keys are in the
+   * map in the order of parentKeys, with an empty list if there are no children. */
+  public <K,T> Map<K,List<T>> execute(Collection<K> parentKeys, Function<SelectResults,T> mapper) {
+    assertNotNullParameter(parentKeys, "parentKeys");
+    Set<K> distinctParentKeys = new LinkedHashSet<>(parentKeys);
+    distinctParentKeys.remove(null);
+    Map<K,List<T>> childrenByParentKey = new LinkedHashMap<>();
+    distinctParentKeys.forEach(parentKey->childrenByParentKey.put(parentKey, new ArrayList<>()));
+    if (distinctParentKeys.isEmpty()) {
+      return childrenByParentKey;
+    }
+    createSelect(distinctParentKeys).execute().forEach(row->{
+      K parentKey = row.get(foreignKeyColumn);
+      childrenByParentKey
+        .computeIfAbsent(parentKey, key->new ArrayList<>())
+        .add(mapper.apply(row));
+    });
+    return childrenByParentKey;
+  }
+
+  protected Select createSelect(Collection<?> parentKeys) {
+    Select select = tx.newSelect(foreignKeyColumn.getTable());
+    whereConditions.forEach(select::where);
+    select.where(Condition.in(foreignKeyColumn, parentKeys));
+    orderFieldDirections.forEach(select::addOrderBy);
+    return select;
+  }
+
+  public Column getForeignKeyColumn() {
+    return foreignKeyColumn;
+  }
+}
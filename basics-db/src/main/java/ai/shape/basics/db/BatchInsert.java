@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ai.shape.basics.util.Exceptions.assertNotNull;
+import static ai.shape.basics.util.Exceptions.assertNotNullParameter;
+import static ai.shape.basics.util.Exceptions.assertSame;
+import static ai.shape.basics.util.Exceptions.assertTrue;
+import static ai.shape.basics.util.Exceptions.exceptionWithCause;
+
+/**
+ * Inserts many rows in one table with JDBC batching.
+ *
+ * The INSERT sql is generated once per flush and the JDBC prepared statement
+ * is reused for all the rows of the flush.  Rows are buffered and sent to the database with
+ * {@link PreparedStatement#executeBatch()} each time {@link #flushSize(int)}
+ * rows are collected and when {@link #execute()} is called.
+ *
+ * <pre>
+ * tx.newBatchInsert(table)
+ *   .row()
+ *     .set(ID, "1")
+ *     .set(NAME, "one")
+ *   .row()
+ *     .set(ID, "2")
+ *     .set(NAME, "two")
+ *   .execute();
+ * </pre>
+ *
+ * When {@link #columns(Column...)} is not used, the columns are the ones
+ * set in the first row.  Later rows can not add other columns.
+ * Like with {@link Insert}, columns that have no value in any of the rows
+ * of a flush are left out of the INSERT, so their column defaults apply.
+ * A column that is set in some rows of a flush is inserted as NULL in the
+ * rows that don't set it, which overrides its default.
+ *
+ * With {@link #rowsPerStatement(int)} bigger than 1, the INSERT statement
+ * contains multiple VALUES (...),(...) tuples.  That helps for PostgreSQL.
+ * For MySQL, keep 1 and configure the dataSource.rewriteBatchedStatements=true
+ * property, the driver will then rewrite the batch into multi-row inserts.
+ */
+public class BatchInsert extends Statement {
+
+  public static final int DEFAULT_FLUSH_SIZE = 1000;
+
+  protected Table table;
+  protected List<Column> columns;
+  protected boolean columnsFixed = false;
+  protected int flushSize = DEFAULT_FLUSH_SIZE;
+  protected int rowsPerStatement = 1;
+  protected List<Object[]> rows = new ArrayList<>();
+  protected Object[] row;
+  /** jdbc statements of the current flush by number of VALUES tuples */
+  protected Map<Integer,PreparedStatement> jdbcStatements = new LinkedHashMap<>();
+  /** the columns of the current flush and their indexes in the rows */
+  protected List<Column> flushColumns;
+  protected int[] flushColumnIndexes;
+  protected int updateCount = 0;
+
+  public BatchInsert(Tx tx, Table table) {
+    super(tx);
+    assertNotNullParameter(table, "table");
+    this.table = table;
+  }
+
+  /** Optionally declares the columns up front.  Required when using {@link #row(Object...)}. */
+  public BatchInsert columns(Column... columns) {
+    assertTrue(this.columns==null, "Columns must be specified before the first row");
+    this.columns = new ArrayList<>();
+    for (Column column: columns) {
+      assertColumnOfTable(column);
+      this.columns.add(column);
+    }
+    this.columnsFixed = true;
+    return this;
+  }
+
+  /** Number of rows after which the buffered rows are sent to the database. */
+  public BatchInsert flushSize(int flushSize) {
+    assertTrue(flushSize>0, "flushSize must be positive: %d", flushSize);
+    this.flushSize = flushSize;
+    return this;
+  }
+
+  /** Number of VALUES (...) tuples in a single INSERT statement.
+   * Default is 1, which means plain JDBC batching. */
+  public BatchInsert rowsPerStatement(int rowsPerStatement) {
+    assertTrue(rowsPerStatement>0, "rowsPerStatement must be positive: %d", rowsPerStatement);
+    this.rowsPerStatement = rowsPerStatement;
+    return this;
+  }
+
+  /** Starts a new row.  Use {@link #set(Column, Object)} to set the values of the row. */
+  public BatchInsert row() {
+    endRow();
+    if (rows.size()>=flushSize) {
+      flush();
+    }
+    if (columns==null) {
+      columns = new ArrayList<>();
+    }
+    row = new Object[columns.size()];
+    return this;
+  }
+
+  /** Adds a row with the values in the same order as the {@link #columns(Column...)} */
+  public BatchInsert row(Object... values) {
+    assertTrue(columnsFixed, "row(values...) requires columns(...) to be specified");
+    assertTrue(values.length==columns.size(), "Expected %d values, but was %d", columns.size(), values.length);
+    row();
+    System.arraycopy(values, 0, row, 0, values.length);
+    return this;
+  }
+
+  public BatchInsert set(Column column, Object value) {
+    assertNotNull(row, "Call row() before set(...)");
+    int index = columns.indexOf(column);
+    if (index==-1) {
+      assertTrue(!columnsFixed, "Column %s was not set in the first row", column.getName());
+      assertColumnOfTable(column);
+      columns.add(column);
+      index = columns.size()-1;
+      row = Arrays.copyOf(row, columns.size());
+    }
+    row[index] = value;
+    return this;
+  }
+
+  protected void assertColumnOfTable(Column column) {
+    assertNotNull(column.getTable(), "Column %s isn't added to the table.", column.getName());
+    assertSame(table, column.getTable(), "The provided column must be from the table passed in the constructor");
+  }
+
+  protected void endRow() {
+    if (row!=null) {
+      rows.add(row);
+      row = null;
+      columnsFixed = true;
+    }
+  }
+
+  /** Sends the remaining buffered rows to the database.
+   * @return the total number of inserted rows */
+  public int execute() {
+    endRow();
+    flush();
+    return updateCount;
+  }
+
+  /** Sends the buffered rows to the database and closes the JDBC statements,
+   * also when a flush of {@link #row()} fails before {@link #execute()} is called. */
+  public void flush() {
+    if (rows.isEmpty()) {
+      return;
+    }
+    try {
+      invalidateEntityCache();
+      initializeFlushColumns();
+      int rowsPerStatement = getEffectiveRowsPerStatement();
+      int multiRowStatements = rowsPerStatement>1 ? rows.size()/rowsPerStatement : 0;
+      int rowIndex = 0;
+      if (multiRowStatements>0) {
+        PreparedStatement jdbcStatement = getJdbcStatement(rowsPerStatement);
+        for (int i=0; i<multiRowStatements; i++) {
+          addBatch(jdbcStatement, rowIndex, rowsPerStatement);
+          rowIndex += rowsPerStatement;
+        }
+        executeBatch(jdbcStatement, rowsPerStatement);
+      }
+      if (rowIndex<rows.size()) {
+        PreparedStatement jdbcStatement = getJdbcStatement(1);
+        while (rowIndex<rows.size()) {
+          addBatch(jdbcStatement, rowIndex, 1);
+          rowIndex++;
+        }
+        executeBatch(jdbcStatement, 1);
+      }
+      rows.clear();
+    } finally {
+      close();
+    }
+  }
+
+  /** Invalidates the primary keys of the buffered rows, see {@link Insert#invalidateEntityCache()} */
+  protected void invalidateEntityCache() {
+    if (tx.getDb().getEntityCache(table)!=null) {
+      int primaryKeyIndex = columns.indexOf(table.getPrimaryKeyColumn());
+      if (primaryKeyIndex!=-1) {
+        for (Object[] values: rows) {
+          if (primaryKeyIndex<values.length && values[primaryKeyIndex]!=null) {
+            tx.invalidateEntityCache(table, values[primaryKeyIndex]);
+          }
+        }
+      }
+    }
+  }
+
+  protected void initializeFlushColumns() {
+    flushColumns = new ArrayList<>();
+    flushColumnIndexes = new int[columns.size()];
+    for (int c=0; c<columns.size(); c++) {
+      if (isFlushColumn(c)) {
+        flushColumnIndexes[flushColumns.size()] = c;
+        flushColumns.add(columns.get(c));
+      }
+    }
+    flushColumnIndexes = Arrays.copyOf(flushColumnIndexes, flushColumns.size());
+  }
+
+  /** True if one of the buffered rows has a value for the column */
+  protected boolean isFlushColumn(int columnIndex) {
+    for (Object[] values: rows) {
+      if (columnIndex<values.length && values[columnIndex]!=null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Limits the {@link #rowsPerStatement(int)} to the max number of parameters of the dialect. */
+  protected int getEffectiveRowsPerStatement() {
+    int maxRows = Math.max(1, getDialect().getMaxParametersPerStatement()/Math.max(1, flushColumns.size()));
+    return Math.min(rowsPerStatement, maxRows);
+  }
+
+  protected PreparedStatement getJdbcStatement(int rowCount) {
+    PreparedStatement jdbcStatement = jdbcStatements.get(rowCount);
+    if (jdbcStatement==null) {
+      SqlBuilder sql = createSqlBuilder(rowCount);
+      try {
+        sql.buildSqlNew();
+        tx.logSQL(sql.getSqlLog());
+      } catch (Exception e) {
+        throw exceptionWithCause("build batch insert SQL \n"+sql.getDebugInfo(), e);
+      }
+      jdbcStatement = tx.createPreparedStatement(sql.getSql());
+      jdbcStatements.put(rowCount, jdbcStatement);
+    }
+    return jdbcStatement;
+  }
+
+  protected void addBatch(PreparedStatement jdbcStatement, int firstRowIndex, int rowCount) {
+    int jdbcParameterIndex = 1;
+    for (int r=firstRowIndex; r<firstRowIndex+rowCount; r++) {
+      Object[] values = rows.get(r);
+      for (int f=0; f<flushColumns.size(); f++) {
+        int c = flushColumnIndexes[f];
+        Object value = c<values.length ? values[c] : null;
+        flushColumns.get(f).getType().setParameter(jdbcStatement, jdbcParameterIndex++, value);
+      }
+    }
+    try {
+      jdbcStatement.addBatch();
+    } catch (SQLException e) {
+      throw exceptionWithCause("add batch to "+getClass().getSimpleName()+" in "+table, e);
+    }
+  }
+
+  protected void executeBatch(PreparedStatement jdbcStatement, int rowsPerBatchEntry) {
+    try {
+      long start = System.nanoTime();
+      int[] batchUpdateCounts = jdbcStatement.executeBatch();
+      tx.getDb().recordStatement(tx, getMetricsShape(), null, System.nanoTime()-start);
+      int batchUpdateCount = 0;
+      for (int batchEntryUpdateCount: batchUpdateCounts) {
+        // drivers may return SUCCESS_NO_INFO instead of the count
+        batchUpdateCount += batchEntryUpdateCount>=0 ? batchEntryUpdateCount : rowsPerBatchEntry;
+      }
+      logUpdateCount(batchUpdateCount);
+      updateCount += batchUpdateCount;
+    } catch (SQLException e) {
+      SQLException cause = e instanceof BatchUpdateException && e.getNextException()!=null ? e.getNextException() : e;
+      throw exceptionWithCause("execute "+getClass().getSimpleName()+" in "+table, cause);
+    }
+  }
+
+  protected void close() {
+    for (PreparedStatement jdbcStatement: jdbcStatements.values()) {
+      try {
+        jdbcStatement.close();
+      } catch (SQLException e) {
+        Db.DB_LOGGER.error(tx+" batch statement close: " + e.getMessage(), e);
+      }
+    }
+    jdbcStatements.clear();
+  }
+
+  @Override
+  protected SqlBuilder createSqlBuilder() {
+    return createSqlBuilder(1);
+  }
+
+  protected SqlBuilder createSqlBuilder(int rowCount) {
+    return getDialect().newBatchInsertSql(this, rowCount);
+  }
+
+  protected String getPastTense() {
+    return "Inserted";
+  }
+
+  public Table getTable() {
+    return table;
+  }
+
+  @Override
+  protected Table getMetricsTable() {
+    return table;
+  }
+
+  public List<Column> getColumns() {
+    return columns;
+  }
+
+  /** The columns that are inserted by the current flush */
+  public List<Column> getFlushColumns() {
+    return flushColumns;
+  }
+
+  public int getUpdateCount() {
+    return updateCount;
+  }
+}
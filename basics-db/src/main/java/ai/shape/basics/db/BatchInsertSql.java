@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package ai.shape.basics.db;
+
+import java.util.List;
+
+import static ai.shape.basics.util.Exceptions.assertNotEmptyCollection;
+import static java.util.stream.Collectors.joining;
+
+public class BatchInsertSql extends StatementSqlBuilder<BatchInsert> {
+
+  /** number of VALUES (...) tuples */
+  protected int rowCount;
+
+  public BatchInsertSql(BatchInsert batchInsert, int rowCount) {
+    super(batchInsert);
+    this.rowCount = rowCount;
+  }
+
+  @Override
+  public void buildSqlNew() {
+    Table table = statement.getTable();
+    List<Column> columns = statement.getFlushColumns();
+    assertNotEmptyCollection(columns, "columns");
+    appendText(
+      "INSERT INTO "+table.getName()+" ("+
+        columns.stream()
+          .map(column->column.getName())
+          .collect(joining(", "))+
+        ") \nVALUES ");
+    for (int r=0; r<rowCount; r++) {
+      if (r>0) {
+        appendText(", \n       ");
+      }
+      appendValues(columns);
+    }
+  }
+
+  /** Parameter values are bound per row, so only the parameter text is appended */
+  protected void appendValues(List<Column> columns) {
+    appendText("(");
+    Object first = columns.get(0);
+    for (Column column: columns) {
+      if (column!=first) {
+        appendText(", ");
+      }
+      appendText(column.getType().getParameterText());
+    }
+    appendText(")");
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static ai.shape.basics.util.Exceptions.assertNotEmptyArray;
+
+/**
+ * {@link Upsert} for many rows with JDBC batching, see {@link BatchInsert}.
+ * Like with {@link Upsert}, null values of the columns are upserted as NULL.
+ *
+ * With {@link #rowsPerStatement(int)} bigger than 1, the rows in one
+ * statement must have different keys.  PostgreSQL rejects a statement
+ * that affects the same row twice.
+ *
+ * The update counts are driver specific.  Eg MySQL counts an updated
+ * row as 2.
+ */
+public class BatchUpsert extends BatchInsert {
+
+  protected List<Column> keyColumns;
+
+  public BatchUpsert(Tx tx, Table table) {
+    super(tx, table);
+  }
+
+  /** The columns of a unique constraint that identify the row.  Default is the primary key. */
+  public BatchUpsert keyColumns(Column... keyColumns) {
+    assertNotEmptyArray(keyColumns, "keyColumns");
+    this.keyColumns = Arrays.asList(keyColumns);
+    return this;
+  }
+
+  public List<Column> getKeyColumns() {
+    return Upsert.getKeyColumns(table, keyColumns);
+  }
+
+  @Override
+  public BatchUpsert columns(Column... columns) {
+    return (BatchUpsert) super.columns(columns);
+  }
+
+  @Override
+  public BatchUpsert row() {
+    return (BatchUpsert) super.row();
+  }
+
+  @Override
+  public BatchUpsert row(Object... values) {
+    return (BatchUpsert) super.row(values);
+  }
+
+  @Override
+  public BatchUpsert set(Column column, Object value) {
+    return (BatchUpsert) super.set(column, value);
+  }
+
+  /** All columns are upserted, also the ones without values, see {@link Upsert} */
+  @Override
+  protected boolean isFlushColumn(int columnIndex) {
+    return true;
+  }
+
+  @Override
+  protected SqlBuilder createSqlBuilder(int rowCount) {
+    return getDialect().newBatchUpsertSql(this, rowCount);
+  }
+
+  /** Without the primary key column, the rows are identified
+   * by other key columns, so all rows of the table are invalidated. */
+  @Override
+  protected void invalidateEntityCache() {
+    if (columns.contains(table.getPrimaryKeyColumn())) {
+      super.invalidateEntityCache();
+    } else {
+      tx.invalidateEntityCache(table, null);
+    }
+  }
+
+  @Override
+  protected String getPastTense() {
+    return "Upserted";
+  }
+}
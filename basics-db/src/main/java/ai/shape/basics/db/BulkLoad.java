@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static ai.shape.basics.util.Exceptions.assertNotNull;
+import static ai.shape.basics.util.Exceptions.assertNotNullParameter;
+import static ai.shape.basics.util.Exceptions.assertSame;
+import static ai.shape.basics.util.Exceptions.assertTrue;
+
+/**
+ * Loads many rows with the native bulk loader of the database:
+ * COPY FROM STDIN for PostgreSQL, LOAD DATA LOCAL INFILE for MySQL and
+ * CSVREAD for H2.  Other databases, or when the JDBC driver doesn't
+ * support it, fall back to a {@link BatchInsert}.  See
+ * {@link Dialect#bulkLoad(BulkLoad, Iterator)}.
+ *
+ * tx.newBulkLoad(table)
+ *   .columns(ID, NAME)
+ *   .execute(rows);
+ *
+ * The rows are encoded while the database reads them, so a stream
+ * that is read from a file or another database is never fully in memory.
+ * Entity caches of the table are fully invalidated.
+ */
+public class BulkLoad {
+
+  protected Tx tx;
+  protected Table table;
+  protected List<Column> columns;
+
+  public BulkLoad(Tx tx, Table table) {
+    assertNotNullParameter(table, "table");
+    this.tx = tx;
+    this.table = table;
+  }
+
+  /** The columns of the values in the rows */
+  public BulkLoad columns(Column... columns) {
+    this.columns = new ArrayList<>();
+    for (Column column: columns) {
+      assertNotNull(column.getTable(), "Column %s isn't added to the table.", column.getName());
+      assertSame(table, column.getTable(), "The provided column must be from the table passed in the constructor");
+      this.columns.add(column);
+    }
+    return this;
+  }
+
+  /** @return the number of loaded rows */
+  public long execute(Stream<Object[]> rows) {
+    try {
+      return execute(rows.iterator());
+    } finally {
+      rows.close();
+    }
+  }
+
+  /** @return the number of loaded rows */
+  public long execute(Iterator<Object[]> rows) {
+    assertNotNullParameter(rows, "rows");
+    assertTrue(columns!=null && !columns.isEmpty(), "BulkLoad requires columns(...)");
+    tx.invalidateEntityCache(table, null);
+    long start = System.nanoTime();
+    long rowCount = tx.getDb().getDialect().bulkLoad(this, rows);
+    tx.getDb().recordStatement(tx, "BulkLoad "+table.getName(), null, System.nanoTime()-start);
+    if (Db.DB_LOGGER.isDebugEnabled()) {
+      Db.DB_LOGGER.debug(tx+" bulk loaded "+rowCount+" rows in "+table.getName());
+    }
+    return rowCount;
+  }
+
+  /** Comma separated column names */
+  public String getColumnNames() {
+    StringBuilder columnNames = new StringBuilder();
+    for (Column column: columns) {
+      if (columnNames.length()>0) {
+        columnNames.append(", ");
+      }
+      columnNames.append(column.getName());
+    }
+    return columnNames.toString();
+  }
+
+  public Tx getTx() {
+    return tx;
+  }
+
+  public Table getTable() {
+    return table;
+  }
+
+  public List<Column> getColumns() {
+    return columns;
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Encodes rows as UTF-8 text for the native bulk loaders while they are
+ * read, so the rows are never all in memory.  Each value is converted with
+ * {@link DataType#getBulkLoadText(Object)} of its column.
+ */
+public class BulkLoadInputStream extends InputStream {
+
+  public enum Format {
+    /** Tab separated with backslash escapes and \N for null.
+     * The default text format of PostgreSQL COPY and MySQL LOAD DATA. */
+    TEXT,
+    /** Comma separated with all values quoted and an empty unquoted value for null,
+     * as read by H2 CSVREAD. */
+    CSV
+  }
+
+  static final int BUFFER_CHARS = 64*1024;
+
+  protected Iterator<Object[]> rows;
+  protected List<Column> columns;
+  protected Format format;
+  protected StringBuilder text = new StringBuilder();
+  protected byte[] buffer = new byte[0];
+  protected int position = 0;
+  protected long rowCount = 0;
+
+  public BulkLoadInputStream(Iterator<Object[]> rows, List<Column> columns, Format format) {
+    this.rows = rows;
+    this.columns = columns;
+    this.format = format;
+  }
+
+  @Override
+  public int read() {
+    if (position>=buffer.length && !fill()) {
+      return -1;
+    }
+    return buffer[position++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] bytes, int offset, int length) {
+    if (length==0) {
+      return 0;
+    }
+    if (position>=buffer.length && !fill()) {
+      return -1;
+    }
+    int count = Math.min(length, buffer.length-position);
+    System.arraycopy(buffer, position, bytes, offset, count);
+    position += count;
+    return count;
+  }
+
+  /** Encodes the next rows in the buffer.  false if there are no more rows. */
+  protected boolean fill() {
+    text.setLength(0);
+    while (text.length()<BUFFER_CHARS && rows.hasNext()) {
+      appendRow(rows.next());
+      rowCount++;
+    }
+    buffer = text.toString().getBytes(StandardCharsets.UTF_8);
+    position = 0;
+    return buffer.length>0;
+  }
+
+  protected void appendRow(Object[] values) {
+    for (int i=0; i<columns.size(); i++) {
+      if (i>0) {
+        text.append(format==Format.TEXT ? '\t' : ',');
+      }
+      Object value = i<values.length ? values[i] : null;
+      String valueText = value!=null ? columns.get(i).getType().getBulkLoadText(value) : null;
+      if (format==Format.TEXT) {
+        appendText(valueText);
+      } else {
+        appendCsv(valueText);
+      }
+    }
+    text.append('\n');
+  }
+
+  protected void appendText(String valueText) {
+    if (valueText==null) {
+      text.append("\\N");
+      return;
+    }
+    for (int i=0; i<valueText.length(); i++) {
+      char c = valueText.charAt(i);
+      switch (c) {
+        case '\\': text.append("\\\\"); break;
+        case '\t': text.append("\\t"); break;
+        case '\n': text.append("\\n"); break;
+        case '\r': text.append("\\r"); break;
+        default: text.append(c);
+      }
+    }
+  }
+
+  protected void appendCsv(String valueText) {
+    if (valueText!=null) {
+      text.append('"');
+      for (int i=0; i<valueText.length(); i++) {
+        char c = valueText.charAt(i);
+        if (c=='"') {
+          text.append('"');
+        }
+        text.append(c);
+      }
+      text.append('"');
+    }
+  }
+
+  /** Number of rows encoded so far */
+  public long getRowCount() {
+    return rowCount;
+  }
+}
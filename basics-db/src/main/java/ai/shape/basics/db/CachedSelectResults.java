@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.util.ArrayList;
+
+/** Select results with a single row from the {@link EntityCache}
+ * or no rows if values is null. */
+public class CachedSelectResults extends SelectResults {
+
+  /** values indexed by {@link Column#getIndex()}, null if there is no row */
+  Object[] values;
+  boolean hasNext;
+
+  public CachedSelectResults(Select select, Object[] values) {
+    super(select, select.getTx(), null, new SqlBuilder(new ArrayList<>()));
+    this.values = values;
+    this.hasNext = values!=null;
+    // cached rows are logged as a cache hit in the select, not as a table
+    this.selectLogger = null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(SqlExpression expression) {
+    return (T) getValue(expression);
+  }
+
+  @Override
+  public long getLong(SqlExpression expression) {
+    Object value = getValue(expression);
+    return value!=null ? ((Number)value).longValue() : 0;
+  }
+
+  @Override
+  public int getInt(SqlExpression expression) {
+    Object value = getValue(expression);
+    return value!=null ? ((Number)value).intValue() : 0;
+  }
+
+  @Override
+  public boolean getBoolean(SqlExpression expression) {
+    Object value = getValue(expression);
+    return value!=null ? (Boolean)value : false;
+  }
+
+  protected Object getValue(SqlExpression expression) {
+    int jdbcIndex = getJdbcIndex(expression);
+    Column column = (Column) select.getFields().get(jdbcIndex-1).getExpression();
+    return values[column.getIndex()];
+  }
+
+  @Override
+  protected boolean resultSetNext() {
+    boolean next = hasNext;
+    hasNext = false;
+    return next;
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -80,6 +80,11 @@ public class Column implements SqlExpression {
     type(new JsonType());
     return this;
   }
+  /** JSONB on PostgreSQL, the same as {@link #typeJson()} on the other databases */
+  public Column typeJsonb() {
+    type(new JsonType().binary());
+    return this;
+  }
   public Column typeInteger() {
     type(new IntegerType());
     return this;
@@ -149,6 +154,11 @@ public class Column implements SqlExpression {
     sql.appendText(statement.getQualifiedColumnName(this));
   }
 
+  @Override
+  public void collectShape(StatementShape shape) {
+    shape.add(this);
+  }
+
   public Table getTable() {
     return table;
   }
@@ -53,14 +53,30 @@ public interface Condition {
     return new LikeCondition(column, pattern);
   }
 
-  public static GreaterThanOrEqualCondition gte(Column column, Object value) {
-    return new GreaterThanOrEqualCondition(column, value);
+  public static GreaterThanOrEqualCondition gte(SqlExpression expression, Object value) {
+    return new GreaterThanOrEqualCondition(expression, value);
+  }
+
+  public static LessThanCondition lt(SqlExpression expression, Object value) {
+    return new LessThanCondition(expression, value);
   }
 
   public static InCondition in(Column column, Collection<?> values) {
     return new InCondition(column, values);
   }
 
+  /** The text at the dot separated path in the JSON column equals the value,
+   * eg jsonPathEqual(DATA, "address.city", "Brussels") */
+  public static JsonPathEqualCondition jsonPathEqual(Column column, String path, Object value) {
+    return new JsonPathEqualCondition(column, path, value);
+  }
+
+  /** The JSON column contains the JSON, eg jsonContains(DATA, "{\"tags\":[\"new\"]}").
+   * The json can also be an object, see {@link ai.shape.basics.db.types.JsonType#setJsonWriter} */
+  public static JsonContainsCondition jsonContains(Column column, Object json) {
+    return new JsonContainsCondition(column, json);
+  }
+
   public static NotNullCondition notNull(Column column) {
     return new NotNullCondition(column);
   }
@@ -68,4 +84,10 @@ public interface Condition {
   void buildSql(SqlBuilder sql, Statement statement);
 
   void collectParameters(Statement statement);
+
+  /** Adds everything that determines the generated sql of this condition
+   * to the shape.  Conditions that don't override this can't be cached. */
+  default void collectShape(StatementShape shape) {
+    shape.notCacheable();
+  }
 }
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static ai.shape.basics.util.Exceptions.exceptionWithCause;
+
+/**
+ * Encodes the order by values of the last row of a page into an opaque
+ * url safe text that can be passed to {@link Select#seekToken(String)} to
+ * get the next page.
+ *
+ * Each value is encoded as a type character, the length of the text,
+ * a colon and the text.  So the values can be decoded without knowing
+ * the types of the order by fields.
+ */
+public class ContinuationToken {
+
+  public static String encode(Object[] values) {
+    StringBuilder text = new StringBuilder();
+    for (Object value: values) {
+      String valueText = value!=null ? value.toString() : "";
+      text.append(getTypeChar(value));
+      text.append(valueText.length());
+      text.append(':');
+      text.append(valueText);
+    }
+    return Base64
+      .getUrlEncoder()
+      .withoutPadding()
+      .encodeToString(text.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static Object[] decode(String continuationToken) {
+    try {
+      String text = new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8);
+      List<Object> values = new ArrayList<>();
+      int index = 0;
+      while (index<text.length()) {
+        char typeChar = text.charAt(index);
+        int colonIndex = text.indexOf(':', index);
+        int length = Integer.parseInt(text.substring(index+1, colonIndex));
+        String valueText = text.substring(colonIndex+1, colonIndex+1+length);
+        values.add(parseValue(typeChar, valueText));
+        index = colonIndex+1+length;
+      }
+      return values.toArray();
+    } catch (Exception e) {
+      throw exceptionWithCause("decode continuation token "+continuationToken, e);
+    }
+  }
+
+  static char getTypeChar(Object value) {
+    if (value==null) return 'N';
+    if (value instanceof String) return 'S';
+    if (value instanceof Long) return 'L';
+    if (value instanceof Integer) return 'I';
+    if (value instanceof Double) return 'D';
+    if (value instanceof Float) return 'F';
+    if (value instanceof Boolean) return 'B';
+    if (value instanceof LocalDateTime) return 'T';
+    throw new RuntimeException("Unsupported continuation token value type "+value.getClass().getName());
+  }
+
+  static Object parseValue(char typeChar, String valueText) {
+    switch (typeChar) {
+      case 'N': return null;
+      case 'S': return valueText;
+      case 'L': return Long.valueOf(valueText);
+      case 'I': return Integer.valueOf(valueText);
+      case 'D': return Double.valueOf(valueText);
+      case 'F': return Float.valueOf(valueText);
+      case 'B': return Boolean.valueOf(valueText);
+      case 'T': return LocalDateTime.parse(valueText);
+    }
+    throw new RuntimeException("Unknown continuation token value type "+typeChar);
+  }
+}
@@ -33,6 +33,11 @@ public class Count implements SqlExpression {
     sql.appendText("count(*)");
   }
 
+  @Override
+  public void collectShape(StatementShape shape) {
+    shape.add("count(*)");
+  }
+
   @Override
   public DataType getType() {
     return DataType.longType();
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+/** DDL for CREATE INDEX, see {@link Index} */
+public class CreateIndex extends Statement {
+
+  protected Index index;
+  protected boolean concurrently;
+
+  public CreateIndex(Tx tx, Index index) {
+    super(tx);
+    this.index = index;
+  }
+
+  /** Creates the index without blocking writes to the table on
+   * dialects that {@link Dialect#supportsCreateIndexConcurrently() support it}.
+   * That can't be done in a transaction, so it has to be the first
+   * statement in a tx.  Best execute it as the only statement in a tx. */
+  public CreateIndex concurrently() {
+    this.concurrently = true;
+    return this;
+  }
+
+  public int execute() {
+    if (index.isGin() && !getDialect().supportsGinIndexes()) {
+      Db.DB_LOGGER.debug(tx+" skipping GIN index "+index.getName()+" as "+getDialect().getClass().getSimpleName()+" doesn't support it");
+      return 0;
+    }
+    return isConcurrently() ? executeUpdateWithAutoCommit() : executeUpdate();
+  }
+
+  @Override
+  protected SqlBuilder createSqlBuilder() {
+    return getDialect().newCreateIndexSql(this);
+  }
+
+  protected void logUpdateCount(int updateCount) {
+  }
+
+  @Override
+  protected Table getMetricsTable() {
+    return index.getTable();
+  }
+
+  public Index getIndex() {
+    return index;
+  }
+
+  /** true if {@link #concurrently()} was requested and the dialect supports it */
+  public boolean isConcurrently() {
+    return concurrently && getDialect().supportsCreateIndexConcurrently();
+  }
+}
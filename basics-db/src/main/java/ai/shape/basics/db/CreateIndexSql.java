@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.util.List;
+
+import static ai.shape.basics.util.Exceptions.assertTrue;
+
+/** CREATE [UNIQUE] INDEX name ON table (columns).  Partial indexes and
+ * included columns are not supported, see {@link Index}. */
+public class CreateIndexSql extends SqlBuilder {
+
+  protected CreateIndex createIndex;
+
+  public CreateIndexSql(CreateIndex createIndex) {
+    super(createIndex);
+    this.createIndex = createIndex;
+  }
+
+  @Override
+  public void buildSqlNew() {
+    Index index = createIndex.getIndex();
+    assertTrue(index.getWhereSql()==null || !index.isUnique() || supportsPartialIndexes(),
+      "Unique partial index %s isn't supported by %s", index.getName(), getDialect().getClass().getSimpleName());
+    appendText("CREATE ");
+    if (index.isUnique()) {
+      appendText("UNIQUE ");
+    }
+    appendText("INDEX ");
+    if (createIndex.isConcurrently()) {
+      appendText("CONCURRENTLY ");
+    }
+    appendText(index.getName()+" ON "+index.getTable().getName()+" ");
+    appendUsing(index);
+    appendColumnNames(index.getColumns());
+    appendIncludeAndWhere(index);
+    appendText(";");
+  }
+
+  protected void appendColumnNames(List<Column> columns) {
+    appendText("(");
+    for (int i=0; i<columns.size(); i++) {
+      appendText((i>0 ? ", " : "")+columns.get(i).getName());
+    }
+    appendText(")");
+  }
+
+  protected boolean supportsPartialIndexes() {
+    return false;
+  }
+
+  /** Index method, eg USING GIN.  Not supported by default */
+  protected void appendUsing(Index index) {
+  }
+
+  /** Not supported by default */
+  protected void appendIncludeAndWhere(Index index) {
+  }
+}
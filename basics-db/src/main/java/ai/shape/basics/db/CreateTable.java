@@ -27,8 +27,13 @@ public class CreateTable extends Statement {
     this.table = table;
   }
 
+  /** Creates the table and its {@link Table#getIndexes() indexes} */
   public int execute() {
-    return executeUpdate();
+    int updateCount = executeUpdate();
+    for (Index index: table.getIndexes()) {
+      tx.newCreateIndex(index).execute();
+    }
+    return updateCount;
   }
 
   @Override
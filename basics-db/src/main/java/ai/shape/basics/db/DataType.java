@@ -68,6 +68,11 @@ public interface DataType {
     return value!=null ? value.toString() : "null";
   }
 
+  /** The value in the text format of the native bulk loaders, see {@link BulkLoad} */
+  default String getBulkLoadText(Object value) {
+    return value.toString();
+  }
+
   default boolean isRightAligned() {
     return false;
   }
@@ -21,8 +21,10 @@ package ai.shape.basics.db;
 import ai.shape.basics.db.dialects.H2Dialect;
 import ai.shape.basics.db.dialects.MySQLDialect;
 import ai.shape.basics.db.dialects.PostgreSQLDialect;
+import ai.shape.basics.util.Sets;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,9 +34,25 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+import static ai.shape.basics.util.Exceptions.assertNotNullParameter;
 import static ai.shape.basics.util.Exceptions.exceptionWithCause;
 
 public class Db {
@@ -45,14 +63,57 @@ public class Db {
   public static final String CONFIGURATION_NAME_USER = "user";
   public static final String CONFIGURATION_NAME_PASSWORD = "password";
   public static final String CONFIGURATION_NAME_NODE_NAME = "nodename";
+  /** Max number of generated SQL texts that are cached.  0 disables the cache. */
+  public static final String CONFIGURATION_NAME_SQL_CACHE_SIZE = "sqlCacheSize";
+  /** statements that take longer than this are logged as a warning.  Default 0 disables the slow query log. */
+  public static final String CONFIGURATION_NAME_SLOW_QUERY_MILLIS = "slowQueryMillis";
+  /** Prefix for the configuration of read replicas that are used by {@link #readTx(TxLogic)}.
+   * Eg replica.1.jdbcUrl=jdbc:postgresql://replica1/db configures replica 1.
+   * Properties that are not configured for a replica are taken from the primary. */
+  public static final String CONFIGURATION_PREFIX_REPLICA = "replica.";
+  /** How long a replica is skipped after its connection failed.  Default is {@value #DEFAULT_REPLICA_RETRY_MILLIS}. */
+  public static final String CONFIGURATION_NAME_REPLICA_RETRY_MILLIS = "replicaRetryMillis";
+  public static final long DEFAULT_REPLICA_RETRY_MILLIS = 10000;
+  /** Hikari connectionTimeout of replicas that don't configure one, so that
+   * a replica that is down doesn't block readTx for Hikari's default 30 seconds */
+  public static final long DEFAULT_REPLICA_CONNECTION_TIMEOUT_MILLIS = 1000;
+
+  /** Configuration names that are used by the Db itself and that are not passed to Hikari */
+  protected static final Set<String> DB_CONFIGURATION_NAMES = Sets.hashSet(
+    CONFIGURATION_NAME_NODE_NAME,
+    CONFIGURATION_NAME_SQL_CACHE_SIZE,
+    CONFIGURATION_NAME_SLOW_QUERY_MILLIS,
+    CONFIGURATION_NAME_REPLICA_RETRY_MILLIS);
 
   protected DataSource dataSource;
+  /** empty if there are no replicas configured */
+  protected List<DataSource> replicaDataSources;
+  protected AtomicInteger nextReplicaIndex = new AtomicInteger();
+  /** by replica index the System.nanoTime until which the replica is skipped, 0 if the replica is healthy */
+  protected AtomicLongArray replicaUnhealthyUntilNanos;
+  protected long replicaRetryNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_REPLICA_RETRY_MILLIS);
   protected Dialect dialect;
 
   /** unique id for this process, usually there is only one process.
    * It's used to identify this process in the db typically for locks. */
   protected String nodeName;
 
+  /** null if the sql cache is disabled */
+  protected SqlCache sqlCache;
+
+  protected DbMetrics metrics = new InMemoryDbMetrics();
+  /** of the primary pool */
+  protected int maximumPoolSize = 1;
+  /** executes the {@link #txAsync(TxLogic)} transactions, created lazily if not configured */
+  protected Executor txAsyncExecutor;
+  /** caps the concurrent {@link #txAsync(TxLogic)} transactions at the maximum pool size */
+  protected Semaphore txAsyncPermits;
+  /** 0 if the slow query log is disabled */
+  protected long slowQueryNanos;
+
+  /** entity caches by table, only contains the tables for which the cache is configured */
+  protected Map<Table,EntityCache> entityCaches = new ConcurrentHashMap<>();
+
   /**
    * For docs see https://github.com/brettwooldridge/HikariCP
    *
@@ -79,8 +140,19 @@ public class Db {
       DB_LOGGER.debug("Creating Db "+properties.getProperty(CONFIGURATION_NAME_JDBC_URL));
       DB_LOGGER.debug("Creating Db "+properties);
       this.dataSource = createDataSource(properties);
+      this.replicaDataSources = createReplicaDataSources(properties);
+      this.replicaUnhealthyUntilNanos = new AtomicLongArray(replicaDataSources.size());
       this.dialect = getDialect(properties);
       this.nodeName = initializeNodeName(properties);
+      this.sqlCache = initializeSqlCache(properties);
+      String slowQueryMillisText = properties.getProperty(CONFIGURATION_NAME_SLOW_QUERY_MILLIS);
+      if (slowQueryMillisText!=null) {
+        slowQueryMillis(Long.parseLong(slowQueryMillisText));
+      }
+      String replicaRetryMillisText = properties.getProperty(CONFIGURATION_NAME_REPLICA_RETRY_MILLIS);
+      if (replicaRetryMillisText!=null) {
+        replicaRetryMillis(Long.parseLong(replicaRetryMillisText));
+      }
 
     } catch (Exception e) {
       throw exceptionWithCause("create Db with properties "+properties, e);
@@ -129,9 +201,64 @@ public class Db {
   }
 
   private DataSource createDataSource(Properties properties) {
-    DB_LOGGER.debug("Creating Hikari DataSource with configuration "+properties);
-    HikariConfig hikariConfig = new HikariConfig(properties);
-    return new HikariDataSource(hikariConfig);
+    Properties dataSourceProperties = getDataSourceProperties(properties);
+    DB_LOGGER.debug("Creating Hikari DataSource with configuration "+dataSourceProperties);
+    HikariConfig hikariConfig = new HikariConfig(dataSourceProperties);
+    HikariDataSource hikariDataSource = new HikariDataSource(hikariConfig);
+    // read after the data source is created because that applies the defaults
+    this.maximumPoolSize = Math.max(1, hikariConfig.getMaximumPoolSize());
+    return hikariDataSource;
+  }
+
+  /** Creates a DataSource for each replica name in the replica.[name].* properties.
+   * The replicas are created in the order of their names. */
+  protected List<DataSource> createReplicaDataSources(Properties properties) {
+    Map<String,Properties> replicaPropertiesByName = new TreeMap<>();
+    for (String name: properties.stringPropertyNames()) {
+      if (name.startsWith(CONFIGURATION_PREFIX_REPLICA)) {
+        String replicaName = name.substring(CONFIGURATION_PREFIX_REPLICA.length());
+        int dotIndex = replicaName.indexOf('.');
+        if (dotIndex!=-1) {
+          Properties replicaProperties = replicaPropertiesByName
+            .computeIfAbsent(replicaName.substring(0, dotIndex), n->new Properties());
+          replicaProperties.setProperty(replicaName.substring(dotIndex+1), properties.getProperty(name));
+        }
+      }
+    }
+    List<DataSource> replicaDataSources = new ArrayList<>();
+    replicaPropertiesByName.forEach((replicaName, replicaProperties)->{
+      Properties dataSourceProperties = getDataSourceProperties(properties);
+      dataSourceProperties.putAll(replicaProperties);
+      if (!replicaProperties.containsKey("initializationFailTimeout")) {
+        // a replica that is down must not prevent the Db from starting
+        dataSourceProperties.setProperty("initializationFailTimeout", "-1");
+      }
+      if (!replicaProperties.containsKey("connectionTimeout")) {
+        dataSourceProperties.setProperty("connectionTimeout", Long.toString(DEFAULT_REPLICA_CONNECTION_TIMEOUT_MILLIS));
+      }
+      DB_LOGGER.debug("Creating Hikari DataSource for replica "+replicaName+" with configuration "+dataSourceProperties);
+      replicaDataSources.add(new HikariDataSource(new HikariConfig(dataSourceProperties)));
+    });
+    return replicaDataSources;
+  }
+
+  /** Hikari throws an exception for properties it doesn't know,
+   * so the Db configuration properties are removed. */
+  protected Properties getDataSourceProperties(Properties properties) {
+    Properties dataSourceProperties = new Properties();
+    for (String name: properties.stringPropertyNames()) {
+      if (!DB_CONFIGURATION_NAMES.contains(name)
+          && !name.startsWith(CONFIGURATION_PREFIX_REPLICA)) {
+        dataSourceProperties.setProperty(name, properties.getProperty(name));
+      }
+    }
+    return dataSourceProperties;
+  }
+
+  protected SqlCache initializeSqlCache(Properties properties) {
+    String sqlCacheSizeText = properties.getProperty(CONFIGURATION_NAME_SQL_CACHE_SIZE);
+    int sqlCacheSize = sqlCacheSizeText!=null ? Integer.parseInt(sqlCacheSizeText) : SqlCache.DEFAULT_MAX_SIZE;
+    return sqlCacheSize>0 ? new SqlCache(sqlCacheSize) : null;
   }
 
   protected String initializeNodeName(Properties properties) {
@@ -149,15 +276,160 @@ public class Db {
     return nodeName;
   }
 
-  @SuppressWarnings("unchecked")
   public <T> T tx(TxLogic txLogic) {
+    return tx(new TxOptions(), txLogic);
+  }
+
+  /** Executes the txLogic in a read-only transaction on one of the
+   * replicas.  The replicas are used round robin.  If no replica
+   * connection can be obtained or if there are no replicas configured,
+   * the primary is used. */
+  public <T> T readTx(TxLogic txLogic) {
+    return tx(new TxOptions().readOnly(), txLogic);
+  }
+
+  /** Executes the txLogic in a transaction with the given options,
+   * eg the isolation level and retries.  See {@link TxOptions}. */
+  public <T> T tx(TxOptions options, TxLogic txLogic) {
+    long firstFailureMillis = 0;
+    for (int attempt=1; true; attempt++) {
+      try {
+        T result = executeTx(options, txLogic);
+        if (attempt>1) {
+          metrics.recordRetriedTx(true, System.currentTimeMillis()-firstFailureMillis);
+        }
+        return result;
+      } catch (RuntimeException e) {
+        long now = System.currentTimeMillis();
+        if (attempt==1) {
+          firstFailureMillis = now;
+        }
+        if (attempt>=options.getMaxAttempts()
+            || now-firstFailureMillis>=options.getMaxRetryMillis()
+            || !dialect.isRetryable(e)) {
+          if (attempt>1) {
+            metrics.recordRetriedTx(false, now-firstFailureMillis);
+          }
+          throw e;
+        }
+        long backoffMillis = getBackoffMillis(options, attempt);
+        DB_LOGGER.warn("Retrying transaction in "+backoffMillis+" millis after attempt "+attempt+" failed: "+e.getMessage());
+        metrics.recordTxRetry();
+        try {
+          Thread.sleep(backoffMillis);
+        } catch (InterruptedException interruptedException) {
+          Thread.currentThread().interrupt();
+          throw e;
+        }
+      }
+    }
+  }
+
+  /** random backoff between 1 and initialBackoffMillis * 2^(attempt-1), capped by maxBackoffMillis */
+  protected long getBackoffMillis(TxOptions options, int attempt) {
+    long maxBackoffMillis = options.getInitialBackoffMillis() << Math.min(attempt-1, 30);
+    if (maxBackoffMillis<=0 || maxBackoffMillis>options.getMaxBackoffMillis()) {
+      maxBackoffMillis = options.getMaxBackoffMillis();
+    }
+    return 1 + ThreadLocalRandom.current().nextLong(maxBackoffMillis);
+  }
+
+  /** Executes the txLogic in a transaction on the {@link #txAsyncExecutor(Executor)}.
+   * {@link Tx#getCurrentTx()} works inside the txLogic because the whole
+   * transaction runs on the same thread. */
+  public <T> CompletableFuture<T> txAsync(TxLogic txLogic) {
+    return txAsync(new TxOptions(), txLogic);
+  }
+
+  /** Like {@link #txAsync(TxLogic)} with the given options */
+  public <T> CompletableFuture<T> txAsync(TxOptions options, TxLogic txLogic) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    Semaphore permits = getTxAsyncPermits();
+    try {
+      getTxAsyncExecutor().execute(()->{
+        try {
+          permits.acquire();
+          try {
+            future.complete(tx(options, txLogic));
+          } finally {
+            permits.release();
+          }
+        } catch (Throwable e) {
+          future.completeExceptionally(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /** Configures the executor for {@link #txAsync(TxLogic)}.  The default
+   * is a virtual thread per task on JDK 21+ and otherwise a fixed pool of
+   * daemon threads with the maximum pool size of the primary. */
+  public Db txAsyncExecutor(Executor txAsyncExecutor) {
+    assertNotNullParameter(txAsyncExecutor, "txAsyncExecutor");
+    this.txAsyncExecutor = txAsyncExecutor;
+    return this;
+  }
+
+  protected synchronized Executor getTxAsyncExecutor() {
+    if (txAsyncExecutor==null) {
+      txAsyncExecutor = createTxAsyncExecutor();
+    }
+    return txAsyncExecutor;
+  }
+
+  protected synchronized Semaphore getTxAsyncPermits() {
+    if (txAsyncPermits==null) {
+      txAsyncPermits = new Semaphore(maximumPoolSize);
+    }
+    return txAsyncPermits;
+  }
+
+  protected Executor createTxAsyncExecutor() {
+    try {
+      // reflection because this library is compiled for java 8
+      Executor virtualThreadExecutor = (Executor) Executors.class
+        .getMethod("newVirtualThreadPerTaskExecutor")
+        .invoke(null);
+      DB_LOGGER.debug("Using virtual threads for async transactions");
+      return virtualThreadExecutor;
+    } catch (Exception e) {
+      AtomicInteger nextThreadIndex = new AtomicInteger(1);
+      return Executors.newFixedThreadPool(maximumPoolSize, runnable->{
+        Thread thread = new Thread(runnable, "tx-async-"+nextThreadIndex.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  protected <T> T executeTx(TxOptions options, TxLogic txLogic) {
+    boolean readOnly = options.isReadOnly();
     Connection connection = null;
     Tx tx = null;
     Exception exception = null;
     try {
-      connection = dataSource.getConnection();
+      boolean isReplica = false;
+      long acquireStart = System.nanoTime();
+      if (readOnly) {
+        connection = getReplicaConnection();
+        isReplica = connection!=null;
+      }
+      if (connection==null) {
+        connection = dataSource.getConnection();
+      }
+      metrics.recordConnectionAcquire(System.nanoTime()-acquireStart);
       connection.setAutoCommit(false);
-      tx = new Tx(this, connection);
+      if (readOnly) {
+        connection.setReadOnly(true);
+      }
+      if (options.getIsolation()!=null) {
+        connection.setTransactionIsolation(options.getIsolation());
+      }
+      tx = new Tx(this, connection, readOnly, isReplica);
       txLogic.execute(tx);
     } catch (Exception e) {
       exception = e;
@@ -166,7 +438,12 @@ public class Db {
       }
     }
     if (tx!=null) {
-      tx.end();
+      try {
+        tx.end();
+      } catch (RuntimeException e) {
+        // a failed commit
+        exception = e;
+      }
     }
     if (connection!=null) {
       try {
@@ -185,10 +462,89 @@ public class Db {
     return tx!=null ? (T) tx.getResult() : null;
   }
 
+  /** Caches the rows of the table by primary key.  See {@link EntityCache}. */
+  public Db entityCache(Table table, int maxSize, long timeToLiveMillis) {
+    entityCaches.put(table, new EntityCache(table, maxSize, timeToLiveMillis));
+    return this;
+  }
+
+  /** null if no entity cache is configured for the table */
+  public EntityCache getEntityCache(Table table) {
+    return table!=null ? entityCaches.get(table) : null;
+  }
+
+  /** Replaces the default {@link InMemoryDbMetrics} */
+  public Db metrics(DbMetrics metrics) {
+    assertNotNullParameter(metrics, "metrics");
+    this.metrics = metrics;
+    return this;
+  }
+
+  /** Logs statements that take longer than slowQueryMillis as a warning.  0 disables the slow query log. */
+  public Db slowQueryMillis(long slowQueryMillis) {
+    this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, slowQueryMillis));
+    return this;
+  }
+
+  /** Records the execution time of a statement in the metrics and the slow query log.
+   * @param sql is null if it's too big to log, as for batch inserts */
+  protected void recordStatement(Tx tx, String statementShape, String sql, long nanos) {
+    metrics.recordStatement(statementShape, nanos);
+    if (slowQueryNanos>0 && nanos>=slowQueryNanos) {
+      DB_LOGGER.warn(tx+" slow "+statementShape+" took "+TimeUnit.NANOSECONDS.toMillis(nanos)+" millis"
+        +(sql!=null ? ":\n"+sql : ""));
+    }
+  }
+
+  /** Skips a replica for replicaRetryMillis after its connection failed */
+  public Db replicaRetryMillis(long replicaRetryMillis) {
+    this.replicaRetryNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, replicaRetryMillis));
+    return this;
+  }
+
+  /** Returns a connection of the next healthy replica that is available or null.
+   * A replica whose connection failed is skipped until replicaRetryMillis passed,
+   * so that readTx doesn't wait for the connection timeout of a replica that is down. */
+  protected Connection getReplicaConnection() {
+    int replicaCount = replicaDataSources.size();
+    int start = replicaCount>0 ? Math.floorMod(nextReplicaIndex.getAndIncrement(), replicaCount) : 0;
+    for (int i=0; i<replicaCount; i++) {
+      int replicaIndex = (start+i) % replicaCount;
+      long unhealthyUntilNanos = replicaUnhealthyUntilNanos.get(replicaIndex);
+      if (unhealthyUntilNanos!=0 && System.nanoTime()-unhealthyUntilNanos<0) {
+        continue;
+      }
+      try {
+        Connection connection = replicaDataSources.get(replicaIndex).getConnection();
+        if (unhealthyUntilNanos!=0) {
+          DB_LOGGER.info("Replica "+replicaIndex+" is healthy again");
+          replicaUnhealthyUntilNanos.compareAndSet(replicaIndex, unhealthyUntilNanos, 0);
+        }
+        return connection;
+      } catch (SQLException e) {
+        DB_LOGGER.warn("Replica "+replicaIndex+" connection failed, skipping it for "
+          +TimeUnit.NANOSECONDS.toMillis(replicaRetryNanos)+" millis: " + e.getMessage());
+        // never 0 as that means healthy
+        replicaUnhealthyUntilNanos.set(replicaIndex, (System.nanoTime()+replicaRetryNanos) | 1);
+      }
+    }
+    return null;
+  }
+
+  /** True if the replica is skipped because its last connection failed */
+  public boolean isReplicaUnhealthy(int replicaIndex) {
+    long unhealthyUntilNanos = replicaUnhealthyUntilNanos.get(replicaIndex);
+    return unhealthyUntilNanos!=0 && System.nanoTime()-unhealthyUntilNanos<0;
+  }
+
   public DataSource getDataSource() {
     return dataSource;
   }
 
+  public List<DataSource> getReplicaDataSources() {
+    return replicaDataSources;
+  }
+
   public Dialect getDialect() {
     return dialect;
   }
@@ -196,4 +552,48 @@ public class Db {
   public String getNodeName() {
     return nodeName;
   }
+
+  public DbMetrics getMetrics() {
+    return metrics;
+  }
+
+  /** Maximum number of connections of the primary pool */
+  public int getMaximumPoolSize() {
+    return maximumPoolSize;
+  }
+
+  /** Number of connections in use of the primary pool, -1 if the pool doesn't expose it */
+  public int getActiveConnections() {
+    HikariPoolMXBean pool = getPoolMXBean();
+    return pool!=null ? pool.getActiveConnections() : -1;
+  }
+
+  /** Number of idle connections of the primary pool, -1 if the pool doesn't expose it */
+  public int getIdleConnections() {
+    HikariPoolMXBean pool = getPoolMXBean();
+    return pool!=null ? pool.getIdleConnections() : -1;
+  }
+
+  /** Number of open connections of the primary pool, -1 if the pool doesn't expose it */
+  public int getTotalConnections() {
+    HikariPoolMXBean pool = getPoolMXBean();
+    return pool!=null ? pool.getTotalConnections() : -1;
+  }
+
+  /** Number of threads waiting for a connection of the primary pool, -1 if the pool doesn't expose it */
+  public int getThreadsAwaitingConnection() {
+    HikariPoolMXBean pool = getPoolMXBean();
+    return pool!=null ? pool.getThreadsAwaitingConnection() : -1;
+  }
+
+  protected HikariPoolMXBean getPoolMXBean() {
+    return dataSource instanceof HikariDataSource
+      ? ((HikariDataSource)dataSource).getHikariPoolMXBean()
+      : null;
+  }
+
+  /** null if the sql cache is disabled with {@link #CONFIGURATION_NAME_SQL_CACHE_SIZE} 0 */
+  public SqlCache getSqlCache() {
+    return sqlCache;
+  }
 }
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+/** Receives the timings of a {@link Db}.  Configure a custom
+ * implementation with {@link Db#metrics(DbMetrics)} to forward them to
+ * a metrics library.  The default is {@link InMemoryDbMetrics}.
+ * Implementations are called on the statement execution path by
+ * many threads concurrently, so they must be thread safe and fast. */
+public interface DbMetrics {
+
+  /** time it took to get a connection from the pool */
+  void recordConnectionAcquire(long nanos);
+
+  /** time from the start of the tx till after the commit or rollback */
+  void recordTx(long nanos, boolean committed);
+
+  /** execution time of a statement.  The statementShape is the
+   * statement type and the table, eg "Select users" */
+  void recordStatement(String statementShape, long nanos);
+
+  /** a failed attempt of a transaction is retried, see {@link TxOptions#retry(int)} */
+  void recordTxRetry();
+
+  /** end of a transaction that was retried at least once.
+   * @param millisSinceFirstFailure time from the first failure till the end of the last attempt */
+  void recordRetriedTx(boolean succeeded, long millisSinceFirstFailure);
+}
@@ -34,14 +34,26 @@ public class Delete extends Statement {
   }
 
   public int execute() {
+    tx.invalidateEntityCache(table, getWherePrimaryKeyValue(table));
     return executeUpdate();
   }
 
+  /** The plan the database chooses for this delete, see {@link QueryPlan} */
+  public QueryPlan explain() {
+    return explainPlan();
+  }
+
   @Override
   protected SqlBuilder createSqlBuilder() {
     return getDialect().newDeleteSql(this);
   }
 
+  @Override
+  protected void collectShape(StatementShape shape) {
+    collectTableShape(shape, table);
+    collectWhereShape(shape);
+  }
+
   @Override
   public Delete where(Condition whereCondition) {
     return (Delete) super.where(whereCondition);
@@ -55,4 +67,9 @@ public class Delete extends Statement {
   public Table getTable() {
     return table;
   }
+
+  @Override
+  protected Table getMetricsTable() {
+    return table;
+  }
 }
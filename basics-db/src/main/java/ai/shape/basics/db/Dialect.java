@@ -18,6 +18,16 @@
  */
 package ai.shape.basics.db;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static ai.shape.basics.util.Exceptions.exceptionWithCause;
+
 public class Dialect {
 
   public void initializeTable(Table table) {
@@ -36,6 +46,68 @@ public class Dialect {
     return type.getSql();
   }
 
+  /** Upper limit for the number of ? parameters in a single statement.
+   * Used to limit the number of VALUES tuples in a {@link BatchInsert}. */
+  public int getMaxParametersPerStatement() {
+    return Integer.MAX_VALUE;
+  }
+
+  /** True if a column can be compared with an array parameter
+   * with column = ANY(?), see {@link ai.shape.basics.db.conditions.InCondition} */
+  public boolean supportsArrayParameters() {
+    return false;
+  }
+
+  /** True if tables can be created concurrently on separate connections,
+   * see {@link ai.shape.basics.db.schema.SchemaManager#parallelism(int)} */
+  public boolean supportsConcurrentDdl() {
+    return false;
+  }
+
+  /** Configures the prepared statement so that results are fetched in chunks
+   * of fetchSize rows instead of loading the full result in memory.
+   * PostgreSQL only does that with autocommit off, which is always
+   * the case for the connections of a {@link Tx}. */
+  public void setFetchSize(Connection connection, PreparedStatement jdbcStatement, int fetchSize) {
+    try {
+      jdbcStatement.setFetchSize(fetchSize);
+    } catch (SQLException e) {
+      throw exceptionWithCause("set JDBC fetch size "+fetchSize, e);
+    }
+  }
+
+  /** True if the exception or one of its causes is a {@link SQLException}
+   * for which the transaction can be retried, see {@link TxOptions#retry(int)}. */
+  public boolean isRetryable(Throwable exception) {
+    for (Throwable cause = exception; cause!=null; cause = cause.getCause()!=cause ? cause.getCause() : null) {
+      if (cause instanceof SQLException) {
+        for (SQLException sqlException = (SQLException) cause; sqlException!=null; sqlException = sqlException.getNextException()) {
+          if (isRetryable(sqlException)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /** SQLState class 40 is transaction rollback, which includes
+   * serialization failures (40001) and deadlocks (eg 40P01 in PostgreSQL). */
+  protected boolean isRetryable(SQLException sqlException) {
+    String sqlState = sqlException.getSQLState();
+    return sqlState!=null && sqlState.startsWith("40");
+  }
+
+  /** The statement that returns the plan of the given sql */
+  public String getExplainSql(String sql) {
+    return "EXPLAIN "+sql;
+  }
+
+  /** The base dialect only keeps the plan text */
+  public QueryPlan parseQueryPlan(String planText) {
+    return new QueryPlan(planText);
+  }
+
   // CREATE TABLE //////////////////////////////////////////////////////////////////////////////////////////
 
   public SqlBuilder newCreateTableSql(CreateTable createTable) {
@@ -60,6 +132,54 @@ public class Dialect {
     return new AlterTableAddForeignKeySql(alterTableAddForeignKey);
   }
 
+  // CREATE INDEX //////////////////////////////////////////////////////////////////////////////////////////
+
+  public SqlBuilder newCreateIndexSql(CreateIndex createIndex) {
+    return new CreateIndexSql(createIndex);
+  }
+
+  /** True if indexes can be created without blocking writes, see {@link CreateIndex#concurrently()} */
+  public boolean supportsCreateIndexConcurrently() {
+    return false;
+  }
+
+  /** Lower case names of the indexes on the table that exist but can't be
+   * used, like the ones a failed {@link CreateIndex#concurrently()} leaves */
+  public Set<String> getInvalidIndexNames(Tx tx, Table table) {
+    return Collections.emptySet();
+  }
+
+  /** True if {@link Index#gin()} indexes can be created */
+  public boolean supportsGinIndexes() {
+    return false;
+  }
+
+  // JSON //////////////////////////////////////////////////////////////////////////////////////////
+
+  /** True if {@link ai.shape.basics.db.conditions.JsonPathEqualCondition} and
+   * {@link ai.shape.basics.db.conditions.JsonContainsCondition} are supported */
+  public boolean supportsJsonConditions() {
+    return false;
+  }
+
+  /** Appends the expression for the text value at the path in the JSON column,
+   * see {@link ai.shape.basics.db.conditions.JsonPathEqualCondition} */
+  public void appendJsonPathText(SqlBuilder sql, String columnSql, List<String> path) {
+    throw new RuntimeException("JSON path conditions are not supported by "+getClass().getSimpleName());
+  }
+
+  /** Appends the condition that the JSON column contains the JSON parameter,
+   * see {@link ai.shape.basics.db.conditions.JsonContainsCondition} */
+  public void appendJsonContains(SqlBuilder sql, Column column, String columnSql) {
+    throw new RuntimeException("JSON contains conditions are not supported by "+getClass().getSimpleName());
+  }
+
+  // DROP INDEX //////////////////////////////////////////////////////////////////////////////////////////
+
+  public SqlBuilder newDropIndexSql(DropIndex dropIndex) {
+    return new DropIndexSql(dropIndex);
+  }
+
   // DROP TABLE //////////////////////////////////////////////////////////////////////////////////////////
 
   public SqlBuilder newDropTableSql(DropTable dropTable) {
@@ -76,6 +196,19 @@ public class Dialect {
     return new InsertSql(insert);
   }
 
+  public SqlBuilder newBatchInsertSql(BatchInsert batchInsert, int rowCount) {
+    return new BatchInsertSql(batchInsert, rowCount);
+  }
+
+  /** The base dialect doesn't support upserts */
+  public SqlBuilder newUpsertSql(Upsert upsert) {
+    throw new RuntimeException("Upsert is not supported by "+getClass().getSimpleName());
+  }
+
+  public SqlBuilder newBatchUpsertSql(BatchUpsert batchUpsert, int rowCount) {
+    throw new RuntimeException("Upsert is not supported by "+getClass().getSimpleName());
+  }
+
   public SqlBuilder newUpdateSql(Update update) {
     return new UpdateSql(update);
   }
@@ -83,4 +216,19 @@ public class Dialect {
   public SqlBuilder newDeleteSql(Delete delete) {
     return new DeleteSql(delete);
   }
+
+  // BULK LOAD //////////////////////////////////////////////////////////////////////////////////////////
+
+  /** Loads the rows with a {@link BatchInsert}.  Dialects override
+   * this to use the native bulk loader of the database.
+   * @return the number of loaded rows */
+  public long bulkLoad(BulkLoad bulkLoad, Iterator<Object[]> rows) {
+    BatchInsert batchInsert = bulkLoad.getTx()
+      .newBatchInsert(bulkLoad.getTable())
+      .columns(bulkLoad.getColumns().toArray(new Column[0]));
+    while (rows.hasNext()) {
+      batchInsert.row(rows.next());
+    }
+    return batchInsert.execute();
+  }
 }
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ai.shape.basics.util.Exceptions.assertNotNull;
+import static ai.shape.basics.util.Exceptions.assertNotNullParameter;
+import static ai.shape.basics.util.Exceptions.assertTrue;
+
+/**
+ * Bounded cache of the rows of one {@link Table} by primary key.
+ *
+ * Configure with {@link Db#entityCache(Table, int, long)}.  Selects of all
+ * the columns with only a where primary key = value condition are served
+ * from the cache and fill it.  {@link Update}s, {@link Delete}s and
+ * inserts on the table invalidate the rows when the {@link Tx} commits.
+ * Within a transaction that modified the table, the cache is bypassed.
+ *
+ * When the cache is full, the least recently used row is evicted.
+ * Rows older than the time to live are removed when they are accessed.
+ * One cache is shared by all transactions of a {@link Db}.
+ */
+public class EntityCache {
+
+  /** Key used in the {@link Tx} to indicate that all rows of the table are invalidated */
+  static final Object ALL_ROWS = new Object();
+
+  protected Table table;
+  protected Column primaryKeyColumn;
+  protected int maxSize;
+  protected long timeToLiveMillis;
+  /** guarded by synchronized(this) */
+  protected LinkedHashMap<Object,Entry> entries;
+  /** incremented on each invalidation so that rows that were loaded
+   * before the invalidation are not put in the cache.  guarded by synchronized(this) */
+  protected long generation = 0;
+
+  protected AtomicLong hits = new AtomicLong();
+  protected AtomicLong misses = new AtomicLong();
+  protected AtomicLong evictions = new AtomicLong();
+  protected AtomicLong expirations = new AtomicLong();
+  protected AtomicLong loads = new AtomicLong();
+  protected AtomicLong loadNanos = new AtomicLong();
+
+  protected static class Entry {
+    /** values indexed by {@link Column#getIndex()} */
+    Object[] values;
+    long expirationMillis;
+    Entry(Object[] values, long expirationMillis) {
+      this.values = values;
+      this.expirationMillis = expirationMillis;
+    }
+  }
+
+  public EntityCache(Table table, int maxSize, long timeToLiveMillis) {
+    assertNotNullParameter(table, "table");
+    assertTrue(maxSize>0, "maxSize must be positive: %d", maxSize);
+    assertTrue(timeToLiveMillis>0, "timeToLiveMillis must be positive: %d", timeToLiveMillis);
+    this.table = table;
+    this.primaryKeyColumn = table.getPrimaryKeyColumn();
+    assertNotNull(primaryKeyColumn, "No primary key found in %s", table);
+    this.maxSize = maxSize;
+    this.timeToLiveMillis = timeToLiveMillis;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /** Returns the cached values indexed by {@link Column#getIndex()} or null
+   * and updates the hit and miss counters. */
+  public Object[] get(Object primaryKey) {
+    Object key = toKey(primaryKey);
+    Object[] values = null;
+    synchronized (this) {
+      Entry entry = entries.get(key);
+      if (entry!=null) {
+        if (entry.expirationMillis>System.currentTimeMillis()) {
+          values = entry.values;
+        } else {
+          entries.remove(key);
+          expirations.incrementAndGet();
+        }
+      }
+    }
+    if (values!=null) {
+      hits.incrementAndGet();
+    } else {
+      misses.incrementAndGet();
+    }
+    return values;
+  }
+
+  /** The generation has to be obtained before the row is loaded from the database. */
+  public synchronized long getGeneration() {
+    return generation;
+  }
+
+  /** Only puts the row if there was no invalidation since the generation was obtained */
+  public void put(Object primaryKey, Object[] values, long loadGeneration) {
+    Object key = toKey(primaryKey);
+    synchronized (this) {
+      if (loadGeneration!=generation) {
+        return;
+      }
+      entries.put(key, new Entry(values, System.currentTimeMillis()+timeToLiveMillis));
+      Iterator<Entry> iterator = entries.values().iterator();
+      while (entries.size()>maxSize && iterator.hasNext()) {
+        iterator.next();
+        iterator.remove();
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+  public synchronized void invalidate(Object primaryKey) {
+    generation++;
+    entries.remove(toKey(primaryKey));
+  }
+
+  public synchronized void invalidateAll() {
+    generation++;
+    entries.clear();
+  }
+
+  void recordLoad(long nanos) {
+    loads.incrementAndGet();
+    loadNanos.addAndGet(nanos);
+  }
+
+  /** Numbers are normalized so that eg an Integer and a Long primary key value are the same key */
+  static Object toKey(Object primaryKey) {
+    if (primaryKey instanceof Integer
+        || primaryKey instanceof Long
+        || primaryKey instanceof Short
+        || primaryKey instanceof Byte) {
+      return ((Number)primaryKey).longValue();
+    }
+    return primaryKey;
+  }
+
+  public Table getTable() {
+    return table;
+  }
+
+  public Column getPrimaryKeyColumn() {
+    return primaryKeyColumn;
+  }
+
+  public synchronized int getSize() {
+    return entries.size();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public long getTimeToLiveMillis() {
+    return timeToLiveMillis;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /** hits / (hits + misses) or 0 if there were no lookups */
+  public double getHitRatio() {
+    long hits = this.hits.get();
+    long lookups = hits + misses.get();
+    return lookups>0 ? (double) hits / lookups : 0;
+  }
+
+  /** number of rows removed because the cache was full */
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  /** number of rows removed because the time to live passed */
+  public long getExpirations() {
+    return expirations.get();
+  }
+
+  /** number of rows that were loaded from the database on a miss */
+  public long getLoads() {
+    return loads.get();
+  }
+
+  /** average time in nanoseconds to load a row from the database on a miss */
+  public long getAverageLoadNanos() {
+    long loads = this.loads.get();
+    return loads>0 ? loadNanos.get() / loads : 0;
+  }
+}
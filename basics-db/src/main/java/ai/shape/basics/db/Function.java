@@ -19,6 +19,7 @@
 package ai.shape.basics.db;
 
 import java.util.List;
+import java.util.Objects;
 
 public abstract class Function implements SqlExpression {
 
@@ -41,6 +42,12 @@ public abstract class Function implements SqlExpression {
       sql.appendText(")");
     }
 
+    @Override
+    public void collectShape(StatementShape shape) {
+      shape.add("lower(");
+      expression.collectShape(shape);
+    }
+
     @Override
     public DataType getType() {
       return expression.getType();
@@ -51,4 +58,71 @@ public abstract class Function implements SqlExpression {
       expression.collectTables(fieldTables);
     }
   }
+
+  /** sum, avg, min, max and count(distinct ...) aggregates.
+   * Equal aggregates can be used as key in {@link SelectResults#get(SqlExpression)}. */
+  public static class Aggregate extends Function {
+    String name;
+    SqlExpression expression;
+    boolean distinct;
+    /** null means the type of the expression */
+    DataType type;
+
+    public Aggregate(String name, SqlExpression expression) {
+      this(name, expression, false, null);
+    }
+
+    public Aggregate(String name, SqlExpression expression, boolean distinct, DataType type) {
+      this.name = name;
+      this.expression = expression;
+      this.distinct = distinct;
+      this.type = type;
+    }
+
+    @Override
+    public String getTitle() {
+      return name+"("+(distinct ? "distinct " : "")+expression.getTitle()+")";
+    }
+
+    @Override
+    public void appendFieldSql(SqlBuilder sql, Statement statement) {
+      sql.appendText(name+"("+(distinct ? "DISTINCT " : ""));
+      expression.appendFieldSql(sql, statement);
+      sql.appendText(")");
+    }
+
+    @Override
+    public void collectShape(StatementShape shape) {
+      shape.add(name+"(");
+      if (distinct) {
+        shape.add("distinct");
+      }
+      expression.collectShape(shape);
+    }
+
+    @Override
+    public DataType getType() {
+      return type!=null ? type : expression.getType();
+    }
+
+    @Override
+    public void collectTables(List<Table> fieldTables) {
+      expression.collectTables(fieldTables);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this==other) return true;
+      if (other==null || getClass()!=other.getClass()) return false;
+      Aggregate aggregate = (Aggregate) other;
+      return distinct==aggregate.distinct
+        && Objects.equals(name, aggregate.name)
+        && Objects.equals(expression, aggregate.expression);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(name, expression, distinct);
+    }
+  }
 }
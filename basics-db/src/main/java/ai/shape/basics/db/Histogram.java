@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Lock-free histogram of durations in nanoseconds.
+ * Bucket i counts the durations between 2^(i-1) and 2^i nanos, so
+ * percentiles are accurate up to a factor 2, which is enough to
+ * spot slow statements without any locking on the recording path. */
+public class Histogram {
+
+  protected static final int BUCKETS = 64;
+
+  protected AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  protected LongAdder count = new LongAdder();
+  protected LongAdder totalNanos = new LongAdder();
+  protected AtomicLong maxNanos = new AtomicLong();
+
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    buckets.incrementAndGet(getBucketIndex(value));
+    count.increment();
+    totalNanos.add(value);
+    long max = maxNanos.get();
+    while (value>max && !maxNanos.compareAndSet(max, value)) {
+      max = maxNanos.get();
+    }
+  }
+
+  /** 0 for 0, 1 for 1, 2 for 2-3, 3 for 4-7, ... */
+  protected static int getBucketIndex(long nanos) {
+    return Math.min(BUCKETS-1, BUCKETS - Long.numberOfLeadingZeros(nanos));
+  }
+
+  protected static long getBucketUpperBound(int bucketIndex) {
+    return bucketIndex==0 ? 0 : bucketIndex>=BUCKETS-1 ? Long.MAX_VALUE : (1L<<bucketIndex)-1;
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getTotalNanos() {
+    return totalNanos.sum();
+  }
+
+  public long getMaxNanos() {
+    return maxNanos.get();
+  }
+
+  public long getMeanNanos() {
+    long count = getCount();
+    return count>0 ? getTotalNanos()/count : 0;
+  }
+
+  /** Upper bound of the bucket that contains the given percentile,
+   * eg getPercentileNanos(0.99) for the p99.  0 if nothing was recorded. */
+  public long getPercentileNanos(double percentile) {
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i=0; i<BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    if (total==0) {
+      return 0;
+    }
+    long threshold = (long) Math.ceil(Math.min(1d, Math.max(0d, percentile)) * total);
+    long seen = 0;
+    for (int i=0; i<BUCKETS; i++) {
+      seen += counts[i];
+      if (seen>=threshold && counts[i]>0) {
+        return Math.min(getMaxNanos(), getBucketUpperBound(i));
+      }
+    }
+    return getMaxNanos();
+  }
+
+  public String toString() {
+    return "count="+getCount()+" mean="+getMeanNanos()/1000+"us p99="+getPercentileNanos(0.99)/1000+"us max="+getMaxNanos()/1000+"us";
+  }
+}
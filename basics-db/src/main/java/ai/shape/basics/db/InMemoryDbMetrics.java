@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Default {@link DbMetrics} that keeps a {@link Histogram}
+ * for each of the timings in memory. */
+public class InMemoryDbMetrics implements DbMetrics {
+
+  protected Histogram connectionAcquires = new Histogram();
+  protected Histogram commits = new Histogram();
+  protected Histogram rollbacks = new Histogram();
+  protected Map<String,Histogram> statements = new ConcurrentHashMap<>();
+  protected TxRetryMetrics txRetries = new TxRetryMetrics();
+
+  @Override
+  public void recordConnectionAcquire(long nanos) {
+    connectionAcquires.record(nanos);
+  }
+
+  @Override
+  public void recordTx(long nanos, boolean committed) {
+    (committed ? commits : rollbacks).record(nanos);
+  }
+
+  @Override
+  public void recordStatement(String statementShape, long nanos) {
+    Histogram histogram = statements.get(statementShape);
+    if (histogram==null) {
+      histogram = statements.computeIfAbsent(statementShape, shape->new Histogram());
+    }
+    histogram.record(nanos);
+  }
+
+  @Override
+  public void recordTxRetry() {
+    txRetries.recordRetry();
+  }
+
+  @Override
+  public void recordRetriedTx(boolean succeeded, long millisSinceFirstFailure) {
+    txRetries.recordRetriedTransaction(succeeded, millisSinceFirstFailure);
+  }
+
+  public Histogram getConnectionAcquires() {
+    return connectionAcquires;
+  }
+
+  /** durations of the transactions that committed */
+  public Histogram getCommits() {
+    return commits;
+  }
+
+  /** durations of the transactions that rolled back */
+  public Histogram getRollbacks() {
+    return rollbacks;
+  }
+
+  /** null if no statement with the given shape was executed */
+  public Histogram getStatement(String statementShape) {
+    return statements.get(statementShape);
+  }
+
+  /** statement execution times by statement shape, eg "Select users" */
+  public Map<String,Histogram> getStatements() {
+    return Collections.unmodifiableMap(statements);
+  }
+
+  public TxRetryMetrics getTxRetries() {
+    return txRetries;
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ai.shape.basics.util.Exceptions.assertNotNull;
+import static ai.shape.basics.util.Exceptions.assertSame;
+import static ai.shape.basics.util.Exceptions.assertTrue;
+
+/**
+ * Secondary index of a {@link Table}, created with the table by
+ * {@link CreateTable} and added to existing tables by the
+ * {@link ai.shape.basics.db.schema.SchemaManager}.
+ *
+ * new Index()
+ *   .column(EMAIL)
+ *   .unique()
+ *   .where("deleted IS NULL")
+ *   .include(NAME)
+ *
+ * A {@link #where(String) partial} index is only supported on PostgreSQL.
+ * On the other databases, a non unique partial index indexes all rows
+ * and a unique one fails.  {@link #include(Column...) Included} columns
+ * are only added on PostgreSQL and ignored elsewhere.  {@link #gin() GIN}
+ * indexes are only created on PostgreSQL.
+ */
+public class Index {
+
+  protected String name;
+  protected Table table;
+  protected List<Column> columns = new ArrayList<>();
+  protected boolean unique;
+  protected String whereSql;
+  protected List<Column> includeColumns = new ArrayList<>();
+  protected boolean gin;
+
+  /** Default is idx_[table]_[columns] */
+  public Index name(String name) {
+    this.name = name;
+    return this;
+  }
+
+  public Index column(Column column) {
+    assertColumnOfTable(column);
+    columns.add(column);
+    return this;
+  }
+
+  public Index columns(Column... columns) {
+    for (Column column: columns) {
+      column(column);
+    }
+    return this;
+  }
+
+  public Index unique() {
+    this.unique = true;
+    return this;
+  }
+
+  /** Only indexes the rows that match the SQL predicate */
+  public Index where(String whereSql) {
+    this.whereSql = whereSql;
+    return this;
+  }
+
+  /** Columns that are stored in the index, but are not part of the key,
+   * so that selects of only those columns don't have to read the table. */
+  public Index include(Column... includeColumns) {
+    for (Column includeColumn: includeColumns) {
+      assertColumnOfTable(includeColumn);
+      this.includeColumns.add(includeColumn);
+    }
+    return this;
+  }
+
+  /** GIN index for {@link Condition#jsonContains(Column, Object)} on
+   * JSONB columns.  Only created on dialects that
+   * {@link Dialect#supportsGinIndexes() support it}, skipped elsewhere. */
+  public Index gin() {
+    this.gin = true;
+    return this;
+  }
+
+  protected void assertColumnOfTable(Column column) {
+    assertNotNull(column.getTable(), "Column %s isn't added to the table.", column.getName());
+    if (table==null) {
+      table = column.getTable();
+    }
+    assertSame(table, column.getTable(), "Index columns must be from the same table");
+  }
+
+  /** called by {@link Table#index(Index)} */
+  void setTable(Table table) {
+    assertTrue(this.table==null || this.table==table, "Index columns must be from table %s", table.getName());
+    assertTrue(!columns.isEmpty(), "Index requires at least one column");
+    this.table = table;
+  }
+
+  public String getName() {
+    if (name!=null) {
+      return name;
+    }
+    StringBuilder defaultName = new StringBuilder("idx_"+table.getName());
+    columns.forEach(column->defaultName.append("_"+column.getName()));
+    return defaultName.toString();
+  }
+
+  public Table getTable() {
+    return table;
+  }
+
+  public List<Column> getColumns() {
+    return columns;
+  }
+
+  public boolean isUnique() {
+    return unique;
+  }
+
+  /** null if all rows are indexed */
+  public String getWhereSql() {
+    return whereSql;
+  }
+
+  public List<Column> getIncludeColumns() {
+    return includeColumns;
+  }
+
+  public boolean isGin() {
+    return gin;
+  }
+
+  @Override
+  public String toString() {
+    return "Index(" + getName() + ")";
+  }
+}
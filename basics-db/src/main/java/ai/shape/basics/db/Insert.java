@@ -33,10 +33,28 @@ public class Insert extends Statement {
     return table;
   }
 
+  @Override
+  protected Table getMetricsTable() {
+    return table;
+  }
+
   public int execute() {
+    invalidateEntityCache();
     return executeUpdate();
   }
 
+  /** A row that didn't exist can't be in the entity cache, but the key is
+   * invalidated anyway in case the row was deleted and inserted again.
+   * Without the primary key value, there's nothing to invalidate. */
+  protected void invalidateEntityCache() {
+    Column primaryKeyColumn = table.getPrimaryKeyColumn();
+    for (ColumnValue columnValue: columnValues) {
+      if (columnValue.getColumn()==primaryKeyColumn) {
+        tx.invalidateEntityCache(table, columnValue.getValue());
+      }
+    }
+  }
+
   public static class ColumnValue {
     Column column;
     Object value;
@@ -77,6 +95,12 @@ public class Insert extends Statement {
       .forEach(columnValue ->addParameter(columnValue.getValue(), columnValue.getColumn().getType()));
   }
 
+  @Override
+  protected void collectShape(StatementShape shape) {
+    shape.add(table);
+    columnValues.forEach(columnValue->shape.add(columnValue.getColumn()));
+  }
+
   protected String getPastTense() {
     return "Inserted";
   }
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.util.List;
+
+/** Rows of one page of a keyset paginated select, see {@link SelectResults#getPage(java.util.function.Function)} */
+public class Page<T> {
+
+  protected List<T> rows;
+  protected String continuationToken;
+
+  public Page(List<T> rows, String continuationToken) {
+    this.rows = rows;
+    this.continuationToken = continuationToken;
+  }
+
+  public List<T> getRows() {
+    return rows;
+  }
+
+  /** Token to pass to {@link Select#seekToken(String)} for the next page
+   * or null if this is the last page. */
+  public String getContinuationToken() {
+    return continuationToken;
+  }
+
+  public boolean hasNext() {
+    return continuationToken!=null;
+  }
+}
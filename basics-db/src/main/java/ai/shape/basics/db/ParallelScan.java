@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static ai.shape.basics.db.Condition.and;
+import static ai.shape.basics.db.Condition.gte;
+import static ai.shape.basics.db.Condition.lt;
+import static ai.shape.basics.util.Exceptions.assertNotNull;
+import static ai.shape.basics.util.Exceptions.assertNotNullParameter;
+import static ai.shape.basics.util.Exceptions.assertTrue;
+import static ai.shape.basics.util.Exceptions.exceptionWithCause;
+
+/**
+ * Reads a whole table with multiple selects in parallel, eg for exports
+ * and reindexing.
+ *
+ * The min and max of the numeric key column split the table in key
+ * ranges of equal width.  Each range is read with a streaming select
+ * in its own read-only transaction, so on its own pooled connection
+ * (or replica).  The rows are mapped on the scanning threads and handed
+ * to the consumer on the calling thread through a bounded queue.  So
+ * the consumer doesn't need to be thread safe and when it can't keep up,
+ * the scanning threads block, which stops fetching from the database.
+ *
+ * There are more partitions than threads by default so that ranges
+ * with few rows, eg because of gaps in the keys, don't leave threads idle.
+ */
+public class ParallelScan {
+
+  static Logger log = LoggerFactory.getLogger(ParallelScan.class);
+
+  public static final int DEFAULT_FETCH_SIZE = 1000;
+  public static final int DEFAULT_QUEUE_SIZE = 1000;
+  static final int PARTITIONS_PER_THREAD = 4;
+  static final long QUEUE_TIMEOUT_MILLIS = 100;
+
+  protected Db db;
+  protected Table table;
+  protected Column keyColumn;
+  protected List<SqlExpression> fields = new ArrayList<>();
+  protected Condition whereCondition;
+  protected int parallelism;
+  protected Integer partitions;
+  protected int fetchSize = DEFAULT_FETCH_SIZE;
+  protected int queueSize = DEFAULT_QUEUE_SIZE;
+  /** null means a thread pool is created for each scan */
+  protected Executor executor;
+
+  public ParallelScan(Db db, Table table) {
+    assertNotNullParameter(db, "db");
+    assertNotNullParameter(table, "table");
+    this.db = db;
+    this.table = table;
+    this.keyColumn = table.getPrimaryKeyColumn();
+    this.parallelism = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), db.getMaximumPoolSize()));
+  }
+
+  /** Numeric column on which the table is split in ranges.  Default is the primary key. */
+  public ParallelScan keyColumn(Column keyColumn) {
+    assertNotNullParameter(keyColumn, "keyColumn");
+    this.keyColumn = keyColumn;
+    return this;
+  }
+
+  /** Default is all columns of the table */
+  public ParallelScan fields(SqlExpression... fields) {
+    for (SqlExpression field: fields) {
+      this.fields.add(field);
+    }
+    return this;
+  }
+
+  /** Only scans the rows that match the condition */
+  public ParallelScan where(Condition whereCondition) {
+    this.whereCondition = whereCondition;
+    return this;
+  }
+
+  /** Number of ranges scanned concurrently.  Default is the number
+   * of processors, capped by the maximum pool size. */
+  public ParallelScan parallelism(int parallelism) {
+    assertTrue(parallelism>0, "parallelism must be positive: %d", parallelism);
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /** Number of key ranges.  Default is {@value #PARTITIONS_PER_THREAD} times the parallelism. */
+  public ParallelScan partitions(int partitions) {
+    assertTrue(partitions>0, "partitions must be positive: %d", partitions);
+    this.partitions = partitions;
+    return this;
+  }
+
+  public ParallelScan fetchSize(int fetchSize) {
+    assertTrue(fetchSize>0, "fetchSize must be positive: %d", fetchSize);
+    this.fetchSize = fetchSize;
+    return this;
+  }
+
+  /** Max number of mapped rows that wait for the consumer */
+  public ParallelScan queueSize(int queueSize) {
+    assertTrue(queueSize>0, "queueSize must be positive: %d", queueSize);
+    this.queueSize = queueSize;
+    return this;
+  }
+
+  /** Executor on which the ranges are scanned, eg a fork join pool.
+   * Default is a thread pool with the parallelism that is shut down
+   * after the scan. */
+  public ParallelScan executor(Executor executor) {
+    assertNotNullParameter(executor, "executor");
+    this.executor = executor;
+    return this;
+  }
+
+  /** Scans the table and passes the mapped rows to the consumer on
+   * the calling thread.  The order of the rows is undefined.
+   * @return the number of rows consumed */
+  public <T> long execute(Function<SelectResults,T> mapper, Consumer<T> consumer) {
+    assertNotNullParameter(mapper, "mapper");
+    assertNotNullParameter(consumer, "consumer");
+    assertNotNull(keyColumn, "ParallelScan requires a keyColumn as table %s has no primary key", table.getName());
+
+    List<long[]> ranges = getRanges();
+    if (ranges.isEmpty()) {
+      return 0;
+    }
+
+    BlockingQueue<T> queue = new ArrayBlockingQueue<>(queueSize);
+    AtomicInteger remainingPartitions = new AtomicInteger(ranges.size());
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    ExecutorService ownExecutor = executor==null ? createExecutor() : null;
+    Executor scanExecutor = executor!=null ? executor : ownExecutor;
+    long rowCount = 0;
+    try {
+      for (long[] range: ranges) {
+        scanExecutor.execute(()->scanRange(range, mapper, queue, remainingPartitions, failure));
+      }
+      // rows are offered before the partition is counted as ended,
+      // so when all partitions ended, the queue has all remaining rows
+      while (remainingPartitions.get()>0 || !queue.isEmpty()) {
+        T row = queue.poll(QUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        if (row!=null && failure.get()==null) {
+          try {
+            consumer.accept(row);
+            rowCount++;
+          } catch (RuntimeException e) {
+            // the scanning threads stop when they see the failure
+            failure.compareAndSet(null, e);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure.compareAndSet(null, e);
+    } finally {
+      if (ownExecutor!=null) {
+        ownExecutor.shutdown();
+      }
+    }
+
+    Throwable exception = failure.get();
+    if (exception!=null) {
+      throw exception instanceof RuntimeException
+        ? (RuntimeException) exception
+        : exceptionWithCause("parallel scan of "+table.getName(), exception);
+    }
+    log.debug("Scanned "+rowCount+" rows of "+table.getName()+" in "+ranges.size()+" partitions");
+    return rowCount;
+  }
+
+  /** The [from, to) key ranges.  The last range has no upper bound
+   * and includes the rows inserted after the max was read. */
+  protected List<long[]> getRanges() {
+    SqlExpression min = SqlExpression.min(keyColumn);
+    SqlExpression max = SqlExpression.max(keyColumn);
+    Number[] minMax = db.tx(new TxOptions().readOnly(), tx->{
+      Select select = tx.newSelect(min, max).from(table);
+      if (whereCondition!=null) {
+        select.where(whereCondition);
+      }
+      try (SelectResults results = select.execute()) {
+        tx.setResult(results
+          .getFirst(row->new Number[]{row.get(min), row.get(max)})
+          .get());
+      }
+    });
+    List<long[]> ranges = new ArrayList<>();
+    if (minMax[0]==null || minMax[1]==null) {
+      return ranges;
+    }
+    long from = minMax[0].longValue();
+    long to = minMax[1].longValue();
+    int partitions = this.partitions!=null ? this.partitions : parallelism*PARTITIONS_PER_THREAD;
+    // divided separately to avoid overflow
+    long width = Math.max(1, to/partitions - from/partitions + 1);
+    long rangeFrom = from;
+    while (true) {
+      long rangeTo = rangeFrom + width;
+      boolean isLast = rangeTo>to || rangeTo<rangeFrom;
+      ranges.add(new long[]{rangeFrom, isLast ? Long.MAX_VALUE : rangeTo});
+      if (isLast) {
+        return ranges;
+      }
+      rangeFrom = rangeTo;
+    }
+  }
+
+  protected <T> void scanRange(long[] range, Function<SelectResults,T> mapper, BlockingQueue<T> queue, AtomicInteger remainingPartitions, AtomicReference<Throwable> failure) {
+    try {
+      db.tx(new TxOptions().readOnly(), tx->{
+        // a fresh and condition per range because Statement.where adds to
+        // an and condition, which would mutate the shared whereCondition
+        Select select = tx.newSelect()
+          .fields(fields)
+          .from(table)
+          .where(and(
+            gte(keyColumn, range[0]),
+            range[1]!=Long.MAX_VALUE ? lt(keyColumn, range[1]) : null,
+            whereCondition))
+          .fetchSize(fetchSize);
+        try (Stream<T> rows = select.execute().stream(mapper)) {
+          Iterator<T> iterator = rows.iterator();
+          while (failure.get()==null && iterator.hasNext()) {
+            T row = iterator.next();
+            while (!queue.offer(row, QUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+              if (failure.get()!=null) {
+                return;
+              }
+            }
+          }
+        }
+      });
+    } catch (Throwable e) {
+      failure.compareAndSet(null, e);
+    } finally {
+      remainingPartitions.decrementAndGet();
+    }
+  }
+
+  protected ExecutorService createExecutor() {
+    AtomicInteger nextThreadIndex = new AtomicInteger(1);
+    return Executors.newFixedThreadPool(parallelism, runnable->{
+      Thread thread = new Thread(runnable, "scan-"+table.getName()+"-"+nextThreadIndex.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ai.shape.basics.util.Exceptions.assertNotNullParameter;
+import static ai.shape.basics.util.Exceptions.assertTrue;
+import static ai.shape.basics.util.Exceptions.exceptionWithCause;
+
+/**
+ * A {@link Select}, {@link Update}, {@link Insert} or {@link Delete} that is
+ * declared once and then executed many times with different parameter values.
+ *
+ * <pre>
+ * static final PreparedQuery FIND_USER_BY_EMAIL = new PreparedQuery(tx -> tx
+ *   .newSelect(UsersTable.TABLE)
+ *   .where(equal(Columns.EMAIL, parameter("email"))));
+ *
+ * Optional&lt;User&gt; user = FIND_USER_BY_EMAIL
+ *   .with(tx)
+ *   .set("email", email)
+ *   .select()
+ *   .getFirst(selectResults -> ...);
+ * </pre>
+ *
+ * The statement is defined and its SQL is generated in the first execution.
+ * Next executions only bind the parameter values.  As the SQL text is always
+ * the same, prepared statement caches in the driver can be used.
+ *
+ * A {@link #parameter(String)} can be used as the value wherever
+ * a single value can be passed, like in {@link Condition#equal(Column, Object)},
+ * {@link Update#set(Column, Object)} and {@link Insert#set(Column, Object)}.
+ * It can't be used as an element in {@link Condition#in(Column, java.util.Collection)}.
+ *
+ * PreparedQuery's are thread safe.
+ */
+public class PreparedQuery {
+
+  public interface Definition {
+    Statement define(Tx tx);
+  }
+
+  public static class NamedParameter {
+    String name;
+    public NamedParameter(String name) {
+      assertNotNullParameter(name, "name");
+      this.name = name;
+    }
+    public String getName() {
+      return name;
+    }
+    @Override
+    public String toString() {
+      return ":"+name;
+    }
+  }
+
+  /** The statement with its generated sql.  Immutable after creation. */
+  protected static class Compiled {
+    Db db;
+    Statement statement;
+    String sql;
+    List<Parameter> parameters;
+  }
+
+  protected Definition definition;
+  protected volatile Compiled compiled;
+
+  public PreparedQuery(Definition definition) {
+    assertNotNullParameter(definition, "definition");
+    this.definition = definition;
+  }
+
+  /** Placeholder for a value that is provided with {@link Execution#set(String, Object)} */
+  public static NamedParameter parameter(String name) {
+    return new NamedParameter(name);
+  }
+
+  public Execution with(Tx tx) {
+    return new Execution(tx, getCompiled(tx));
+  }
+
+  protected Compiled getCompiled(Tx tx) {
+    Compiled compiled = this.compiled;
+    if (compiled==null || compiled.db!=tx.getDb()) {
+      compiled = compile(tx);
+      this.compiled = compiled;
+    }
+    return compiled;
+  }
+
+  protected Compiled compile(Tx tx) {
+    Statement statement = definition.define(tx);
+    assertTrue(statement instanceof Select
+      || statement instanceof Update
+      || statement instanceof Insert
+      || statement instanceof Delete,
+      "PreparedQuery only supports select, update, insert and delete: %s", statement);
+    if (statement instanceof Select) {
+      ((Select)statement).initializeFieldsAndAliases();
+    }
+    statement.collectParameters();
+    SqlBuilder sql = statement.createSqlBuilder();
+    try {
+      sql.buildSqlNew();
+    } catch (Exception e) {
+      throw exceptionWithCause("build prepared query SQL \n"+sql.getDebugInfo(), e);
+    }
+    Compiled compiled = new Compiled();
+    compiled.db = tx.getDb();
+    compiled.statement = statement;
+    compiled.sql = sql.getSql();
+    compiled.parameters = statement.parameters!=null ? new ArrayList<>(statement.parameters) : new ArrayList<>();
+    return compiled;
+  }
+
+  /** Binds parameter values for a single execution of a {@link PreparedQuery} */
+  public static class Execution {
+
+    protected Tx tx;
+    protected Compiled compiled;
+    protected Map<String,Object> values = new HashMap<>();
+
+    protected Execution(Tx tx, Compiled compiled) {
+      this.tx = tx;
+      this.compiled = compiled;
+    }
+
+    public Execution set(String name, Object value) {
+      values.put(name, value);
+      return this;
+    }
+
+    public SelectResults select() {
+      assertTrue(compiled.statement instanceof Select, "select() requires a select statement");
+      Select select = (Select) compiled.statement;
+      PreparedStatement jdbcStatement = createPreparedStatement();
+      try {
+        select.configurePreparedStatement(tx, jdbcStatement);
+        long start = System.nanoTime();
+        ResultSet resultSet = jdbcStatement.executeQuery();
+        tx.getDb().recordStatement(tx, compiled.statement.getMetricsShape(), compiled.sql, System.nanoTime()-start);
+        return new SelectResults(select, tx, resultSet, new SqlBuilder(compiled.parameters));
+      } catch (SQLException | RuntimeException e) {
+        // on success, the select results close the statement
+        close(jdbcStatement);
+        throw e instanceof SQLException
+          ? exceptionWithCause("execute prepared query \n"+compiled.sql+"\n-->", e)
+          : (RuntimeException) e;
+      }
+    }
+
+    /** Executes an update, insert or delete and returns the update count */
+    public int update() {
+      assertTrue(!(compiled.statement instanceof Select), "update() requires an update, insert or delete statement");
+      invalidateEntityCache();
+      PreparedStatement jdbcStatement = createPreparedStatement();
+      try {
+        long start = System.nanoTime();
+        int updateCount = jdbcStatement.executeUpdate();
+        tx.getDb().recordStatement(tx, compiled.statement.getMetricsShape(), compiled.sql, System.nanoTime()-start);
+        if (Db.DB_LOGGER.isDebugEnabled()) {
+          Db.DB_LOGGER.debug(tx + " " + compiled.statement.getPastTense() + " " + updateCount + " rows");
+        }
+        return updateCount;
+      } catch (SQLException e) {
+        throw exceptionWithCause("execute prepared query \n"+compiled.sql+"\n-->", e);
+      } finally {
+        close(jdbcStatement);
+      }
+    }
+
+    /** Closes the JDBC statement if binding a parameter value fails */
+    protected PreparedStatement createPreparedStatement() {
+      PreparedStatement jdbcStatement = tx.createPreparedStatement(compiled.sql);
+      try {
+        List<Parameter> parameters = compiled.parameters;
+        StringBuilder parametersLog = tx.isSqlLogEnabled() ? new StringBuilder() : null;
+        for (int i=0; i<parameters.size(); i++) {
+          Parameter parameter = parameters.get(i);
+          Object value = getValue(parameter);
+          parameter.getType().setParameter(jdbcStatement, i+1, value);
+          if (parametersLog!=null) {
+            parametersLog.append(i>0 ? ", " : "\nparameters: ");
+            parametersLog.append(parameter.getType().getLogText(value));
+          }
+        }
+        if (parametersLog!=null) {
+          tx.logSQL(compiled.sql + parametersLog);
+        }
+        return jdbcStatement;
+      } catch (RuntimeException e) {
+        close(jdbcStatement);
+        throw e;
+      }
+    }
+
+    protected void close(PreparedStatement jdbcStatement) {
+      try {
+        jdbcStatement.close();
+      } catch (SQLException e) {
+        Db.DB_LOGGER.error(tx+" prepared query close: " + e.getMessage(), e);
+      }
+    }
+
+    /** Same invalidations as {@link Update#execute()}, {@link Delete#execute()}
+     * and {@link Insert#execute()}, with the parameter values of this execution */
+    protected void invalidateEntityCache() {
+      Statement statement = compiled.statement;
+      if (statement instanceof Update) {
+        Table table = ((Update) statement).table;
+        tx.invalidateEntityCache(table, getValue(statement.getWherePrimaryKeyValue(table)));
+      } else if (statement instanceof Delete) {
+        Table table = ((Delete) statement).table;
+        tx.invalidateEntityCache(table, getValue(statement.getWherePrimaryKeyValue(table)));
+      } else if (statement instanceof Insert) {
+        Insert insert = (Insert) statement;
+        Column primaryKeyColumn = insert.table.getPrimaryKeyColumn();
+        for (Insert.ColumnValue columnValue: insert.columnValues) {
+          if (columnValue.getColumn()==primaryKeyColumn) {
+            tx.invalidateEntityCache(insert.table, getValue(columnValue.getValue()));
+          }
+        }
+      }
+    }
+
+    protected Object getValue(Parameter parameter) {
+      return getValue(parameter.getValue());
+    }
+
+    protected Object getValue(Object value) {
+      if (value instanceof NamedParameter) {
+        String name = ((NamedParameter) value).getName();
+        assertTrue(values.containsKey(name), "No value set for parameter %s", name);
+        return values.get(name);
+      }
+      return value;
+    }
+  }
+}
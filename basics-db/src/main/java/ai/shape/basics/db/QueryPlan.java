@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Summary of the plan that the database chose for a statement,
+ * see {@link Select#explain()}.  Table and index names are lower case
+ * and without schema.
+ */
+public class QueryPlan {
+
+  protected String planText;
+  protected List<String> fullScanTables = new ArrayList<>();
+  protected List<String> indexes = new ArrayList<>();
+  protected Long estimatedRows;
+
+  public QueryPlan(String planText) {
+    this.planText = planText;
+  }
+
+  public QueryPlan fullScan(String tableName) {
+    fullScanTables.add(toName(tableName));
+    return this;
+  }
+
+  public QueryPlan index(String indexName) {
+    indexes.add(toName(indexName));
+    return this;
+  }
+
+  /** Keeps the largest estimate of all plan nodes */
+  public QueryPlan estimatedRows(long estimatedRows) {
+    if (this.estimatedRows==null || estimatedRows>this.estimatedRows) {
+      this.estimatedRows = estimatedRows;
+    }
+    return this;
+  }
+
+  /** lower case and without schema */
+  protected static String toName(String name) {
+    int dotIndex = name.lastIndexOf('.');
+    return (dotIndex!=-1 ? name.substring(dotIndex+1) : name).toLowerCase();
+  }
+
+  /** The string and number values of the given keys in the order they
+   * appear in the JSON plan.  That's sufficient to summarize the plans
+   * without a JSON library as the keys of a plan node precede its children.
+   * @return pairs of key and value */
+  public static List<String[]> getJsonValues(String json, String... keys) {
+    StringBuilder keysRegex = new StringBuilder();
+    for (String key: keys) {
+      keysRegex.append(keysRegex.length()>0 ? "|" : "").append(Pattern.quote(key));
+    }
+    Pattern pattern = Pattern.compile("\"("+keysRegex+")\"\\s*:\\s*(?:\"((?:[^\"\\\\]|\\\\.)*)\"|([-0-9.eE]+))");
+    List<String[]> values = new ArrayList<>();
+    Matcher matcher = pattern.matcher(json);
+    while (matcher.find()) {
+      values.add(new String[]{matcher.group(1), matcher.group(2)!=null ? matcher.group(2) : matcher.group(3)});
+    }
+    return values;
+  }
+
+  public boolean hasFullScan() {
+    return !fullScanTables.isEmpty();
+  }
+
+  public boolean hasFullScan(Table table) {
+    return fullScanTables.contains(toName(table.getName()));
+  }
+
+  /** The plan as returned by the database */
+  public String getPlanText() {
+    return planText;
+  }
+
+  public List<String> getFullScanTables() {
+    return fullScanTables;
+  }
+
+  public List<String> getIndexes() {
+    return indexes;
+  }
+
+  /** null if the database doesn't estimate the rows in the plan */
+  public Long getEstimatedRows() {
+    return estimatedRows;
+  }
+
+  @Override
+  public String toString() {
+    return "QueryPlan(fullScans="+fullScanTables+" indexes="+indexes+" estimatedRows="+estimatedRows+")";
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static ai.shape.basics.util.Exceptions.assertNotNullParameter;
+import static ai.shape.basics.util.Exceptions.assertTrue;
+
+/**
+ * Test helper that explains the registered queries and fails when
+ * a query does a full scan of a large table.
+ *
+ * <pre>
+ * new QueryPlanChecker(db)
+ *   .largeTables(ORDERS, CUSTOMERS)
+ *   .query("ordersOfCustomer", tx->orderDao.newSelectOrdersOfCustomer(tx, "c1"))
+ *   .check();
+ * </pre>
+ *
+ * Tables must be declared large explicitly because on the small
+ * tables of a test database, full scans are often the best plan.
+ * The statements are only explained, not executed.
+ */
+public class QueryPlanChecker {
+
+  protected Db db;
+  protected List<Table> largeTables = new ArrayList<>();
+  protected Map<String,Function<Tx,Statement>> queries = new LinkedHashMap<>();
+  protected Map<String,QueryPlan> plans = new LinkedHashMap<>();
+
+  public QueryPlanChecker(Db db) {
+    assertNotNullParameter(db, "db");
+    this.db = db;
+  }
+
+  /** Tables that must not be fully scanned by any of the queries */
+  public QueryPlanChecker largeTables(Table... largeTables) {
+    this.largeTables.addAll(Arrays.asList(largeTables));
+    return this;
+  }
+
+  /** Registers a query.  The function creates the {@link Select},
+   * {@link Update} or {@link Delete} without executing it. */
+  public QueryPlanChecker query(String name, Function<Tx,Statement> statementFunction) {
+    assertNotNullParameter(name, "name");
+    assertNotNullParameter(statementFunction, "statementFunction");
+    assertTrue(!queries.containsKey(name), "Duplicate query name %s", name);
+    queries.put(name, statementFunction);
+    return this;
+  }
+
+  /** Explains all queries, each in its own read-only tx.
+   * @throws RuntimeException listing the queries that fully scan a large table */
+  public QueryPlanChecker check() {
+    List<String> regressions = new ArrayList<>();
+    queries.forEach((name, statementFunction)->{
+      QueryPlan plan = db.tx(new TxOptions().readOnly(), tx->tx.setResult(statementFunction.apply(tx).explainPlan()));
+      plans.put(name, plan);
+      Db.DB_LOGGER.info("Plan of "+name+": "+plan);
+      for (Table largeTable: largeTables) {
+        if (plan.hasFullScan(largeTable)) {
+          regressions.add(name+" fully scans "+largeTable.getName()+":\n"+plan.getPlanText());
+        }
+      }
+    });
+    if (!regressions.isEmpty()) {
+      throw new RuntimeException("Query plan regressions:\n"+String.join("\n", regressions));
+    }
+    return this;
+  }
+
+  /** The plans by query name of the last {@link #check()} */
+  public Map<String,QueryPlan> getPlans() {
+    return plans;
+  }
+}
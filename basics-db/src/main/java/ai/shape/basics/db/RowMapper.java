@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import ai.shape.basics.util.Reflection;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+import static ai.shape.basics.util.Exceptions.assertNotNullParameter;
+import static ai.shape.basics.util.Exceptions.assertTrue;
+import static ai.shape.basics.util.Exceptions.exceptionWithCause;
+
+/** Maps a result row to an object of a given class.
+ *
+ * The constructor and the setters or fields for the columns are resolved
+ * once when the mapper is created.  So create it once, eg in a static field,
+ * and use it for all selects:
+ *
+ * static final RowMapper<User> USER_MAPPER = new RowMapper<>(User.class, TABLE);
+ * ...
+ * List<User> users = tx.newSelect(TABLE)
+ *   .execute()
+ *   .getAll(USER_MAPPER);
+ *
+ * For each column, the property name is the column name or the camel case
+ * version of it (first_name becomes firstName).  The property is set with
+ * setFirstName(..), with the fluent firstName(..) or directly in the field.
+ * Columns without a matching property are ignored.  All mapped columns must be
+ * included in the select fields.
+ *
+ * long, int and boolean properties are read without boxing.  As in JDBC,
+ * NULL is mapped to 0 or false for those. */
+public class RowMapper<T> implements Function<SelectResults,T> {
+
+  interface PropertyMapping {
+    void map(Object target, SelectResults selectResults) throws Throwable;
+  }
+
+  Class<T> targetClass;
+  MethodHandle constructor;
+  PropertyMapping[] propertyMappings;
+
+  public RowMapper(Class<T> targetClass, Table table) {
+    this(targetClass, table.getColumns().values());
+  }
+
+  public RowMapper(Class<T> targetClass, Collection<Column> columns) {
+    assertNotNullParameter(targetClass, "targetClass");
+    assertNotNullParameter(columns, "columns");
+    this.targetClass = targetClass;
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    this.constructor = findConstructor(lookup);
+    List<PropertyMapping> propertyMappings = new ArrayList<>();
+    for (Column column: columns) {
+      PropertyMapping propertyMapping = createPropertyMapping(lookup, column);
+      if (propertyMapping!=null) {
+        propertyMappings.add(propertyMapping);
+      }
+    }
+    assertTrue(!propertyMappings.isEmpty(), "No properties found in %s for columns %s", targetClass.getName(), columns);
+    this.propertyMappings = propertyMappings.toArray(new PropertyMapping[propertyMappings.size()]);
+  }
+
+  @Override
+  public T apply(SelectResults selectResults) {
+    try {
+      Object target = constructor.invokeExact();
+      for (PropertyMapping propertyMapping: propertyMappings) {
+        propertyMapping.map(target, selectResults);
+      }
+      return targetClass.cast(target);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Throwable e) {
+      throw exceptionWithCause("map row to "+targetClass.getName(), e);
+    }
+  }
+
+  protected MethodHandle findConstructor(MethodHandles.Lookup lookup) {
+    try {
+      Constructor<T> constructor = targetClass.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      return lookup
+        .unreflectConstructor(constructor)
+        .asType(MethodType.methodType(Object.class));
+    } catch (Exception e) {
+      throw exceptionWithCause("find no-args constructor for "+targetClass.getName(), e);
+    }
+  }
+
+  /** returns null if there is no property for the column */
+  protected PropertyMapping createPropertyMapping(MethodHandles.Lookup lookup, Column column) {
+    MethodHandle setter = findSetter(lookup, column.getName());
+    if (setter==null) {
+      setter = findSetter(lookup, toCamelCase(column.getName()));
+    }
+    if (setter==null) {
+      return null;
+    }
+    Class<?> propertyType = setter.type().parameterType(1);
+    if (propertyType==long.class) {
+      MethodHandle longSetter = setter.asType(MethodType.methodType(void.class, Object.class, long.class));
+      return (target, selectResults) -> { longSetter.invokeExact(target, selectResults.getLong(column)); };
+    }
+    if (propertyType==int.class) {
+      MethodHandle intSetter = setter.asType(MethodType.methodType(void.class, Object.class, int.class));
+      return (target, selectResults) -> { intSetter.invokeExact(target, selectResults.getInt(column)); };
+    }
+    if (propertyType==boolean.class) {
+      MethodHandle booleanSetter = setter.asType(MethodType.methodType(void.class, Object.class, boolean.class));
+      return (target, selectResults) -> { booleanSetter.invokeExact(target, selectResults.getBoolean(column)); };
+    }
+    MethodHandle objectSetter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+    return (target, selectResults) -> {
+      Object value = selectResults.get(column);
+      objectSetter.invokeExact(target, value);
+    };
+  }
+
+  /** returns a handle of type (targetClass, propertyType) or null */
+  protected MethodHandle findSetter(MethodHandles.Lookup lookup, String propertyName) {
+    Field field = Reflection.findFieldInClass(targetClass, propertyName);
+    if (field==null) {
+      return null;
+    }
+    Class<?> propertyType = field.getType();
+    try {
+      Method method = findMethod("set"+Character.toUpperCase(propertyName.charAt(0))+propertyName.substring(1), propertyType);
+      if (method==null) {
+        method = findMethod(propertyName, propertyType);
+      }
+      if (method!=null) {
+        method.setAccessible(true);
+        return lookup
+          .unreflect(method)
+          .asType(MethodType.methodType(void.class, targetClass, propertyType));
+      }
+      field.setAccessible(true);
+      return lookup.unreflectSetter(field);
+    } catch (IllegalAccessException e) {
+      throw exceptionWithCause("access property "+propertyName+" in "+targetClass.getName(), e);
+    }
+  }
+
+  private Method findMethod(String methodName, Class<?> parameterType) {
+    for (Class<?> clazz = targetClass; clazz!=null; clazz = clazz.getSuperclass()) {
+      try {
+        return clazz.getDeclaredMethod(methodName, parameterType);
+      } catch (NoSuchMethodException e) {
+        // continue with the superclass
+      }
+    }
+    return null;
+  }
+
+  static String toCamelCase(String columnName) {
+    StringBuilder camelCase = new StringBuilder();
+    boolean upperNext = false;
+    for (char c: columnName.toCharArray()) {
+      if (c=='_') {
+        upperNext = camelCase.length()>0;
+      } else if (upperNext) {
+        camelCase.append(Character.toUpperCase(c));
+        upperNext = false;
+      } else {
+        camelCase.append(Character.toLowerCase(c));
+      }
+    }
+    return camelCase.toString();
+  }
+}
@@ -18,15 +18,16 @@
  */
 package ai.shape.basics.db;
 
+import ai.shape.basics.db.conditions.AndCondition;
+import ai.shape.basics.db.conditions.SeekCondition;
 import ai.shape.basics.db.constraints.ForeignKey;
-import ai.shape.basics.util.Exceptions;
 
 import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.*;
 
 import static ai.shape.basics.util.Exceptions.assertNotNull;
 import static ai.shape.basics.util.Exceptions.assertNotNullParameter;
+import static ai.shape.basics.util.Exceptions.assertTrue;
 
 public class Select extends Statement {
 
@@ -34,33 +35,132 @@ public class Select extends Statement {
   protected List<TableWithJoins> froms = new ArrayList<>();
 
   protected Integer limit;
+  protected Integer offset;
+  protected Integer fetchSize;
   protected OrderBy orderBy;
+  protected List<SqlExpression> groupBy;
+  protected Condition having;
   private FieldExpressionWithAlias expression;
 
   public Select(Tx tx) {
     super(tx);
   }
 
+  /** The plan the database chooses for this select, see {@link QueryPlan} */
+  public QueryPlan explain() {
+    return explainPlan();
+  }
+
+  @Override
+  protected QueryPlan explainPlan() {
+    initializeFieldsAndAliases();
+    return super.explainPlan();
+  }
+
   @Override
   protected SqlBuilder createSqlBuilder() {
     return getDialect().newSelectSql(this);
   }
 
-  /* overriden to set the limit */
+  /* overriden to set the fetch size */
   @Override
   protected PreparedStatement createPreparedStatement(SqlBuilder sql) {
     PreparedStatement preparedStatement = super.createPreparedStatement(sql);
-    if (limit!=null) {
-      try {
-        preparedStatement.setMaxRows(limit);
-      } catch (SQLException e) {
-        throw Exceptions.exceptionWithCause("set JDBC limit on prepared statement", e);
-      }
-    }
+    configurePreparedStatement(tx, preparedStatement);
     return preparedStatement;
   }
 
+  protected void configurePreparedStatement(Tx tx, PreparedStatement preparedStatement) {
+    if (fetchSize!=null) {
+      tx.getDb().getDialect().setFetchSize(tx.getConnection(), preparedStatement, fetchSize);
+    }
+  }
+
   public SelectResults execute() {
+    initializeFieldsAndAliases();
+    EntityCache entityCache = findEntityCache();
+    if (entityCache!=null) {
+      return executeWithEntityCache(entityCache);
+    }
+    return executeQuery();
+  }
+
+  /** Returns the entity cache if this select can be served from it, otherwise null.
+   * That is when the select has a single table with an entity cache,
+   * only columns of that table and only a primary key = value condition. */
+  protected EntityCache findEntityCache() {
+    if (froms.size()!=1 || froms.get(0).getJoins()!=null || offset!=null || groupBy!=null || having!=null) {
+      return null;
+    }
+    Table table = froms.get(0).getTable();
+    EntityCache entityCache = tx.getDb().getEntityCache(table);
+    if (entityCache==null
+        || tx.isEntityCacheInvalidated(entityCache)
+        || getWherePrimaryKeyValue(table)==null) {
+      return null;
+    }
+    for (FieldExpressionWithAlias field: fields) {
+      SqlExpression expression = field.getExpression();
+      if (!(expression instanceof Column) || ((Column)expression).getTable()!=table) {
+        return null;
+      }
+    }
+    return entityCache;
+  }
+
+  protected SelectResults executeWithEntityCache(EntityCache entityCache) {
+    Table table = entityCache.getTable();
+    Object primaryKey = getWherePrimaryKeyValue(table);
+    Object[] values = entityCache.get(primaryKey);
+    if (values!=null) {
+      if (Db.DB_LOGGER.isDebugEnabled()) {
+        Db.DB_LOGGER.debug(tx+" entity cache hit "+table.getName()+" "+primaryKey);
+      }
+      return new CachedSelectResults(this, values);
+    }
+    if (!selectsAllColumns(table) || tx.isReplica()) {
+      // the row can only be cached if all columns are selected.
+      // rows from a replica are not cached because the replica may
+      // still have the old row after the invalidation.
+      return executeQuery();
+    }
+    long generation = entityCache.getGeneration();
+    long start = System.nanoTime();
+    SelectResults selectResults = executeQuery();
+    try {
+      values = selectResults.getFirst(this::getColumnValues).orElse(null);
+    } finally {
+      selectResults.close();
+    }
+    entityCache.recordLoad(System.nanoTime()-start);
+    if (values!=null) {
+      entityCache.put(primaryKey, values, generation);
+    }
+    return new CachedSelectResults(this, values);
+  }
+
+  protected boolean selectsAllColumns(Table table) {
+    for (Column column: table.getColumns().values()) {
+      if (getSelectorJdbcIndex(column)==null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** values indexed by {@link Column#getIndex()} */
+  protected Object[] getColumnValues(SelectResults selectResults) {
+    Table table = froms.get(0).getTable();
+    Object[] values = new Object[table.getColumns().size()];
+    for (Column column: table.getColumns().values()) {
+      values[column.getIndex()] = selectResults.get(column);
+    }
+    return values;
+  }
+
+  /** Adds the fields of tables that don't have fields and the aliases in
+   * case of multiple tables.  Can be called multiple times. */
+  protected void initializeFieldsAndAliases() {
     // If there are froms without fields, add all fields
     List<Table> fieldTables = new ArrayList<>();
     fields.stream().forEach(field->field.getExpression().collectTables(fieldTables));
@@ -90,8 +190,61 @@ public class Select extends Statement {
         }
       });
     }
+  }
 
-    return executeQuery();
+  /** the having, limit and offset are parameters after the where condition */
+  @Override
+  protected void collectParameters() {
+    super.collectParameters();
+    if (having!=null) {
+      having.collectParameters(this);
+    }
+    if (limit!=null) {
+      addParameter(limit, DataType.integerType());
+    }
+    if (offset!=null) {
+      addParameter(offset, DataType.integerType());
+    }
+  }
+
+  @Override
+  protected void collectShape(StatementShape shape) {
+    for (FieldExpressionWithAlias field: fields) {
+      field.getExpression().collectShape(shape);
+      shape.add(field.getAlias());
+    }
+    for (TableWithJoins from: froms) {
+      shape.add("from");
+      collectTableShape(shape, from.getTable());
+      if (from.getJoins()!=null) {
+        for (Join join: from.getJoins()) {
+          shape.add(join.getType());
+          collectTableShape(shape, join.getTable());
+          join.getOn().collectShape(shape);
+        }
+      }
+    }
+    collectWhereShape(shape);
+    if (groupBy!=null) {
+      shape.add("group by");
+      groupBy.forEach(expression->expression.collectShape(shape));
+    }
+    if (having!=null) {
+      shape.add("having");
+      having.collectShape(shape);
+    }
+    if (orderBy!=null) {
+      for (OrderBy.FieldDirection fieldDirection: orderBy.getFieldDirections()) {
+        shape.add(fieldDirection.isAscending() ? "asc" : "desc");
+        fieldDirection.getExpression().collectShape(shape);
+      }
+    }
+    if (limit!=null) {
+      shape.add("limit");
+    }
+    if (offset!=null) {
+      shape.add("offset");
+    }
   }
 
   private boolean hasCount() {
@@ -207,6 +360,29 @@ public class Select extends Statement {
     return null;
   }
 
+  /** Groups the rows so that aggregates like {@link SqlExpression#sum(SqlExpression)}
+   * are computed per group by the database. */
+  public Select groupBy(SqlExpression... expressions) {
+    if (groupBy==null) {
+      groupBy = new ArrayList<>();
+    }
+    groupBy.addAll(Arrays.asList(expressions));
+    return this;
+  }
+
+  /** Filters the groups, eg having(gte(sum(AMOUNT), 100)).
+   * Multiple having conditions are combined with and. */
+  public Select having(Condition havingCondition) {
+    if (having==null) {
+      having = havingCondition;
+    } else if (having instanceof AndCondition) {
+      ((AndCondition) having).add(havingCondition);
+    } else {
+      having = Condition.and(having, havingCondition);
+    }
+    return this;
+  }
+
   public Select orderAsc(SqlExpression expression) {
     addOrderBy(new OrderBy.Ascending(expression));
     return this;
@@ -240,6 +416,19 @@ public class Select extends Statement {
     return froms;
   }
 
+  @Override
+  protected Table getMetricsTable() {
+    return !froms.isEmpty() ? froms.get(0).getTable() : null;
+  }
+
+  public List<SqlExpression> getGroupBy() {
+    return groupBy;
+  }
+
+  public Condition getHaving() {
+    return having;
+  }
+
   public OrderBy getOrderBy() {
     return orderBy;
   }
@@ -252,4 +441,46 @@ public class Select extends Statement {
     this.limit = limit;
     return this;
   }
+
+  public Integer getOffset() {
+    return this.offset;
+  }
+
+  /** Number of rows to skip.  For large tables, prefer {@link #seekToken(String)}
+   * as the database still has to read all the skipped rows. */
+  public Select offset(Integer offset) {
+    this.offset = offset;
+    return this;
+  }
+
+  /** Keyset pagination: only selects the rows after the row with the given
+   * values for the order by fields.  Call after the order by methods.
+   * The order by fields must be unique together, eg end with the id. */
+  public Select seekAfter(Object... lastRowValues) {
+    assertTrue(hasOrderBy(), "seekAfter requires an order by");
+    return where(new SeekCondition(orderBy.getFieldDirections(), lastRowValues));
+  }
+
+  /** Keyset pagination with the token of the previous {@link Page}.
+   * A null continuationToken selects the first page. */
+  public Select seekToken(String continuationToken) {
+    if (continuationToken==null) {
+      return this;
+    }
+    return seekAfter(ContinuationToken.decode(continuationToken));
+  }
+
+  public Integer getFetchSize() {
+    return this.fetchSize;
+  }
+
+  /** Hint for the number of rows that the driver fetches per round trip.
+   * Use in combination with {@link SelectResults#stream(java.util.function.Function)}
+   * to process large results without loading them all in memory.
+   * MySQL ignores the size and streams the rows one by one,
+   * see {@link ai.shape.basics.db.dialects.MySQLDialect#setFetchSize}. */
+  public Select fetchSize(Integer fetchSize) {
+    this.fetchSize = fetchSize;
+    return this;
+  }
 }
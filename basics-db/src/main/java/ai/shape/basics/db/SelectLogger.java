@@ -54,11 +54,14 @@ public class SelectLogger {
   List<List<String>> rowValues = new ArrayList<>();
   String[] nextRow = null;
   LogMode logMode = ALL_ROWS_AT_THE_END;
+  /** null means all rows are logged */
+  Integer maxLoggedRows = null;
+  long notLoggedRows = 0;
 
   public SelectLogger(SelectResults selectResults) {
     this.selectResults = selectResults;
     this.select = selectResults.select;
-    this.tx = select.getTx();
+    this.tx = selectResults.tx;
     this.expressions = select.getFields();
   }
 
@@ -66,10 +69,20 @@ public class SelectLogger {
     logMode = ROW_BY_ROW;
   }
 
+  /** Only keeps the first maxLoggedRows rows, the others are only counted */
+  public void maxLoggedRows(Integer maxLoggedRows) {
+    this.maxLoggedRows = maxLoggedRows;
+  }
+
   public void nextRow(boolean hasNext) {
     if (hasNext) {
       flushNextRow();
-      nextRow = new String[select.getFields().size()];
+      if (maxLoggedRows==null || rowValues.size()<maxLoggedRows) {
+        nextRow = new String[select.getFields().size()];
+      } else {
+        nextRow = null;
+        notLoggedRows++;
+      }
     }
   }
 
@@ -84,6 +97,7 @@ public class SelectLogger {
         }
       }
       rowValues.add(Arrays.asList(nextRow));
+      nextRow = null;
     }
   }
 
@@ -109,7 +123,12 @@ public class SelectLogger {
       tableText.append(createRowLine(rowFormat, rowValues));
     }
 
+    if (notLoggedRows>0) {
+      tableText.append("\n... "+notLoggedRows+" more rows not logged");
+    }
+
     // Clean up the stuff we don't need any more
+    notLoggedRows = 0;
     rowValues.clear(); // Normally not, but in theory it could be that more rows will be fetched and logged later
     this.maxColumnLengths = null;
     this.fieldNames = null;
@@ -154,6 +173,9 @@ public class SelectLogger {
 
   /** arrayIndex starts from 0 (not from 1 like in JDBC) */
   public void setValue(Integer arrayIndex, String valueText) {
+    if (nextRow==null) {
+      return;
+    }
     ensureFieldNamesAndMaxColumnLengthsInitialized();
     nextRow[arrayIndex] = valueText;
     Integer length = maxColumnLengths.get(arrayIndex);
@@ -23,69 +23,239 @@ import ai.shape.basics.util.Exceptions;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import static ai.shape.basics.util.Exceptions.assertNotNull;
+import static ai.shape.basics.util.Exceptions.assertTrue;
 import static ai.shape.basics.util.Exceptions.exceptionWithCause;
 
-public class SelectResults {
+public class SelectResults implements AutoCloseable {
+
+  /** Max number of rows that are logged when streaming */
+  public static int STREAM_MAX_LOGGED_ROWS = 20;
 
   Select select;
+  Tx tx;
   ResultSet resultSet;
   SqlBuilder sql;
   SelectLogger selectLogger;
+  /** maps the selected expressions by identity to their JDBC index so that
+   * {@link #get(SqlExpression)} doesn't have to scan the fields with equals() for each value */
+  Map<SqlExpression,Integer> jdbcIndexes;
 
   public SelectResults(Select select, ResultSet resultSet, SqlBuilder sql) {
+    this(select, select.getTx(), resultSet, sql);
+  }
+
+  /** tx is passed separately for selects that are reused over transactions like in {@link PreparedQuery} */
+  public SelectResults(Select select, Tx tx, ResultSet resultSet, SqlBuilder sql) {
     this.select = select;
+    this.tx = tx;
     this.resultSet = resultSet;
     this.sql = sql;
-    this.selectLogger = new SelectLogger(this);
+    // null when debug logging is disabled so that no log text is built for the rows
+    this.selectLogger = tx.isSqlLogEnabled() ? new SelectLogger(this) : null;
+    this.jdbcIndexes = new IdentityHashMap<>();
+    List<FieldExpressionWithAlias> fields = select.getFields();
+    for (int i=0; i<fields.size(); i++) {
+      jdbcIndexes.putIfAbsent(fields.get(i).getExpression(), i+1);
+    }
   }
 
   public <T> List<T> getAll(Function<SelectResults, T> mapper) {
-    List<T> rowObjects = new ArrayList<>();
-    while (resultSetNext()) {
-      T rowObject = mapper.apply(this);
-      rowObjects.add(rowObject);
+    try {
+      List<T> rowObjects = new ArrayList<>();
+      while (resultSetNext()) {
+        T rowObject = mapper.apply(this);
+        rowObjects.add(rowObject);
+      }
+      logRows();
+      return rowObjects;
+    } finally {
+      close();
     }
-    this.selectLogger.logRows();
-    return rowObjects;
   }
 
+  /** Lazily maps the rows without collecting them in memory.
+   * The JDBC result set and statement are closed when the last
+   * row is consumed or when the stream is closed.  So either consume
+   * all the rows or use try-with-resources.
+   * Only the first {@link #STREAM_MAX_LOGGED_ROWS} rows are logged.
+   * To really fetch in chunks, combine with {@link Select#fetchSize(Integer)}. */
+  public <T> Stream<T> stream(Function<SelectResults, T> mapper) {
+    if (selectLogger!=null) {
+      selectLogger.maxLoggedRows(STREAM_MAX_LOGGED_ROWS);
+    }
+    Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED) {
+      boolean ended = false;
+      @Override
+      public boolean tryAdvance(Consumer<? super T> action) {
+        if (ended) {
+          return false;
+        }
+        if (resultSetNext()) {
+          action.accept(mapper.apply(SelectResults.this));
+          return true;
+        }
+        ended = true;
+        logRows();
+        close();
+        return false;
+      }
+    };
+    return StreamSupport
+      .stream(spliterator, false)
+      .onClose(this::close);
+  }
+
+  /** Maps the first row and closes the JDBC result set and statement */
   public <T> Optional<T> getFirst(Function<SelectResults, T> mapper) {
-    this.selectLogger.logRowByRow();
-    T rowObject = null;
-    if (resultSetNext()) {
-      rowObject = mapper.apply(this);
+    try {
+      if (selectLogger!=null) {
+        selectLogger.logRowByRow();
+      }
+      T rowObject = null;
+      if (resultSetNext()) {
+        rowObject = mapper.apply(this);
+      }
+      logRows();
+      return Optional.ofNullable(rowObject);
+    } finally {
+      close();
+    }
+  }
+
+  /** Maps the rows of a keyset paginated select, see {@link Select#seekToken(String)}.
+   * The continuation token of the page is created from the order by fields of
+   * the last row, so they must be included in the select fields.  When the
+   * select has a limit and fewer rows are returned, there is no next page. */
+  public <T> Page<T> getPage(Function<SelectResults, T> mapper) {
+    assertTrue(select.hasOrderBy(), "getPage requires an order by");
+    List<OrderBy.FieldDirection> fieldDirections = select.getOrderBy().getFieldDirections();
+    Object[] lastRowValues = new Object[fieldDirections.size()];
+    List<T> rowObjects = new ArrayList<>();
+    try {
+      while (resultSetNext()) {
+        rowObjects.add(mapper.apply(this));
+        for (int i=0; i<lastRowValues.length; i++) {
+          lastRowValues[i] = get(fieldDirections.get(i).getExpression());
+        }
+      }
+      logRows();
+    } finally {
+      close();
     }
-    this.selectLogger.logRows();
-    return Optional.ofNullable(rowObject);
+    Integer limit = select.getLimit();
+    boolean hasNext = !rowObjects.isEmpty() && (limit==null || rowObjects.size()>=limit);
+    return new Page<>(rowObjects, hasNext ? ContinuationToken.encode(lastRowValues) : null);
   }
 
   public void forEach(Consumer<SelectResults> action) {
-    while (resultSetNext()) {
-      action.accept(this);
+    try {
+      while (resultSetNext()) {
+        action.accept(this);
+      }
+      logRows();
+    } finally {
+      close();
     }
-    this.selectLogger.logRows();
   }
 
   public boolean has(Column column) {
-    return select.getSelectorJdbcIndex(column)!=null;
+    return findJdbcIndex(column)!=null;
   }
 
   @SuppressWarnings("unchecked")
   public <T> T get(SqlExpression expression) {
-    Integer index = select.getSelectorJdbcIndex(expression);
-    assertNotNull(index, "Field '"+expression+"' was used in the result, but not included in the select fields \n"+sql.getDebugInfo());
+    int index = getJdbcIndex(expression);
     DataType type = expression.getType();
     T value = (T)type.getResultSetValue(index, resultSet);
-    selectLogger.setValue(index-1, type.getLogText(value));
+    if (selectLogger!=null) {
+      selectLogger.setValue(index-1, type.getLogText(value));
+    }
     return value;
   }
 
+  /** Gets the value as a primitive long without boxing.
+   * Like JDBC, SQL NULL is returned as 0. */
+  public long getLong(SqlExpression expression) {
+    int index = getJdbcIndex(expression);
+    try {
+      long value = resultSet.getLong(index);
+      if (selectLogger!=null) {
+        logPrimitiveValue(index, Long.toString(value));
+      }
+      return value;
+    } catch (SQLException e) {
+      throw exceptionWithCause("get JDBC long value "+index+" from result set", e);
+    }
+  }
+
+  /** Gets the value as a primitive int without boxing.
+   * Like JDBC, SQL NULL is returned as 0. */
+  public int getInt(SqlExpression expression) {
+    int index = getJdbcIndex(expression);
+    try {
+      int value = resultSet.getInt(index);
+      if (selectLogger!=null) {
+        logPrimitiveValue(index, Integer.toString(value));
+      }
+      return value;
+    } catch (SQLException e) {
+      throw exceptionWithCause("get JDBC int value "+index+" from result set", e);
+    }
+  }
+
+  /** Gets the value as a primitive boolean without boxing.
+   * Like JDBC, SQL NULL is returned as false. */
+  public boolean getBoolean(SqlExpression expression) {
+    int index = getJdbcIndex(expression);
+    try {
+      boolean value = resultSet.getBoolean(index);
+      if (selectLogger!=null) {
+        logPrimitiveValue(index, Boolean.toString(value));
+      }
+      return value;
+    } catch (SQLException e) {
+      throw exceptionWithCause("get JDBC boolean value "+index+" from result set", e);
+    }
+  }
+
+  private void logPrimitiveValue(int index, String valueText) throws SQLException {
+    selectLogger.setValue(index-1, resultSet.wasNull() ? "null" : valueText);
+  }
+
+  protected int getJdbcIndex(SqlExpression expression) {
+    Integer index = findJdbcIndex(expression);
+    if (index==null) {
+      // the message is only built when needed as it includes the debug info of the sql
+      throw new RuntimeException("Field '"+expression+"' was used in the result, but not included in the select fields \n"+sql.getDebugInfo());
+    }
+    return index;
+  }
+
+  /** Looks up the expression by identity and only falls back to the
+   * equals() scan for expressions that are not the instances used in the select.
+   * The result of the fallback is remembered. */
+  private Integer findJdbcIndex(SqlExpression expression) {
+    Integer index = jdbcIndexes.get(expression);
+    if (index==null) {
+      index = select.getSelectorJdbcIndex(expression);
+      if (index!=null) {
+        jdbcIndexes.put(expression, index);
+      }
+    }
+    return index;
+  }
+
   /** loops over all the results and logs the results in a table structure.
    * @return the number of rows that were logged */
   public long logAllRows() {
@@ -98,10 +268,34 @@ public class SelectResults {
     return nulls.size();
   }
 
-  private boolean resultSetNext() {
+  private void logRows() {
+    if (selectLogger!=null) {
+      selectLogger.logRows();
+    }
+  }
+
+  /** Closes the JDBC result set and statement.  Can be called multiple times. */
+  @Override
+  public void close() {
+    try {
+      if (!resultSet.isClosed()) {
+        java.sql.Statement jdbcStatement = resultSet.getStatement();
+        resultSet.close();
+        if (jdbcStatement!=null) {
+          jdbcStatement.close();
+        }
+      }
+    } catch (SQLException e) {
+      Db.DB_LOGGER.error(tx+" select results close: " + e.getMessage(), e);
+    }
+  }
+
+  protected boolean resultSetNext() {
     try {
       boolean hasNext = resultSet.next();
-      selectLogger.nextRow(hasNext);
+      if (selectLogger!=null) {
+        selectLogger.nextRow(hasNext);
+      }
       return hasNext;
     } catch (SQLException e) {
       throw exceptionWithCause("get next() on JDBC result set for select \n"+sql.getDebugInfo(), e);
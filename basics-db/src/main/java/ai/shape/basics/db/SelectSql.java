@@ -36,7 +36,10 @@ public class SelectSql extends DmlStatementSqlBuilder<Select> {
     appendText(" \nFROM ");
     appendSelectFromsSql();
     appendWhereCondition(statement.getWhereCondition());
+    appendGroupBy(statement.getGroupBy());
+    appendHaving(statement.getHaving());
     appendOrderBy(statement.getOrderBy());
+    appendLimitAndOffset();
     appendText(";");
   }
 
@@ -82,6 +85,38 @@ public class SelectSql extends DmlStatementSqlBuilder<Select> {
     }
   }
 
+  /** The limit and offset are appended as parameters so that the sql
+   * can be reused for other pages. */
+  protected void appendLimitAndOffset() {
+    if (statement.getLimit()!=null) {
+      appendText(" \nLIMIT ");
+      appendParameter();
+    }
+    if (statement.getOffset()!=null) {
+      appendText(" \nOFFSET ");
+      appendParameter();
+    }
+  }
+
+  protected void appendGroupBy(List<SqlExpression> groupBy) {
+    if (groupBy!=null && !groupBy.isEmpty()) {
+      appendText(" \nGROUP BY ");
+      for (int i=0; i<groupBy.size(); i++) {
+        if (i>0) {
+          appendText(", ");
+        }
+        groupBy.get(i).appendFieldSql(this, statement);
+      }
+    }
+  }
+
+  protected void appendHaving(Condition having) {
+    if (having!=null) {
+      appendText(" \nHAVING ");
+      having.buildSql(this, statement);
+    }
+  }
+
   protected void appendOrderBy(OrderBy orderBy) {
     if (orderBy!=null) {
       appendText(" \nORDER BY ");
@@ -27,7 +27,10 @@ public class SqlBuilder {
   List<Parameter> parameters;
   int nextParameterIndex = 0;
   StringBuilder sql = new StringBuilder();
-  StringBuilder sqlLog = new StringBuilder();
+  /** sql with the parameter values inlined for logging.
+   * null when the sql log is disabled so that no log text is built,
+   * see {@link Tx#isSqlLogEnabled()} */
+  StringBuilder sqlLog = Db.DB_LOGGER.isDebugEnabled() ? new StringBuilder() : null;
 
   public SqlBuilder(List<Parameter> parameters) {
     this.parameters = parameters;
@@ -36,6 +39,10 @@ public class SqlBuilder {
   public SqlBuilder(Statement statement) {
     this.parameters = statement.parameters;
     this.dialect = statement.getDialect();
+    Tx tx = statement.getTx();
+    if (tx!=null) {
+      this.sqlLog = tx.isSqlLogEnabled() ? new StringBuilder() : null;
+    }
   }
 
   public void buildSqlNew() {
@@ -44,7 +51,9 @@ public class SqlBuilder {
   /** Appends the sqlText to the sql statement appendText */
   public SqlBuilder appendText(String sqlText) {
     sql.append(sqlText);
-    sqlLog.append(sqlText);
+    if (sqlLog!=null) {
+      sqlLog.append(sqlText);
+    }
     return this;
   }
 
@@ -52,7 +61,9 @@ public class SqlBuilder {
     Parameter parameter = parameters.get(nextParameterIndex++);
     DataType type = parameter.getType();
     sql.append(type.getParameterText());
-    sqlLog.append(type.getLogText(parameter.getValue()));
+    if (sqlLog!=null) {
+      sqlLog.append(type.getLogText(parameter.getValue()));
+    }
     return this;
   }
 
@@ -60,8 +71,9 @@ public class SqlBuilder {
     return sql.toString();
   }
 
+  /** null when debug logging is disabled */
   public String getSqlLog() {
-    return sqlLog.toString();
+    return sqlLog!=null ? sqlLog.toString() : null;
   }
 
   public String getDebugInfo() {
@@ -69,7 +81,7 @@ public class SqlBuilder {
     if (sql.length()>0) {
       debugInfo.append("sql used in statement:\n"+sql.toString()+"\n");
     }
-    if (sqlLog.length()>0) {
+    if (sqlLog!=null && sqlLog.length()>0) {
       debugInfo.append("sql with parameters:\n"+sqlLog.toString()+"\n");
     }
     return debugInfo.toString();
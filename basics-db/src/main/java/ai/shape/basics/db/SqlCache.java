@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of generated SQL text by {@link StatementShape}.
+ *
+ * When the cache is full, the least recently used entry is evicted.
+ * One cache is shared by all transactions of a {@link Db}.
+ */
+public class SqlCache {
+
+  public static final int DEFAULT_MAX_SIZE = 1000;
+
+  protected int maxSize;
+  /** access ordered, guarded by synchronized(this) */
+  protected LinkedHashMap<StatementShape,String> sqlsByShape;
+  protected AtomicLong hits = new AtomicLong();
+  protected AtomicLong misses = new AtomicLong();
+
+  public SqlCache(int maxSize) {
+    this.maxSize = maxSize;
+    this.sqlsByShape = new LinkedHashMap<StatementShape,String>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<StatementShape,String> eldest) {
+        return size()>SqlCache.this.maxSize;
+      }
+    };
+  }
+
+  /** Returns the cached SQL text or null and updates the hit and miss counters. */
+  public String get(StatementShape shape) {
+    String sql;
+    synchronized (this) {
+      sql = sqlsByShape.get(shape);
+    }
+    if (sql!=null) {
+      hits.incrementAndGet();
+    } else {
+      misses.incrementAndGet();
+    }
+    return sql;
+  }
+
+  public synchronized void put(StatementShape shape, String sql) {
+    sqlsByShape.put(shape, sql);
+  }
+
+  public synchronized void clear() {
+    sqlsByShape.clear();
+  }
+
+  public synchronized int getSize() {
+    return sqlsByShape.size();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+}
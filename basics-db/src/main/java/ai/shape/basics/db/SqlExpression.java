@@ -18,6 +18,9 @@
  */
 package ai.shape.basics.db;
 
+import ai.shape.basics.db.types.IntegerType;
+import ai.shape.basics.db.types.LongType;
+
 import java.util.List;
 
 /** Column, Function or * : values that can be retrieved in a select statement */
@@ -35,6 +38,29 @@ public interface SqlExpression {
     return new Count();
   }
 
+  static Function.Aggregate min(SqlExpression sqlExpression) {
+    return new Function.Aggregate("min", sqlExpression);
+  }
+
+  static Function.Aggregate max(SqlExpression sqlExpression) {
+    return new Function.Aggregate("max", sqlExpression);
+  }
+
+  /** The sum of integer columns is a long as the databases return a bigint or decimal */
+  static Function.Aggregate sum(SqlExpression sqlExpression) {
+    DataType type = sqlExpression.getType();
+    boolean isInteger = type instanceof IntegerType || type instanceof LongType;
+    return new Function.Aggregate("sum", sqlExpression, false, isInteger ? DataType.longType() : null);
+  }
+
+  static Function.Aggregate avg(SqlExpression sqlExpression) {
+    return new Function.Aggregate("avg", sqlExpression, false, DataType.doubleType());
+  }
+
+  static Function.Aggregate countDistinct(SqlExpression sqlExpression) {
+    return new Function.Aggregate("count", sqlExpression, true, DataType.longType());
+  }
+
 
   /** the title used above the column when logging */
   String getTitle();
@@ -44,4 +70,10 @@ public interface SqlExpression {
   DataType getType();
 
   void collectTables(List<Table> fieldTables);
+
+  /** Adds everything that determines the generated sql of this expression
+   * to the shape.  Expressions that don't override this can't be cached. */
+  default void collectShape(StatementShape shape) {
+    shape.notCacheable();
+  }
 }
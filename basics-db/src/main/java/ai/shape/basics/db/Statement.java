@@ -19,8 +19,10 @@
 package ai.shape.basics.db;
 
 import ai.shape.basics.db.conditions.AndCondition;
+import ai.shape.basics.db.conditions.EqualCondition;
 import org.slf4j.Logger;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -29,6 +31,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import static ai.shape.basics.util.Exceptions.assertTrue;
 import static ai.shape.basics.util.Exceptions.exceptionWithCause;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -40,6 +43,8 @@ public abstract class Statement {
   Map<Table,String> tableAliases;
   Condition whereCondition;
   List<Parameter> parameters;
+  /** the sql of the last created prepared statement, used in the slow query log */
+  String sqlText;
 
   public Statement(Tx tx) {
     this.tx = tx;
@@ -52,7 +57,9 @@ public abstract class Statement {
     SqlBuilder sql = new SqlBuilder(parameters);
     PreparedStatement jdbcStatement = createPreparedStatement(sql);
     try {
+      long start = System.nanoTime();
       int updateCount = jdbcStatement.executeUpdate();
+      tx.getDb().recordStatement(tx, getMetricsShape(), sqlText, System.nanoTime()-start);
       logUpdateCount(updateCount);
       return updateCount;
     } catch (SQLException e) {
@@ -66,8 +73,28 @@ public abstract class Statement {
     }
   }
 
+  /** Executes the update with auto commit, which eg CREATE INDEX CONCURRENTLY
+   * requires.  Switching to auto commit commits what was done in the tx
+   * before, so this has to be the first statement of the tx. */
+  protected int executeUpdateWithAutoCommit() {
+    assertTrue(tx.getStatementCount()==0, "%s with auto commit must be the first statement of %s", getClass().getSimpleName(), tx);
+    Connection connection = tx.getConnection();
+    try {
+      connection.setAutoCommit(true);
+      try {
+        return executeUpdate();
+      } finally {
+        connection.setAutoCommit(false);
+      }
+    } catch (SQLException e) {
+      throw exceptionWithCause("switch auto commit for "+getClass().getSimpleName(), e);
+    }
+  }
+
   protected void logUpdateCount(int updateCount) {
-    Db.DB_LOGGER.debug(tx + " " + getPastTense() + " " + updateCount + " rows");
+    if (Db.DB_LOGGER.isDebugEnabled()) {
+      Db.DB_LOGGER.debug(tx + " " + getPastTense() + " " + updateCount + " rows");
+    }
   }
 
   protected SelectResults executeQuery() {
@@ -75,7 +102,9 @@ public abstract class Statement {
     SqlBuilder sql = new SqlBuilder(parameters);
     PreparedStatement jdbcStatement = createPreparedStatement(sql);
     try {
+      long start = System.nanoTime();
       ResultSet resultSet = jdbcStatement.executeQuery();
+      tx.getDb().recordStatement(tx, getMetricsShape(), sqlText, System.nanoTime()-start);
       return new SelectResults((Select)this, resultSet, sql);
     } catch (SQLException e) {
       throw exceptionWithCause("execute query \n"+sql.getDebugInfo()+"\n-->", e);
@@ -84,7 +113,7 @@ public abstract class Statement {
 
   protected PreparedStatement createPreparedStatement(SqlBuilder sql) {
     try {
-      String sqlText = generateSql(sql);
+      sqlText = generateSql(sql);
 
       PreparedStatement jdbcStatement = tx.createPreparedStatement(sqlText);
       setParameters(jdbcStatement);
@@ -94,17 +123,103 @@ public abstract class Statement {
     }
   }
 
+  /** Runs the {@link Dialect#getExplainSql(String) EXPLAIN} of this
+   * statement, which doesn't execute the statement itself.  The parameters
+   * are collected in a separate list so the statement can still be executed. */
+  protected QueryPlan explainPlan() {
+    List<Parameter> statementParameters = parameters;
+    parameters = null;
+    try {
+      collectParameters();
+      String explainSql = getDialect().getExplainSql(generateSql(new SqlBuilder(parameters)));
+      try (PreparedStatement jdbcStatement = tx.createPreparedStatement(explainSql)) {
+        setParameters(jdbcStatement);
+        StringBuilder planText = new StringBuilder();
+        try (ResultSet resultSet = jdbcStatement.executeQuery()) {
+          while (resultSet.next()) {
+            planText.append(planText.length()>0 ? "\n" : "").append(resultSet.getString(1));
+          }
+        }
+        QueryPlan queryPlan = getDialect().parseQueryPlan(planText.toString());
+        if (Db.DB_LOGGER.isDebugEnabled()) {
+          Db.DB_LOGGER.debug(tx+" "+queryPlan);
+        }
+        return queryPlan;
+      } catch (SQLException e) {
+        throw exceptionWithCause("explain \n"+explainSql+"\n-->", e);
+      }
+    } finally {
+      parameters = statementParameters;
+    }
+  }
+
   protected String generateSql(SqlBuilder sql) {
+    SqlCache sqlCache = tx.getDb().getSqlCache();
+    StatementShape shape = sqlCache!=null ? getShape() : null;
+    if (shape!=null) {
+      String cachedSql = sqlCache.get(shape);
+      if (cachedSql!=null) {
+        logCachedSql(cachedSql);
+        return cachedSql;
+      }
+    }
     SqlBuilder sqlBuilderNew = createSqlBuilder();
     try {
       sqlBuilderNew.buildSqlNew();
       tx.logSQL(sqlBuilderNew.getSqlLog());
+      if (shape!=null) {
+        sqlCache.put(shape, sqlBuilderNew.getSql());
+      }
     } catch (Exception e) {
       log.error("Problem building SQL: \n"+sqlBuilderNew.getDebugInfo()+"\n", e);
     }
     return sqlBuilderNew.getSql();
   }
 
+  /** The cached sql doesn't have the parameter values inlined, so they are logged after the sql */
+  protected void logCachedSql(String cachedSql) {
+    if (tx.isSqlLogEnabled()) {
+      StringBuilder sqlLog = new StringBuilder(cachedSql);
+      if (parameters!=null) {
+        sqlLog.append("\nparameters: ");
+        for (int i=0; i<parameters.size(); i++) {
+          Parameter parameter = parameters.get(i);
+          if (i>0) {
+            sqlLog.append(", ");
+          }
+          sqlLog.append(parameter.getType().getLogText(parameter.getValue()));
+        }
+      }
+      tx.logSQL(sqlLog.toString());
+    }
+  }
+
+  /** Returns the structural key of the generated sql or null
+   * if the sql of this statement can't be cached. */
+  protected StatementShape getShape() {
+    StatementShape shape = new StatementShape(getClass());
+    collectShape(shape);
+    return shape.isCacheable() ? shape : null;
+  }
+
+  /** Override to add everything that determines the generated sql to the shape.
+   * The default implementation marks the statement as not cacheable. */
+  protected void collectShape(StatementShape shape) {
+    shape.notCacheable();
+  }
+
+  protected void collectTableShape(StatementShape shape, Table table) {
+    shape.add(table);
+    shape.add(tableAliases!=null ? tableAliases.get(table) : null);
+  }
+
+  protected void collectWhereShape(StatementShape shape) {
+    if (whereCondition!=null) {
+      shape.add("where");
+      whereCondition.collectShape(shape);
+    }
+  }
+
   public void addParameter(Object value, DataType type) {
     if (parameters==null) {
       parameters = new ArrayList<>();
@@ -114,13 +229,16 @@ public abstract class Statement {
 
   public void setParameters(PreparedStatement jdbcStatement) {
     if (parameters!=null) {
+      boolean isLogEnabled = tx.isSqlLogEnabled();
       for (int i=0; i<parameters.size(); i++) {
         Parameter parameter = parameters.get(i);
         DataType type = parameter.getType();
         Object value = parameter.getValue();
         int jdbcParameterIndex = i + 1;
         type.setParameter(jdbcStatement, jdbcParameterIndex, value);
-        parameter.setLogValue(type.getLogText(value));
+        if (isLogEnabled) {
+          parameter.setLogValue(type.getLogText(value));
+        }
       }
     }
   }
@@ -134,10 +252,39 @@ public abstract class Statement {
     }
   }
 
+  /** Returns the value if the where condition is only primary key = value
+   * for the given table, otherwise null. */
+  protected Object getWherePrimaryKeyValue(Table table) {
+    if (whereCondition instanceof EqualCondition) {
+      EqualCondition equalCondition = (EqualCondition) whereCondition;
+      Object value = equalCondition.getValue();
+      if (value!=null
+          && !(value instanceof Column)
+          && equalCondition.getExpression()==table.getPrimaryKeyColumn()) {
+        return value;
+      }
+    }
+    return null;
+  }
+
   protected String getPastTense() {
     return getClass().getSimpleName()+"d";
   }
 
+  /** The statement type and table by which the execution times
+   * are bucketed in the {@link DbMetrics}, eg "Select users" */
+  protected String getMetricsShape() {
+    Table table = getMetricsTable();
+    return table!=null
+      ? getClass().getSimpleName()+" "+table.getName()
+      : getClass().getSimpleName();
+  }
+
+  /** The table in the {@link #getMetricsShape()}, null if there is no single main table */
+  protected Table getMetricsTable() {
+    return null;
+  }
+
   public String getQualifiedColumnName(Column column) {
     String alias = tableAliases !=null ? tableAliases.get(column.getTable()) : null;
     return alias!=null ? alias+"."+column.getName() : column.getName();
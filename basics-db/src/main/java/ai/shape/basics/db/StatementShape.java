@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Structural key of a statement: everything that determines the generated
+ * SQL text (statement type, tables, aliases, fields, the condition tree,
+ * order by, limit and IN-list arity), but not the parameter values.
+ *
+ * Two statements with equal shapes generate the same SQL text, which
+ * is used by the {@link SqlCache}.
+ *
+ * Tables, columns and other schema objects are compared on identity.
+ * Strings, numbers and booleans are compared with equals.
+ */
+public class StatementShape {
+
+  protected List<Object> parts = new ArrayList<>();
+  protected boolean cacheable = true;
+  protected int hashCode = 1;
+
+  public StatementShape(Class<?> statementClass) {
+    add(statementClass);
+  }
+
+  public StatementShape add(Object part) {
+    parts.add(part);
+    hashCode = 31*hashCode + partHashCode(part);
+    return this;
+  }
+
+  /** Marks the statement as not cacheable, eg because it contains
+   * a condition or an expression that doesn't describe its shape. */
+  public void notCacheable() {
+    this.cacheable = false;
+  }
+
+  public boolean isCacheable() {
+    return cacheable;
+  }
+
+  protected static boolean isValuePart(Object part) {
+    return part instanceof String
+      || part instanceof Number
+      || part instanceof Boolean;
+  }
+
+  protected static int partHashCode(Object part) {
+    if (part==null) {
+      return 0;
+    }
+    return isValuePart(part) ? part.hashCode() : System.identityHashCode(part);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    StatementShape other = (StatementShape) o;
+    if (hashCode!=other.hashCode || parts.size()!=other.parts.size()) {
+      return false;
+    }
+    for (int i=0; i<parts.size(); i++) {
+      Object part = parts.get(i);
+      Object otherPart = other.parts.get(i);
+      if (part!=otherPart
+          && (!isValuePart(part) || !part.equals(otherPart))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "StatementShape" + parts;
+  }
+}
@@ -21,7 +21,7 @@ package ai.shape.basics.db;
 
 public class StatementSqlBuilder<T extends Statement> extends SqlBuilder {
 
-  T statement;
+  protected T statement;
 
   public StatementSqlBuilder(T statement) {
     super(statement);
@@ -21,13 +21,16 @@ package ai.shape.basics.db;
 import ai.shape.basics.util.Reflection;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class Table {
 
   protected String name;
   protected Map<String,Column> columns;
+  protected List<Index> indexes = new ArrayList<>();
 
   public Table() {
   }
@@ -56,6 +59,17 @@ public class Table {
     return this;
   }
 
+  /** Declares a secondary index.  Add the columns of the index to the table first. */
+  public Table index(Index index) {
+    index.setTable(this);
+    indexes.add(index);
+    return this;
+  }
+
+  public List<Index> getIndexes() {
+    return indexes;
+  }
+
   public Table columns(Class<?> columnsClass) {
     for (Field field: columnsClass.getDeclaredFields()) {
       Object object = Reflection.getFieldValue(field,null);
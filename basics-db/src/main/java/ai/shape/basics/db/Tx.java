@@ -24,8 +24,12 @@ import ai.shape.basics.util.Sets;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static ai.shape.basics.db.Db.DB_LOGGER;
 import static ai.shape.basics.util.Exceptions.exceptionWithCause;
@@ -33,20 +37,38 @@ import static ai.shape.basics.util.Log.logLines;
 
 public class Tx {
 
-  private static long nextTxId = 1;
+  private static final AtomicLong nextTxId = new AtomicLong(1);
   private static ThreadLocal<Tx> currentTx = new ThreadLocal<>();
 
-  protected long id = nextTxId++;
+  protected long id = nextTxId.getAndIncrement();
+  protected long startNanos = System.nanoTime();
   protected Db db;
   protected Connection connection;
   protected boolean isRollbackOnly = false;
   protected Object result;
   protected Throwable rollbackReason;
+  protected boolean isReadOnly;
+  /** true if the connection is from a replica, which may lag behind the primary */
+  protected boolean isReplica;
+  /** primary keys to invalidate by entity cache when this tx commits.
+   * {@link EntityCache#ALL_ROWS} means all rows of the table.
+   * null if no table with an entity cache was modified. */
+  protected Map<EntityCache,Set<Object>> entityCacheInvalidations;
+  /** number of JDBC statements created in this tx */
+  protected int statementCount;
 
   public Tx(Db db, Connection connection) {
+    this(db, connection, false, false);
+  }
+
+  public Tx(Db db, Connection connection, boolean isReadOnly, boolean isReplica) {
     this.db = db;
     this.connection = connection;
-    DB_LOGGER.debug(this+" starting");
+    this.isReadOnly = isReadOnly;
+    this.isReplica = isReplica;
+    if (DB_LOGGER.isDebugEnabled()) {
+      DB_LOGGER.debug(this+" starting"+(isReplica ? " read-only on replica" : isReadOnly ? " read-only" : ""));
+    }
     currentTx.set(this);
   }
 
@@ -66,6 +88,11 @@ public class Tx {
     return this.connection;
   }
 
+  /** Number of JDBC statements created in this tx */
+  public int getStatementCount() {
+    return statementCount;
+  }
+
   public Object getResult() {
     return this.result;
   }
@@ -90,27 +117,88 @@ public class Tx {
     return isRollbackOnly;
   }
 
+  public boolean isReadOnly() {
+    return isReadOnly;
+  }
+
+  public boolean isReplica() {
+    return isReplica;
+  }
+
+  /** Commits or rolls back.
+   * @throws RuntimeException if the commit fails */
   protected void end() {
     currentTx.set(null);
-    if (isRollbackOnly) {
-      try {
-        DB_LOGGER.warn(this+" rolling back" + (rollbackReason!=null ? " because: " + rollbackReason : ""));
-        connection.rollback();
-      } catch (SQLException e) {
-        DB_LOGGER.error(this+" rollback failed: " + e.getMessage(), e);
+    boolean committed = false;
+    try {
+      if (isRollbackOnly) {
+        try {
+          DB_LOGGER.warn(this+" rolling back" + (rollbackReason!=null ? " because: " + rollbackReason : ""));
+          connection.rollback();
+        } catch (SQLException e) {
+          DB_LOGGER.error(this+" rollback failed: " + e.getMessage(), e);
+        }
+      } else {
+        try {
+          if (DB_LOGGER.isDebugEnabled()) {
+            DB_LOGGER.debug(this+" committing");
+          }
+          connection.commit();
+          committed = true;
+        } catch (SQLException e) {
+          throw exceptionWithCause("commit "+this, e);
+        } finally {
+          // also after a failed commit because it's unknown what was committed
+          applyEntityCacheInvalidations();
+        }
       }
-    } else {
-      try {
-        DB_LOGGER.debug(this+" committing");
-        connection.commit();
-      } catch (SQLException e) {
-        DB_LOGGER.error(this+" commit failed: " + e.getMessage(), e);
+    } finally {
+      db.getMetrics().recordTx(System.nanoTime()-startNanos, committed);
+    }
+  }
+
+  /** Registers that a row of the table is modified in this tx.  If the
+   * table has an entity cache, the row is invalidated when this tx commits.
+   * A null primaryKey invalidates all rows of the table. */
+  public void invalidateEntityCache(Table table, Object primaryKey) {
+    EntityCache entityCache = db.getEntityCache(table);
+    if (entityCache!=null) {
+      if (entityCacheInvalidations==null) {
+        entityCacheInvalidations = new LinkedHashMap<>();
       }
+      entityCacheInvalidations
+        .computeIfAbsent(entityCache, cache->new HashSet<>())
+        .add(primaryKey!=null ? EntityCache.toKey(primaryKey) : EntityCache.ALL_ROWS);
+    }
+  }
+
+  /** true if the table was modified in this tx, in which case
+   * the entity cache can't be used because it doesn't contain the changes */
+  public boolean isEntityCacheInvalidated(EntityCache entityCache) {
+    return entityCacheInvalidations!=null && entityCacheInvalidations.containsKey(entityCache);
+  }
+
+  protected void applyEntityCacheInvalidations() {
+    if (entityCacheInvalidations!=null) {
+      entityCacheInvalidations.forEach((entityCache, primaryKeys)->{
+        if (primaryKeys.contains(EntityCache.ALL_ROWS)) {
+          entityCache.invalidateAll();
+        } else {
+          primaryKeys.forEach(entityCache::invalidate);
+        }
+      });
+      entityCacheInvalidations = null;
     }
   }
 
+  /** true if the SQL and the select results are logged, which
+   * is when {@link Db#DB_LOGGER} is at debug level */
+  public boolean isSqlLogEnabled() {
+    return DB_LOGGER.isDebugEnabled();
+  }
+
   public void logSQL(String sql) {
-    if (sql!=null && DB_LOGGER.isDebugEnabled()) {
+    if (sql!=null && isSqlLogEnabled()) {
       logLines(DB_LOGGER, sql, this + " ");
     }
   }
@@ -129,38 +217,83 @@ public class Tx {
   }
 
   private static final Set<String> IGNORED_TABLE_NAMES = Sets.hashSet("sys_config");
+  /** The tables with their column names.  The columns of all tables
+   * are fetched with a single metadata query instead of one per table. */
   public List<Table> getMetaDataTables() {
-    List<Table> tables = new ArrayList<>();
+    // by catalog, schema and table name as the columns query also returns views
+    // and system tables.  MySQL has no schemas and identifies databases by catalog.
+    Map<String,Table> tablesByKey = new LinkedHashMap<>();
     try {
       DatabaseMetaData databaseMetaData = connection.getMetaData();
-      ResultSet tablesResultSet = databaseMetaData.getTables(null, null, null, new String[]{"TABLE"});
-      while (tablesResultSet.next()) {
-        String tableName = tablesResultSet.getString("TABLE_NAME");
-        if (!IGNORED_TABLE_NAMES.contains(tableName)) {
-          Table table = new Table();
-          table.name(tableName);
-
-          ResultSet columnsResultSet = databaseMetaData.getColumns(null,null, tableName, null);
-          while(columnsResultSet.next()) {
-            String columnName = columnsResultSet.getString("COLUMN_NAME");
-            Column column = new Column();
-            column.name(columnName);
-            table.column(column);
+      try (ResultSet tablesResultSet = databaseMetaData.getTables(null, null, null, new String[]{"TABLE"})) {
+        while (tablesResultSet.next()) {
+          String tableName = tablesResultSet.getString("TABLE_NAME");
+          if (!IGNORED_TABLE_NAMES.contains(tableName)) {
+            Table table = new Table();
+            table.name(tableName);
+            tablesByKey.put(getMetaDataTableKey(tablesResultSet), table);
           }
-
-          tables.add(table);
         }
       }
-      return tables;
+      if (!tablesByKey.isEmpty()) {
+        try (ResultSet columnsResultSet = databaseMetaData.getColumns(null, null, null, null)) {
+          while (columnsResultSet.next()) {
+            Table table = tablesByKey.get(getMetaDataTableKey(columnsResultSet));
+            if (table!=null) {
+              Column column = new Column();
+              column.name(columnsResultSet.getString("COLUMN_NAME"));
+              table.column(column);
+            }
+          }
+        }
+      }
+      return new ArrayList<>(tablesByKey.values());
     } catch (SQLException e) {
       throw exceptionWithCause("get table names", e);
     }
   }
 
+  /** catalog.schema.table of a row in the tables or columns meta data */
+  protected String getMetaDataTableKey(ResultSet metaDataResultSet) throws SQLException {
+    return metaDataResultSet.getString("TABLE_CAT")
+      +"."+metaDataResultSet.getString("TABLE_SCHEM")
+      +"."+metaDataResultSet.getString("TABLE_NAME");
+  }
+
+  /** Lower case names of the indexes of the table, including the ones of constraints */
+  public Set<String> getMetaDataIndexNames(Table table) {
+    Set<String> indexNames = new HashSet<>();
+    try {
+      DatabaseMetaData databaseMetaData = connection.getMetaData();
+      // unquoted names are stored in upper case by some databases and lower case by others
+      for (String tableName: Sets.hashSet(table.getName(), table.getName().toUpperCase(), table.getName().toLowerCase())) {
+        try (ResultSet indexesResultSet = databaseMetaData.getIndexInfo(null, null, tableName, false, true)) {
+          while (indexesResultSet.next()) {
+            String indexName = indexesResultSet.getString("INDEX_NAME");
+            if (indexName!=null) {
+              indexNames.add(indexName.toLowerCase());
+            }
+          }
+        }
+      }
+      return indexNames;
+    } catch (SQLException e) {
+      throw exceptionWithCause("get index names of "+table.getName(), e);
+    }
+  }
+
   public CreateTable newCreateTable(Table table) {
     return new CreateTable(this, table);
   }
 
+  public CreateIndex newCreateIndex(Index index) {
+    return new CreateIndex(this, index);
+  }
+
+  public DropIndex newDropIndex(Index index) {
+    return new DropIndex(this, index);
+  }
+
   public DropTable newDropTable(Table table) {
     return new DropTable(this, table);
   }
@@ -187,6 +320,11 @@ public class Tx {
     return new Select(this).from(table);
   }
 
+  /** Selects the children of many parents over the foreign key column in one select */
+  public BatchFetch newBatchFetch(Column foreignKeyColumn) {
+    return new BatchFetch(this, foreignKeyColumn);
+  }
+
   public Update newUpdate(Table table) {
     return newUpdate(table, null);
   }
@@ -199,6 +337,22 @@ public class Tx {
     return new Insert(this, table);
   }
 
+  public BatchInsert newBatchInsert(Table table) {
+    return new BatchInsert(this, table);
+  }
+
+  public Upsert newUpsert(Table table) {
+    return new Upsert(this, table);
+  }
+
+  public BatchUpsert newBatchUpsert(Table table) {
+    return new BatchUpsert(this, table);
+  }
+
+  public BulkLoad newBulkLoad(Table table) {
+    return new BulkLoad(this, table);
+  }
+
   public Delete newDelete(Table table) {
     return newDelete(table, null);
   }
@@ -212,6 +366,7 @@ public class Tx {
     try {
       statement = getConnection()
         .prepareStatement(sql);
+      statementCount++;
     } catch (SQLException e) {
       throw exceptionWithCause("prepare "+getClass().getSimpleName().toUpperCase()+" statement: \n"+sql, e);
     }
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.sql.Connection;
+
+import static ai.shape.basics.util.Exceptions.assertTrue;
+
+/**
+ * Options for {@link Db#tx(TxOptions, TxLogic)}.
+ *
+ * <pre>
+ * db.tx(new TxOptions()
+ *     .isolation(Connection.TRANSACTION_SERIALIZABLE)
+ *     .retry(5),
+ *   tx->{ ... });
+ * </pre>
+ *
+ * With retries, the {@link TxLogic} is executed again when the
+ * transaction fails with an exception that the {@link Dialect} considers
+ * retryable, like a deadlock or a serialization failure.  So the logic
+ * must not have side effects outside the transaction.  Between attempts,
+ * there is a random backoff of up to initialBackoffMillis * 2^(retry-1),
+ * capped by maxBackoffMillis.  No retry is started after maxRetryMillis
+ * since the first failure.
+ */
+public class TxOptions {
+
+  public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 10;
+  public static final long DEFAULT_MAX_BACKOFF_MILLIS = 1000;
+  public static final long DEFAULT_MAX_RETRY_MILLIS = 10000;
+
+  protected boolean readOnly = false;
+  /** null means the default isolation level of the connection */
+  protected Integer isolation;
+  protected int maxAttempts = 1;
+  protected long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+  protected long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+  protected long maxRetryMillis = DEFAULT_MAX_RETRY_MILLIS;
+
+  /** Read-only transaction on a replica, see {@link Db#readTx(TxLogic)} */
+  public TxOptions readOnly() {
+    this.readOnly = true;
+    return this;
+  }
+
+  /** One of the {@link Connection} TRANSACTION_* constants */
+  public TxOptions isolation(int isolation) {
+    this.isolation = isolation;
+    return this;
+  }
+
+  /** Retries retryable failures at most maxRetries times */
+  public TxOptions retry(int maxRetries) {
+    assertTrue(maxRetries>=0, "maxRetries can't be negative: %d", maxRetries);
+    this.maxAttempts = maxRetries+1;
+    return this;
+  }
+
+  public TxOptions backoff(long initialBackoffMillis, long maxBackoffMillis) {
+    assertTrue(initialBackoffMillis>0 && maxBackoffMillis>=initialBackoffMillis,
+      "Invalid backoff %d-%d", initialBackoffMillis, maxBackoffMillis);
+    this.initialBackoffMillis = initialBackoffMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+    return this;
+  }
+
+  public TxOptions maxRetryMillis(long maxRetryMillis) {
+    this.maxRetryMillis = maxRetryMillis;
+    return this;
+  }
+
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  public Integer getIsolation() {
+    return isolation;
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public long getInitialBackoffMillis() {
+    return initialBackoffMillis;
+  }
+
+  public long getMaxBackoffMillis() {
+    return maxBackoffMillis;
+  }
+
+  public long getMaxRetryMillis() {
+    return maxRetryMillis;
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Counters of the transaction retries of a {@link Db} that are kept by
+ * the {@link InMemoryDbMetrics}, see {@link TxOptions#retry(int)} */
+public class TxRetryMetrics {
+
+  protected AtomicLong retries = new AtomicLong();
+  protected AtomicLong retriedTransactions = new AtomicLong();
+  protected AtomicLong failedRetriedTransactions = new AtomicLong();
+  protected AtomicLong retryMillis = new AtomicLong();
+
+  void recordRetry() {
+    retries.incrementAndGet();
+  }
+
+  void recordRetriedTransaction(boolean succeeded, long millisSinceFirstFailure) {
+    retriedTransactions.incrementAndGet();
+    if (!succeeded) {
+      failedRetriedTransactions.incrementAndGet();
+    }
+    retryMillis.addAndGet(millisSinceFirstFailure);
+  }
+
+  /** total number of retries */
+  public long getRetries() {
+    return retries.get();
+  }
+
+  /** number of transactions that were retried at least once */
+  public long getRetriedTransactions() {
+    return retriedTransactions.get();
+  }
+
+  /** number of retried transactions that still failed after the last attempt */
+  public long getFailedRetriedTransactions() {
+    return failedRetriedTransactions.get();
+  }
+
+  /** total time from the first failure till the end of the retried transactions */
+  public long getRetryMillis() {
+    return retryMillis.get();
+  }
+}
@@ -37,9 +37,15 @@ public class Update extends Statement {
   }
 
   public int execute() {
+    tx.invalidateEntityCache(table, getWherePrimaryKeyValue(table));
     return executeUpdate();
   }
 
+  /** The plan the database chooses for this update, see {@link QueryPlan} */
+  public QueryPlan explain() {
+    return explainPlan();
+  }
+
   @Override
   protected SqlBuilder createSqlBuilder() {
     return getDialect().newUpdateSql(this);
@@ -53,6 +59,15 @@ public class Update extends Statement {
     super.collectParameters();
   }
 
+  @Override
+  protected void collectShape(StatementShape shape) {
+    collectTableShape(shape, table);
+    if (sets!=null) {
+      sets.forEach(set->shape.add(set.getColumn()));
+    }
+    collectWhereShape(shape);
+  }
+
   public Update set(Column column, Object value) {
     if (sets==null) {
       sets = new ArrayList<>();
@@ -70,6 +85,11 @@ public class Update extends Statement {
     return table;
   }
 
+  @Override
+  protected Table getMetricsTable() {
+    return table;
+  }
+
   public List<UpdateSet> getSets() {
     return sets;
   }
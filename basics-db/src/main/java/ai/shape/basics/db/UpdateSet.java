@@ -33,6 +33,10 @@ public class UpdateSet {
     sql.appendParameter();
   }
 
+  public Column getColumn() {
+    return column;
+  }
+
   public void collectParameters(Statement statement) {
     statement.addParameter(value, column.getType());
   }
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static ai.shape.basics.util.Exceptions.assertNotEmptyArray;
+import static ai.shape.basics.util.Exceptions.assertNotNull;
+import static ai.shape.basics.util.Exceptions.assertSame;
+
+/**
+ * Inserts a row or updates the existing row with the same key columns
+ * in a single statement.  The key columns are the primary key unless
+ * specified with {@link #keyColumns(Column...)}.  All the other columns
+ * that are set are updated.  Unlike with {@link Insert}, columns that
+ * are set to null are included, so the update sets them to NULL.
+ *
+ * The sql comes from {@link Dialect#newUpsertSql(Upsert)}.
+ */
+public class Upsert extends Insert {
+
+  protected List<Column> keyColumns;
+
+  public Upsert(Tx tx, Table table) {
+    super(tx, table);
+  }
+
+  /** The columns of a unique constraint that identify the row.  Default is the primary key. */
+  public Upsert keyColumns(Column... keyColumns) {
+    assertNotEmptyArray(keyColumns, "keyColumns");
+    this.keyColumns = Arrays.asList(keyColumns);
+    return this;
+  }
+
+  @Override
+  public Upsert set(Column column, Object value) {
+    assertNotNull(column.getTable(), "Column %s isn't added to the table.", column.getName());
+    assertSame(table, column.getTable(), "The provided column must be from the table passed in the constructor");
+    columnValues.add(new ColumnValue(column, value));
+    return this;
+  }
+
+  public List<Column> getKeyColumns() {
+    return getKeyColumns(table, keyColumns);
+  }
+
+  static List<Column> getKeyColumns(Table table, List<Column> keyColumns) {
+    if (keyColumns!=null) {
+      return keyColumns;
+    }
+    Column primaryKeyColumn = table.getPrimaryKeyColumn();
+    assertNotNull(primaryKeyColumn, "No primary key found in %s.  Specify the keyColumns of the upsert.", table);
+    return Collections.singletonList(primaryKeyColumn);
+  }
+
+  @Override
+  protected SqlBuilder createSqlBuilder() {
+    return getDialect().newUpsertSql(this);
+  }
+
+  @Override
+  protected void collectShape(StatementShape shape) {
+    super.collectShape(shape);
+    shape.add("keys");
+    getKeyColumns().forEach(shape::add);
+  }
+
+  /** Without the primary key value, an upsert on other key columns
+   * may update any row, so all rows of the table are invalidated. */
+  @Override
+  protected void invalidateEntityCache() {
+    Column primaryKeyColumn = table.getPrimaryKeyColumn();
+    for (ColumnValue columnValue: columnValues) {
+      if (columnValue.getColumn()==primaryKeyColumn) {
+        tx.invalidateEntityCache(table, columnValue.getValue());
+        return;
+      }
+    }
+    tx.invalidateEntityCache(table, null);
+  }
+
+  @Override
+  protected String getPastTense() {
+    return "Upserted";
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ai.shape.basics.util.Exceptions.assertNotEmptyCollection;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Base for the dialect specific upsert sql of an {@link Upsert} or a {@link BatchUpsert}.
+ * Dialects override {@link #buildSqlNew()} with the helper methods in this class.
+ */
+public class UpsertSql extends StatementSqlBuilder<Statement> {
+
+  protected Table table;
+  protected List<Column> columns;
+  protected List<Column> keyColumns;
+  /** number of VALUES (...) tuples */
+  protected int rowCount;
+  /** true for a {@link BatchUpsert} where parameter values are bound per row */
+  protected boolean isBatch;
+
+  public UpsertSql(Upsert upsert) {
+    super(upsert);
+    this.table = upsert.getTable();
+    this.columns = new ArrayList<>();
+    upsert.getColumnValues().forEach(columnValue->columns.add(columnValue.getColumn()));
+    this.keyColumns = upsert.getKeyColumns();
+    this.rowCount = 1;
+    this.isBatch = false;
+  }
+
+  public UpsertSql(BatchUpsert batchUpsert, int rowCount) {
+    super(batchUpsert);
+    this.table = batchUpsert.getTable();
+    this.columns = batchUpsert.getFlushColumns();
+    this.keyColumns = batchUpsert.getKeyColumns();
+    this.rowCount = rowCount;
+    this.isBatch = true;
+  }
+
+  @Override
+  public void buildSqlNew() {
+    throw new RuntimeException("Upsert is not supported by "+getDialect().getClass().getSimpleName());
+  }
+
+  /** appends: (column1, column2, ...) */
+  protected void appendColumnNames() {
+    assertNotEmptyCollection(columns, "columns");
+    appendText("("+columns.stream().map(Column::getName).collect(joining(", "))+")");
+  }
+
+  /** appends: (key1, key2, ...) */
+  protected void appendKeyColumnNames() {
+    appendText("("+keyColumns.stream().map(Column::getName).collect(joining(", "))+")");
+  }
+
+  /** appends: VALUES (?, ?), (?, ?), ... */
+  protected void appendValues() {
+    appendText(" \nVALUES ");
+    for (int r=0; r<rowCount; r++) {
+      if (r>0) {
+        appendText(", \n       ");
+      }
+      appendText("(");
+      for (int c=0; c<columns.size(); c++) {
+        if (c>0) {
+          appendText(", ");
+        }
+        if (isBatch) {
+          appendText(columns.get(c).getType().getParameterText());
+        } else {
+          appendParameter();
+        }
+      }
+      appendText(")");
+    }
+  }
+
+  /** the set columns that are not key columns */
+  protected List<Column> getUpdateColumns() {
+    List<Column> updateColumns = new ArrayList<>();
+    for (Column column: columns) {
+      if (!keyColumns.contains(column)) {
+        updateColumns.add(column);
+      }
+    }
+    return updateColumns;
+  }
+}
@@ -23,6 +23,7 @@ package ai.shape.basics.db.conditions;
 import ai.shape.basics.db.Condition;
 import ai.shape.basics.db.SqlBuilder;
 import ai.shape.basics.db.Statement;
+import ai.shape.basics.db.StatementShape;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -57,6 +58,13 @@ public class AndCondition implements Condition {
     andConditions.forEach(andCondition->andCondition.collectParameters(statement));
   }
 
+  @Override
+  public void collectShape(StatementShape shape) {
+    shape.add("and");
+    shape.add(andConditions.size());
+    andConditions.forEach(andCondition->andCondition.collectShape(shape));
+  }
+
   public void add(Condition andCondition) {
     this.andConditions.add(andCondition);
   }
@@ -52,4 +52,25 @@ public class EqualCondition implements Condition {
       statement.addParameter(value, expression.getType());
     }
   }
+
+  public SqlExpression getExpression() {
+    return expression;
+  }
+
+  public Object getValue() {
+    return value;
+  }
+
+  @Override
+  public void collectShape(StatementShape shape) {
+    shape.add("=");
+    expression.collectShape(shape);
+    if (value==null) {
+      shape.add("null");
+    } else if (value instanceof Column) {
+      shape.add(value);
+    } else {
+      shape.add("?");
+    }
+  }
 }
@@ -18,31 +18,39 @@
  */
 package ai.shape.basics.db.conditions;
 
-import ai.shape.basics.db.Column;
 import ai.shape.basics.db.Condition;
 import ai.shape.basics.db.SqlBuilder;
+import ai.shape.basics.db.SqlExpression;
 import ai.shape.basics.db.Statement;
+import ai.shape.basics.db.StatementShape;
 
 
 public class GreaterThanOrEqualCondition implements Condition {
 
-  Column column;
+  SqlExpression expression;
   Object value;
 
-  public GreaterThanOrEqualCondition(Column column, Object value) {
-    this.column = column;
+  /** expression can also be an aggregate in {@link ai.shape.basics.db.Select#having(Condition)} */
+  public GreaterThanOrEqualCondition(SqlExpression expression, Object value) {
+    this.expression = expression;
     this.value = value;
   }
 
   @Override
   public void buildSql(SqlBuilder sql, Statement statement) {
-    sql.appendText(statement.getQualifiedColumnName(column));
+    expression.appendFieldSql(sql, statement);
     sql.appendText(" >= ");
     sql.appendParameter();
   }
 
   @Override
   public void collectParameters(Statement statement) {
-    statement.addParameter(value, column.getType());
+    statement.addParameter(value, expression.getType());
+  }
+
+  @Override
+  public void collectShape(StatementShape shape) {
+    shape.add(">=");
+    expression.collectShape(shape);
   }
 }
@@ -22,14 +22,32 @@ import ai.shape.basics.db.Column;
 import ai.shape.basics.db.Condition;
 import ai.shape.basics.db.SqlBuilder;
 import ai.shape.basics.db.Statement;
-import ai.shape.basics.util.Exceptions;
+import ai.shape.basics.db.StatementShape;
+import ai.shape.basics.db.types.ArrayType;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
-
+/**
+ * column IN (...) with a strategy that depends on the number of values,
+ * so that large lists don't create a distinct SQL text for each size.
+ *
+ * Lists that pad to at least {@link #ARRAY_MIN_SIZE} values are bound as a single
+ * array parameter with column = ANY(?) if the dialect
+ * {@link ai.shape.basics.db.Dialect#supportsArrayParameters() supports it}.
+ * Otherwise the values are split in buckets of {@link #MAX_BUCKET_SIZE}
+ * parameters and the last bucket is padded to a power of two by repeating
+ * its last value.  That bounds the number of statement shapes to
+ * about log2 of the bucket size per number of full buckets.
+ */
 public class InCondition implements Condition {
 
+  /** final because the statement shape doesn't contain the strategy,
+   * which is derived from the bucket layout with these sizes */
+  public static final int ARRAY_MIN_SIZE = 32;
+  public static final int MAX_BUCKET_SIZE = 1024;
+
   Column column;
   Collection<?> values;
 
@@ -40,25 +58,95 @@ public class InCondition implements Condition {
 
   @Override
   public void buildSql(SqlBuilder sql, Statement statement) {
-    sql.appendText(statement.getQualifiedColumnName(column)+" in (");
-
-    if (values!=null) {
-      Object first = !values.isEmpty() ? values.iterator().next() : null;
-      for (Object value: values) {
-        if (value!=first) {
+    String columnName = statement.getQualifiedColumnName(column);
+    if (isArray(statement)) {
+      sql.appendText(columnName+" = ANY(");
+      sql.appendParameter();
+      sql.appendText(")");
+      return;
+    }
+    List<Integer> bucketSizes = getBucketSizes();
+    if (bucketSizes.size()>1) {
+      sql.appendText("(");
+    }
+    for (int b=0; b<bucketSizes.size(); b++) {
+      if (b>0) {
+        sql.appendText(" OR ");
+      }
+      sql.appendText(columnName+" in (");
+      for (int i=0; i<bucketSizes.get(b); i++) {
+        if (i>0) {
           sql.appendText(",");
         }
         sql.appendParameter();
       }
+      sql.appendText(")");
+    }
+    if (bucketSizes.size()>1) {
+      sql.appendText(")");
+    }
+    if (bucketSizes.isEmpty()) {
+      sql.appendText(columnName+" in ()");
+    }
+  }
+
+  /** Decided on the padded size, so for a given dialect and column
+   * the strategy is determined by the bucket layout in the shape */
+  protected boolean isArray(Statement statement) {
+    return getParameterCount()>=ARRAY_MIN_SIZE
+      && ArrayType.isSupportedElementType(column.getType())
+      && statement.getTx().getDb().getDialect().supportsArrayParameters();
+  }
+
+  /** Full buckets of {@link #MAX_BUCKET_SIZE} and the remaining values
+   * rounded up to the next power of two */
+  protected List<Integer> getBucketSizes() {
+    List<Integer> bucketSizes = new ArrayList<>();
+    int size = values!=null ? values.size() : 0;
+    for (int b=0; b<size/MAX_BUCKET_SIZE; b++) {
+      bucketSizes.add(MAX_BUCKET_SIZE);
+    }
+    int remaining = size%MAX_BUCKET_SIZE;
+    if (remaining>0) {
+      int bucketSize = 1;
+      while (bucketSize<remaining) {
+        bucketSize <<= 1;
+      }
+      bucketSizes.add(Math.min(MAX_BUCKET_SIZE, bucketSize));
     }
+    return bucketSizes;
+  }
 
-    sql.appendText(")");
+  protected int getParameterCount() {
+    return getBucketSizes().stream().mapToInt(Integer::intValue).sum();
   }
 
   @Override
   public void collectParameters(Statement statement) {
-    values
-      .stream()
-      .forEach(value-> statement.addParameter(value, column.getType()));
+    if (isArray(statement)) {
+      statement.addParameter(values.toArray(), new ArrayType(column.getType()));
+      return;
+    }
+    Object lastValue = null;
+    for (Object value: values) {
+      statement.addParameter(value, column.getType());
+      lastValue = value;
+    }
+    int parameterCount = getParameterCount();
+    for (int i=values.size(); i<parameterCount; i++) {
+      // padding with the last value doesn't change the result
+      statement.addParameter(lastValue, column.getType());
+    }
+  }
+
+  /** The bucket layout determines the strategy, see {@link #isArray(Statement)},
+   * and the SQL cache is per Db, so the dialect is the same for all shapes */
+  @Override
+  public void collectShape(StatementShape shape) {
+    shape.add("in");
+    shape.add(column);
+    List<Integer> bucketSizes = getBucketSizes();
+    shape.add(bucketSizes.size());
+    shape.add(!bucketSizes.isEmpty() ? bucketSizes.get(bucketSizes.size()-1) : 0);
   }
 }
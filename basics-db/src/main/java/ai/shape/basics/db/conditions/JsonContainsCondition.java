@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db.conditions;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Condition;
+import ai.shape.basics.db.Dialect;
+import ai.shape.basics.db.SqlBuilder;
+import ai.shape.basics.db.Statement;
+import ai.shape.basics.db.StatementShape;
+import ai.shape.basics.db.types.JsonType;
+
+import static ai.shape.basics.util.Exceptions.assertTrue;
+
+/** A JSON column contains the given JSON, eg all the given properties
+ * or array elements.  On PostgreSQL that is @>, which can use a
+ * {@link ai.shape.basics.db.Index#gin() GIN index}. */
+public class JsonContainsCondition implements Condition {
+
+  Column column;
+  Object json;
+
+  public JsonContainsCondition(Column column, Object json) {
+    this.column = column;
+    this.json = json;
+  }
+
+  @Override
+  public void buildSql(SqlBuilder sql, Statement statement) {
+    statement.getTx().getDb().getDialect().appendJsonContains(sql, column, statement.getQualifiedColumnName(column));
+  }
+
+  @Override
+  public void collectParameters(Statement statement) {
+    // checked before generating the sql, which logs build errors instead of throwing them
+    Dialect dialect = statement.getTx().getDb().getDialect();
+    assertTrue(dialect.supportsJsonConditions(), "JSON %s conditions are not supported by %s", "contains", dialect.getClass().getSimpleName());
+    statement.addParameter(json, JsonType.INSTANCE);
+  }
+
+  @Override
+  public void collectShape(StatementShape shape) {
+    shape.add("json@>");
+    shape.add(column);
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db.conditions;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Condition;
+import ai.shape.basics.db.Dialect;
+import ai.shape.basics.db.SqlBuilder;
+import ai.shape.basics.db.Statement;
+import ai.shape.basics.db.StatementShape;
+import ai.shape.basics.db.types.ClobType;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static ai.shape.basics.util.Exceptions.assertTrue;
+
+/** The text at a path in a JSON column equals a value.  The value is
+ * compared as text, so numbers and booleans match their JSON text. */
+public class JsonPathEqualCondition implements Condition {
+
+  Column column;
+  String path;
+  Object value;
+
+  public JsonPathEqualCondition(Column column, String path, Object value) {
+    this.column = column;
+    this.path = path;
+    this.value = value;
+  }
+
+  @Override
+  public void buildSql(SqlBuilder sql, Statement statement) {
+    statement.getTx().getDb().getDialect().appendJsonPathText(sql, statement.getQualifiedColumnName(column), getPathKeys());
+    if (value!=null) {
+      sql.appendText(" = ");
+      sql.appendParameter();
+    } else {
+      sql.appendText(" IS NULL");
+    }
+  }
+
+  public List<String> getPathKeys() {
+    return Arrays.asList(path.split("\\."));
+  }
+
+  @Override
+  public void collectParameters(Statement statement) {
+    // checked before generating the sql, which logs build errors instead of throwing them
+    Dialect dialect = statement.getTx().getDb().getDialect();
+    assertTrue(dialect.supportsJsonConditions(), "JSON %s conditions are not supported by %s", "path", dialect.getClass().getSimpleName());
+    if (value!=null) {
+      statement.addParameter(value.toString(), ClobType.INSTANCE);
+    }
+  }
+
+  @Override
+  public void collectShape(StatementShape shape) {
+    shape.add("json=");
+    shape.add(column);
+    shape.add(path);
+    shape.add(value!=null ? "?" : "null");
+  }
+}
@@ -22,6 +22,7 @@ import ai.shape.basics.db.Column;
 import ai.shape.basics.db.Condition;
 import ai.shape.basics.db.SqlBuilder;
 import ai.shape.basics.db.Statement;
+import ai.shape.basics.db.StatementShape;
 
 
 public class LikeCondition implements Condition {
@@ -44,4 +45,10 @@ public class LikeCondition implements Condition {
   public void collectParameters(Statement statement) {
     statement.addParameter(pattern!=null ? pattern : "%", column.getType());
   }
+
+  @Override
+  public void collectShape(StatementShape shape) {
+    shape.add("like");
+    shape.add(column);
+  }
 }
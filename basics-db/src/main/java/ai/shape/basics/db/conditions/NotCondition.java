@@ -21,6 +21,7 @@ package ai.shape.basics.db.conditions;
 import ai.shape.basics.db.Condition;
 import ai.shape.basics.db.SqlBuilder;
 import ai.shape.basics.db.Statement;
+import ai.shape.basics.db.StatementShape;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -45,4 +46,10 @@ public class NotCondition implements Condition {
   public void collectParameters(Statement statement) {
     condition.collectParameters(statement);
   }
+
+  @Override
+  public void collectShape(StatementShape shape) {
+    shape.add("not");
+    condition.collectShape(shape);
+  }
 }
@@ -22,6 +22,7 @@ import ai.shape.basics.db.Column;
 import ai.shape.basics.db.Condition;
 import ai.shape.basics.db.SqlBuilder;
 import ai.shape.basics.db.Statement;
+import ai.shape.basics.db.StatementShape;
 
 
 public class NotNullCondition implements Condition {
@@ -40,4 +41,10 @@ public class NotNullCondition implements Condition {
   @Override
   public void collectParameters(Statement statement) {
   }
+
+  @Override
+  public void collectShape(StatementShape shape) {
+    shape.add("is not null");
+    shape.add(column);
+  }
 }
@@ -21,6 +21,7 @@ package ai.shape.basics.db.conditions;
 import ai.shape.basics.db.Condition;
 import ai.shape.basics.db.SqlBuilder;
 import ai.shape.basics.db.Statement;
+import ai.shape.basics.db.StatementShape;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -53,6 +54,13 @@ public class OrCondition implements Condition {
     orConditions.forEach(orCondition->orCondition.collectParameters(statement));
   }
 
+  @Override
+  public void collectShape(StatementShape shape) {
+    shape.add("or");
+    shape.add(orConditions.size());
+    orConditions.forEach(orCondition->orCondition.collectShape(shape));
+  }
+
   public void add(Condition orCondition) {
     this.orConditions.add(orCondition);
   }
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db.conditions;
+
+import ai.shape.basics.db.Condition;
+import ai.shape.basics.db.OrderBy;
+import ai.shape.basics.db.SqlBuilder;
+import ai.shape.basics.db.Statement;
+import ai.shape.basics.db.StatementShape;
+
+import java.util.List;
+
+import static ai.shape.basics.util.Exceptions.assertNotNull;
+import static ai.shape.basics.util.Exceptions.assertTrue;
+
+/**
+ * Selects the rows after the given values of the order by fields
+ * for keyset pagination.
+ *
+ * When all fields are ordered in the same direction, the row value
+ * form (a, b) > (?, ?) is used, which databases can match with an index.
+ * For mixed directions, it is expanded to (a > ?) OR (a = ? AND b < ?).
+ */
+public class SeekCondition implements Condition {
+
+  List<OrderBy.FieldDirection> fieldDirections;
+  Object[] values;
+
+  public SeekCondition(List<OrderBy.FieldDirection> fieldDirections, Object[] values) {
+    assertTrue(fieldDirections.size()==values.length, "Expected %d seek values, but was %d", fieldDirections.size(), values.length);
+    for (Object value: values) {
+      assertNotNull(value, "Seek values can't be null.  Only order by fields that are not null");
+    }
+    this.fieldDirections = fieldDirections;
+    this.values = values;
+  }
+
+  @Override
+  public void buildSql(SqlBuilder sql, Statement statement) {
+    if (isSameDirection()) {
+      sql.appendText("(");
+      for (int i=0; i<fieldDirections.size(); i++) {
+        sql.appendText(i>0 ? ", " : "");
+        fieldDirections.get(i).getExpression().appendFieldSql(sql, statement);
+      }
+      sql.appendText(fieldDirections.get(0).isAscending() ? ") > (" : ") < (");
+      for (int i=0; i<fieldDirections.size(); i++) {
+        sql.appendText(i>0 ? ", " : "");
+        sql.appendParameter();
+      }
+      sql.appendText(")");
+    } else {
+      sql.appendText("( ");
+      for (int i=0; i<fieldDirections.size(); i++) {
+        if (i>0) {
+          sql.appendText(" \n   OR ");
+        }
+        sql.appendText("(");
+        for (int j=0; j<i; j++) {
+          fieldDirections.get(j).getExpression().appendFieldSql(sql, statement);
+          sql.appendText(" = ");
+          sql.appendParameter();
+          sql.appendText(" AND ");
+        }
+        OrderBy.FieldDirection fieldDirection = fieldDirections.get(i);
+        fieldDirection.getExpression().appendFieldSql(sql, statement);
+        sql.appendText(fieldDirection.isAscending() ? " > " : " < ");
+        sql.appendParameter();
+        sql.appendText(")");
+      }
+      sql.appendText(" )");
+    }
+  }
+
+  @Override
+  public void collectParameters(Statement statement) {
+    if (isSameDirection()) {
+      for (int i=0; i<fieldDirections.size(); i++) {
+        addParameter(statement, i);
+      }
+    } else {
+      for (int i=0; i<fieldDirections.size(); i++) {
+        for (int j=0; j<i; j++) {
+          addParameter(statement, j);
+        }
+        addParameter(statement, i);
+      }
+    }
+  }
+
+  private void addParameter(Statement statement, int index) {
+    statement.addParameter(values[index], fieldDirections.get(index).getExpression().getType());
+  }
+
+  @Override
+  public void collectShape(StatementShape shape) {
+    shape.add("seek");
+    for (OrderBy.FieldDirection fieldDirection: fieldDirections) {
+      shape.add(fieldDirection.isAscending() ? "asc" : "desc");
+      fieldDirection.getExpression().collectShape(shape);
+    }
+  }
+
+  protected boolean isSameDirection() {
+    boolean ascending = fieldDirections.get(0).isAscending();
+    for (OrderBy.FieldDirection fieldDirection: fieldDirections) {
+      if (fieldDirection.isAscending()!=ascending) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -18,18 +18,36 @@
  */
 package ai.shape.basics.db.dialects;
 
+import ai.shape.basics.db.BatchUpsert;
+import ai.shape.basics.db.BulkLoad;
+import ai.shape.basics.db.BulkLoadInputStream;
 import ai.shape.basics.db.Column;
 import ai.shape.basics.db.DataType;
+import ai.shape.basics.db.Db;
 import ai.shape.basics.db.Dialect;
+import ai.shape.basics.db.QueryPlan;
+import ai.shape.basics.db.SqlBuilder;
+import ai.shape.basics.db.Tx;
+import ai.shape.basics.db.Upsert;
+import ai.shape.basics.db.UpsertSql;
 import ai.shape.basics.db.types.JsonType;
 import ai.shape.basics.util.Io;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.Iterator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import static ai.shape.basics.util.Exceptions.exceptionWithCause;
 
@@ -48,11 +66,7 @@ public class H2Dialect extends Dialect {
     public void setParameter(PreparedStatement statement, int jdbcParameterIndex, Object value) {
       try {
         if (value!=null) {
-          if (value instanceof String) {
-            statement.setClob(jdbcParameterIndex, new StringReader((String) value));
-          } else {
-            throw new RuntimeException("Unsupported data type: "+value);
-          }
+          statement.setClob(jdbcParameterIndex, new StringReader(toJsonText(value)));
         } else {
           statement.setNull(jdbcParameterIndex, Types.CLOB);
         }
@@ -74,6 +88,69 @@ public class H2Dialect extends Dialect {
     }
   }
 
+  /** MERGE INTO table (columns) KEY (keys) VALUES (...) */
+  public static class H2UpsertSql extends UpsertSql {
+    public H2UpsertSql(Upsert upsert) {
+      super(upsert);
+    }
+    public H2UpsertSql(BatchUpsert batchUpsert, int rowCount) {
+      super(batchUpsert, rowCount);
+    }
+    @Override
+    public void buildSqlNew() {
+      appendText("MERGE INTO "+table.getName()+" ");
+      appendColumnNames();
+      appendText(" KEY ");
+      appendKeyColumnNames();
+      appendValues();
+      appendText(";");
+    }
+  }
+
+  @Override
+  public SqlBuilder newUpsertSql(Upsert upsert) {
+    return new H2UpsertSql(upsert);
+  }
+
+  @Override
+  public SqlBuilder newBatchUpsertSql(BatchUpsert batchUpsert, int rowCount) {
+    return new H2UpsertSql(batchUpsert, rowCount);
+  }
+
+  /** H2 supports column = ANY(?) with an array parameter */
+  @Override
+  public boolean supportsArrayParameters() {
+    return true;
+  }
+
+  static final Pattern H2_TABLE_SCAN = Pattern.compile("/\\*\\s*([\\w.]+)\\.tableScan");
+  static final Pattern H2_INDEX = Pattern.compile("/\\*\\s*([\\w.]+):");
+
+  /** H2 explains with the plan in comments like
+   * FROM PUBLIC.USERS /* PUBLIC.USERS.tableScan *&#47; or
+   * FROM PUBLIC.USERS /* PUBLIC.IDX_USERS_EMAIL: EMAIL = ?1 *&#47;.
+   * It doesn't estimate the number of rows. */
+  @Override
+  public QueryPlan parseQueryPlan(String planText) {
+    QueryPlan queryPlan = new QueryPlan(planText);
+    Matcher tableScanMatcher = H2_TABLE_SCAN.matcher(planText);
+    while (tableScanMatcher.find()) {
+      queryPlan.fullScan(tableScanMatcher.group(1));
+    }
+    Matcher indexMatcher = H2_INDEX.matcher(planText);
+    while (indexMatcher.find()) {
+      queryPlan.index(indexMatcher.group(1));
+    }
+    return queryPlan;
+  }
+
+  /** 50200 is a lock timeout and 90131 a concurrent update in the MVStore */
+  @Override
+  protected boolean isRetryable(SQLException sqlException) {
+    int errorCode = sqlException.getErrorCode();
+    return errorCode==50200 || errorCode==90131 || super.isRetryable(sqlException);
+  }
+
   @Override
   protected void initializeColumn(Column column) {
     DataType type = column.getType();
@@ -82,4 +159,39 @@ public class H2Dialect extends Dialect {
     }
     super.initializeColumn(column);
   }
+
+  /** Writes the rows to a temporary CSV file, which is inserted with
+   * INSERT INTO ... SELECT * FROM CSVREAD(...).  The rows are streamed
+   * to the file, so they are not in memory. */
+  @Override
+  public long bulkLoad(BulkLoad bulkLoad, Iterator<Object[]> rows) {
+    Tx tx = bulkLoad.getTx();
+    Path file = null;
+    String sql = null;
+    try {
+      file = Files.createTempFile("bulkload-"+bulkLoad.getTable().getName(), ".csv");
+      try (InputStream csv = new BulkLoadInputStream(rows, bulkLoad.getColumns(), BulkLoadInputStream.Format.CSV)) {
+        Files.copy(csv, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+      String csvColumnNames = bulkLoad.getColumns().stream()
+        .map(Column::getName)
+        .collect(Collectors.joining(","));
+      sql = "INSERT INTO "+bulkLoad.getTable().getName()+" ("+bulkLoad.getColumnNames()+") \n"
+            +"SELECT * FROM CSVREAD('"+file.toAbsolutePath().toString().replace("'", "''")+"', '"+csvColumnNames+"', 'charset=UTF-8')";
+      tx.logSQL(sql);
+      try (PreparedStatement statement = tx.createPreparedStatement(sql)) {
+        return statement.executeUpdate();
+      }
+    } catch (IOException | SQLException e) {
+      throw exceptionWithCause("bulk load "+(sql!=null ? "\n"+sql+"\n-->" : bulkLoad.getTable().getName()), e);
+    } finally {
+      if (file!=null) {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException e) {
+          Db.DB_LOGGER.warn("Couldn't delete bulk load file "+file+": "+e.getMessage());
+        }
+      }
+    }
+  }
 }
@@ -18,10 +18,230 @@
  */
 package ai.shape.basics.db.dialects;
 
+import ai.shape.basics.db.BatchUpsert;
+import ai.shape.basics.db.BulkLoad;
+import ai.shape.basics.db.BulkLoadInputStream;
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
 import ai.shape.basics.db.Dialect;
+import ai.shape.basics.db.DropIndex;
+import ai.shape.basics.db.DropIndexSql;
+import ai.shape.basics.db.Index;
+import ai.shape.basics.db.QueryPlan;
+import ai.shape.basics.db.Select;
+import ai.shape.basics.db.SelectSql;
+import ai.shape.basics.db.SqlBuilder;
+import ai.shape.basics.db.Tx;
+import ai.shape.basics.db.Upsert;
+import ai.shape.basics.db.UpsertSql;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+
+import static ai.shape.basics.util.Exceptions.exceptionWithCause;
 
 public class MySQLDialect extends Dialect {
 
   public static MySQLDialect INSTANCE  = new MySQLDialect();
 
+  /** MySQL doesn't support OFFSET without LIMIT */
+  public static class MySQLSelectSql extends SelectSql {
+    public MySQLSelectSql(Select select) {
+      super(select);
+    }
+    @Override
+    protected void appendLimitAndOffset() {
+      if (statement.getLimit()==null && statement.getOffset()!=null) {
+        appendText(" \nLIMIT 18446744073709551615");
+      }
+      super.appendLimitAndOffset();
+    }
+  }
+
+  @Override
+  public SqlBuilder newSelectSql(Select select) {
+    return new MySQLSelectSql(select);
+  }
+
+  /** INSERT ... ON DUPLICATE KEY UPDATE column = VALUES(column)
+   * MySQL uses all unique keys of the table, so the key columns are
+   * only used to know which columns not to update. */
+  public static class MySQLUpsertSql extends UpsertSql {
+    public MySQLUpsertSql(Upsert upsert) {
+      super(upsert);
+    }
+    public MySQLUpsertSql(BatchUpsert batchUpsert, int rowCount) {
+      super(batchUpsert, rowCount);
+    }
+    @Override
+    public void buildSqlNew() {
+      appendText("INSERT INTO "+table.getName()+" ");
+      appendColumnNames();
+      appendValues();
+      appendText(" \nON DUPLICATE KEY UPDATE ");
+      List<Column> updateColumns = getUpdateColumns();
+      if (updateColumns.isEmpty()) {
+        // a no-op update so that existing rows are ignored
+        String keyColumnName = keyColumns.get(0).getName();
+        appendText(keyColumnName+" = "+keyColumnName);
+      } else {
+        for (int i=0; i<updateColumns.size(); i++) {
+          String columnName = updateColumns.get(i).getName();
+          appendText((i>0 ? ", " : "")+columnName+" = VALUES("+columnName+")");
+        }
+      }
+      appendText(";");
+    }
+  }
+
+  /** MySQL indexes are named per table: DROP INDEX name ON table */
+  public static class MySQLDropIndexSql extends DropIndexSql {
+    public MySQLDropIndexSql(DropIndex dropIndex) {
+      super(dropIndex);
+    }
+    @Override
+    protected void appendOnTable(Index index) {
+      appendText(" ON "+index.getTable().getName());
+    }
+  }
+
+  @Override
+  public SqlBuilder newDropIndexSql(DropIndex dropIndex) {
+    return new MySQLDropIndexSql(dropIndex);
+  }
+
+  @Override
+  public boolean supportsConcurrentDdl() {
+    return true;
+  }
+
+  /** column->>'$."key1"."key2"' */
+  @Override
+  public void appendJsonPathText(SqlBuilder sql, String columnSql, List<String> path) {
+    StringBuilder jsonPath = new StringBuilder("$");
+    for (String key: path) {
+      jsonPath.append(".\"").append(key.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+    }
+    sql.appendText(columnSql+"->>'"+jsonPath.toString().replace("'", "''")+"'");
+  }
+
+  @Override
+  public boolean supportsJsonConditions() {
+    return true;
+  }
+
+  /** JSON_CONTAINS(column, ?) */
+  @Override
+  public void appendJsonContains(SqlBuilder sql, Column column, String columnSql) {
+    sql.appendText("JSON_CONTAINS("+columnSql+", ");
+    sql.appendParameter();
+    sql.appendText(")");
+  }
+
+  @Override
+  public String getExplainSql(String sql) {
+    return "EXPLAIN FORMAT=JSON "+sql;
+  }
+
+  /** access_type ALL is a full scan of the preceding table_name */
+  @Override
+  public QueryPlan parseQueryPlan(String planText) {
+    QueryPlan queryPlan = new QueryPlan(planText);
+    String tableName = null;
+    for (String[] keyValue: QueryPlan.getJsonValues(planText, "table_name", "access_type", "key", "rows_examined_per_scan")) {
+      String key = keyValue[0];
+      String value = keyValue[1];
+      if ("table_name".equals(key)) {
+        tableName = value;
+      } else if ("access_type".equals(key) && "ALL".equals(value) && tableName!=null) {
+        queryPlan.fullScan(tableName);
+      } else if ("key".equals(key)) {
+        queryPlan.index(value);
+      } else if ("rows_examined_per_scan".equals(key)) {
+        queryPlan.estimatedRows((long) Double.parseDouble(value));
+      }
+    }
+    return queryPlan;
+  }
+
+  @Override
+  public SqlBuilder newUpsertSql(Upsert upsert) {
+    return new MySQLUpsertSql(upsert);
+  }
+
+  @Override
+  public SqlBuilder newBatchUpsertSql(BatchUpsert batchUpsert, int rowCount) {
+    return new MySQLUpsertSql(batchUpsert, rowCount);
+  }
+
+  /** Prepared statements in MySQL can have at most 65535 placeholders */
+  @Override
+  public int getMaxParametersPerStatement() {
+    return 65535;
+  }
+
+  /** 1213 is a deadlock and 1205 a lock wait timeout */
+  @Override
+  protected boolean isRetryable(SQLException sqlException) {
+    int errorCode = sqlException.getErrorCode();
+    return errorCode==1213 || errorCode==1205 || super.isRetryable(sqlException);
+  }
+
+  /** MySQL Connector/J only streams rows one by one with fetch size Integer.MIN_VALUE.
+   * Any other fetch size is ignored unless useCursorFetch=true is configured.
+   * So the requested fetchSize is ignored and the rows are always streamed
+   * one by one.  Override this to pass the fetchSize on when the dataSource
+   * is configured with useCursorFetch=true. */
+  @Override
+  public void setFetchSize(Connection connection, PreparedStatement jdbcStatement, int fetchSize) {
+    super.setFetchSize(connection, jdbcStatement, Integer.MIN_VALUE);
+  }
+
+  /** Statement interfaces of Connector/J 8 and 5 that have setLocalInfileInputStream */
+  static final String[] LOCAL_INFILE_STATEMENT_CLASSES = {"com.mysql.cj.jdbc.JdbcStatement", "com.mysql.jdbc.Statement"};
+
+  /** LOAD DATA LOCAL INFILE with the rows streamed as the local file.
+   * Requires the dataSource.allowLoadLocalInfile=true property and
+   * local_infile enabled on the server.  The driver isn't a compile
+   * dependency of this library, so it's called with reflection.
+   * Falls back to batch inserts if the driver doesn't support it. */
+  @Override
+  public long bulkLoad(BulkLoad bulkLoad, Iterator<Object[]> rows) {
+    Tx tx = bulkLoad.getTx();
+    String sql = "LOAD DATA LOCAL INFILE 'stream' INTO TABLE "+bulkLoad.getTable().getName()
+                 +" CHARACTER SET utf8mb4 ("+bulkLoad.getColumnNames()+")";
+    try (java.sql.Statement statement = tx.getConnection().createStatement()) {
+      Method setLocalInfileInputStream = null;
+      Object mysqlStatement = null;
+      for (String className: LOCAL_INFILE_STATEMENT_CLASSES) {
+        try {
+          Class<?> statementClass = Class.forName(className);
+          if (statement.isWrapperFor(statementClass)) {
+            mysqlStatement = statement.unwrap(statementClass);
+            setLocalInfileInputStream = statementClass.getMethod("setLocalInfileInputStream", InputStream.class);
+            break;
+          }
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+          // try the next driver version
+        }
+      }
+      if (setLocalInfileInputStream==null) {
+        Db.DB_LOGGER.debug("MySQL LOAD DATA LOCAL INFILE not available, using batch inserts");
+        return super.bulkLoad(bulkLoad, rows);
+      }
+      setLocalInfileInputStream.invoke(mysqlStatement, new BulkLoadInputStream(rows, bulkLoad.getColumns(), BulkLoadInputStream.Format.TEXT));
+      tx.logSQL(sql);
+      return statement.executeUpdate(sql);
+    } catch (InvocationTargetException e) {
+      throw exceptionWithCause("bulk load \n"+sql+"\n-->", e.getCause());
+    } catch (SQLException | ReflectiveOperationException e) {
+      throw exceptionWithCause("bulk load \n"+sql+"\n-->", e);
+    }
+  }
 }
@@ -18,21 +18,87 @@
  */
 package ai.shape.basics.db.dialects;
 
+import ai.shape.basics.db.BatchUpsert;
+import ai.shape.basics.db.BulkLoad;
+import ai.shape.basics.db.BulkLoadInputStream;
 import ai.shape.basics.db.Column;
+import ai.shape.basics.db.CreateIndex;
+import ai.shape.basics.db.CreateIndexSql;
 import ai.shape.basics.db.DataType;
+import ai.shape.basics.db.Db;
 import ai.shape.basics.db.Dialect;
+import ai.shape.basics.db.Index;
+import ai.shape.basics.db.QueryPlan;
+import ai.shape.basics.db.SqlBuilder;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.Tx;
+import ai.shape.basics.db.Upsert;
+import ai.shape.basics.db.UpsertSql;
 import ai.shape.basics.db.types.ClobType;
 import ai.shape.basics.db.types.DoubleType;
 import ai.shape.basics.db.types.JsonType;
 
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static ai.shape.basics.util.Exceptions.exceptionWithCause;
+
 public class PostgreSQLDialect extends Dialect {
 
   public static PostgreSQLDialect INSTANCE  = new PostgreSQLDialect();
 
+  /** JSONB values are cast from text without the to_json conversion of JSON */
   public static class PostgreSQLJsonType extends JsonType {
+    public PostgreSQLJsonType() {
+    }
+    public PostgreSQLJsonType(boolean binary) {
+      this.binary = binary;
+    }
+    @Override
+    public String getSql() {
+      return binary ? "JSONB" : "JSON";
+    }
     @Override
     public String getParameterText() {
-      return "to_json(?::json)";
+      return binary ? "?::jsonb" : "to_json(?::json)";
+    }
+  }
+
+  /** INSERT ... ON CONFLICT (keys) DO UPDATE SET column = EXCLUDED.column */
+  public static class PostgreSQLUpsertSql extends UpsertSql {
+    public PostgreSQLUpsertSql(Upsert upsert) {
+      super(upsert);
+    }
+    public PostgreSQLUpsertSql(BatchUpsert batchUpsert, int rowCount) {
+      super(batchUpsert, rowCount);
+    }
+    @Override
+    public void buildSqlNew() {
+      appendText("INSERT INTO "+table.getName()+" ");
+      appendColumnNames();
+      appendValues();
+      appendText(" \nON CONFLICT ");
+      appendKeyColumnNames();
+      List<Column> updateColumns = getUpdateColumns();
+      if (updateColumns.isEmpty()) {
+        appendText(" DO NOTHING");
+      } else {
+        appendText(" DO UPDATE SET ");
+        for (int i=0; i<updateColumns.size(); i++) {
+          String columnName = updateColumns.get(i).getName();
+          appendText((i>0 ? ", " : "")+columnName+" = EXCLUDED."+columnName);
+        }
+      }
+      appendText(";");
     }
   }
 
@@ -40,18 +106,200 @@ public class PostgreSQLDialect extends Dialect {
   protected void initializeColumn(Column column) {
     DataType type = column.getType();
     if (JsonType.class.isAssignableFrom(type.getClass())) {
-      column.setType(new PostgreSQLJsonType());
+      column.setType(new PostgreSQLJsonType(((JsonType) type).isBinary()));
     }
     super.initializeColumn(column);
   }
 
+  @Override
+  public boolean supportsConcurrentDdl() {
+    return true;
+  }
+
+  /** Adds INCLUDE (columns) and WHERE predicate */
+  public static class PostgreSQLCreateIndexSql extends CreateIndexSql {
+    public PostgreSQLCreateIndexSql(CreateIndex createIndex) {
+      super(createIndex);
+    }
+    @Override
+    protected boolean supportsPartialIndexes() {
+      return true;
+    }
+    @Override
+    protected void appendUsing(Index index) {
+      if (index.isGin()) {
+        appendText("USING GIN ");
+      }
+    }
+    @Override
+    protected void appendIncludeAndWhere(Index index) {
+      if (!index.getIncludeColumns().isEmpty()) {
+        appendText(" INCLUDE ");
+        appendColumnNames(index.getIncludeColumns());
+      }
+      if (index.getWhereSql()!=null) {
+        appendText(" WHERE "+index.getWhereSql());
+      }
+    }
+  }
+
+  @Override
+  public SqlBuilder newCreateIndexSql(CreateIndex createIndex) {
+    return new PostgreSQLCreateIndexSql(createIndex);
+  }
+
+  /** Indexes that are not valid in pg_index, eg after a failed CREATE INDEX CONCURRENTLY */
+  @Override
+  public Set<String> getInvalidIndexNames(Tx tx, Table table) {
+    Set<String> indexNames = new HashSet<>();
+    String sql = "SELECT index_class.relname FROM pg_index \n"
+      + "JOIN pg_class index_class ON index_class.oid = pg_index.indexrelid \n"
+      + "JOIN pg_class table_class ON table_class.oid = pg_index.indrelid \n"
+      + "WHERE NOT pg_index.indisvalid AND table_class.relname = ?";
+    try (PreparedStatement statement = tx.createPreparedStatement(sql)) {
+      // unquoted names are stored in lower case
+      statement.setString(1, table.getName().toLowerCase());
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          indexNames.add(resultSet.getString(1).toLowerCase());
+        }
+      }
+      return indexNames;
+    } catch (SQLException e) {
+      throw exceptionWithCause("get invalid index names of "+table.getName(), e);
+    }
+  }
+
+  @Override
+  public boolean supportsGinIndexes() {
+    return true;
+  }
+
+  /** column #>> '{key1,key2}' */
+  @Override
+  public void appendJsonPathText(SqlBuilder sql, String columnSql, List<String> path) {
+    StringBuilder pathArray = new StringBuilder();
+    for (String key: path) {
+      pathArray.append(pathArray.length()>0 ? "," : "")
+        .append('"').append(key.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+    }
+    sql.appendText(columnSql+" #>> '{"+pathArray.toString().replace("'", "''")+"}'");
+  }
+
+  @Override
+  public boolean supportsJsonConditions() {
+    return true;
+  }
+
+  /** column @> CAST(? AS jsonb) */
+  @Override
+  public void appendJsonContains(SqlBuilder sql, Column column, String columnSql) {
+    boolean isBinary = column.getType() instanceof JsonType && ((JsonType) column.getType()).isBinary();
+    sql.appendText(columnSql+(isBinary ? "" : "::jsonb")+" @> CAST(");
+    sql.appendParameter();
+    sql.appendText(" AS jsonb)");
+  }
+
+  @Override
+  public boolean supportsArrayParameters() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsCreateIndexConcurrently() {
+    return true;
+  }
+
+  @Override
+  public String getExplainSql(String sql) {
+    return "EXPLAIN (FORMAT JSON) "+sql;
+  }
+
+  /** A Seq Scan node is a full scan of its Relation Name */
+  @Override
+  public QueryPlan parseQueryPlan(String planText) {
+    QueryPlan queryPlan = new QueryPlan(planText);
+    String nodeType = null;
+    for (String[] keyValue: QueryPlan.getJsonValues(planText, "Node Type", "Relation Name", "Index Name", "Plan Rows")) {
+      String key = keyValue[0];
+      String value = keyValue[1];
+      if ("Node Type".equals(key)) {
+        nodeType = value;
+      } else if ("Relation Name".equals(key) && "Seq Scan".equals(nodeType)) {
+        queryPlan.fullScan(value);
+      } else if ("Index Name".equals(key)) {
+        queryPlan.index(value);
+      } else if ("Plan Rows".equals(key)) {
+        queryPlan.estimatedRows((long) Double.parseDouble(value));
+      }
+    }
+    return queryPlan;
+  }
+
+  @Override
+  public SqlBuilder newUpsertSql(Upsert upsert) {
+    return new PostgreSQLUpsertSql(upsert);
+  }
+
+  @Override
+  public SqlBuilder newBatchUpsertSql(BatchUpsert batchUpsert, int rowCount) {
+    return new PostgreSQLUpsertSql(batchUpsert, rowCount);
+  }
+
+  /** The PostgreSQL wire protocol uses a 16 bit parameter count */
+  @Override
+  public int getMaxParametersPerStatement() {
+    return Short.MAX_VALUE;
+  }
+
   @Override
   protected String getTypeSql(DataType type) {
-    if (type instanceof ClobType) {
+    if (type instanceof JsonType) {
+      // before ClobType, which JsonType extends
+      return type.getSql();
+    } else if (type instanceof ClobType) {
       return "TEXT";
     } else if (type instanceof DoubleType) {
       return "DOUBLE PRECISION";
     }
     return super.getTypeSql(type);
   }
+
+  /** COPY ... FROM STDIN in the text format with the CopyManager of the
+   * PostgreSQL JDBC driver.  The driver isn't a compile dependency of this
+   * library, so it's called with reflection.  Falls back to batch inserts
+   * if the connection isn't a PostgreSQL JDBC connection. */
+  @Override
+  public long bulkLoad(BulkLoad bulkLoad, Iterator<Object[]> rows) {
+    Tx tx = bulkLoad.getTx();
+    Object copyManager = getCopyManager(tx.getConnection());
+    if (copyManager==null) {
+      return super.bulkLoad(bulkLoad, rows);
+    }
+    String sql = "COPY "+bulkLoad.getTable().getName()+" ("+bulkLoad.getColumnNames()+") FROM STDIN";
+    tx.logSQL(sql);
+    try {
+      Method copyIn = copyManager.getClass().getMethod("copyIn", String.class, InputStream.class);
+      return (Long) copyIn.invoke(copyManager, sql, new BulkLoadInputStream(rows, bulkLoad.getColumns(), BulkLoadInputStream.Format.TEXT));
+    } catch (InvocationTargetException e) {
+      throw exceptionWithCause("bulk load \n"+sql+"\n-->", e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw exceptionWithCause("bulk load \n"+sql+"\n-->", e);
+    }
+  }
+
+  /** null if the connection isn't a PostgreSQL JDBC connection */
+  protected Object getCopyManager(Connection connection) {
+    try {
+      Class<?> pgConnectionClass = Class.forName("org.postgresql.PGConnection");
+      if (!connection.isWrapperFor(pgConnectionClass)) {
+        return null;
+      }
+      Object pgConnection = connection.unwrap(pgConnectionClass);
+      return pgConnectionClass.getMethod("getCopyAPI").invoke(pgConnection);
+    } catch (Exception e) {
+      Db.DB_LOGGER.debug("PostgreSQL COPY not available, using batch inserts: "+e);
+      return null;
+    }
+  }
 }
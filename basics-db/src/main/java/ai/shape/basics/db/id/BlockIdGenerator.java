@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db.id;
+
+import ai.shape.basics.db.Db;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ai.shape.basics.db.Condition.and;
+import static ai.shape.basics.db.Condition.equal;
+import static ai.shape.basics.db.id.IdBlockTable.Columns;
+import static ai.shape.basics.util.Exceptions.assertNotNullParameter;
+import static ai.shape.basics.util.Exceptions.assertTrue;
+import static ai.shape.basics.util.Exceptions.exceptionWithCause;
+
+/**
+ * Generates increasing numeric ids from blocks that are reserved in the
+ * {@link IdBlockTable}.  Within a block, ids are handed out lock free.
+ * When half of the block is used, the next block is reserved asynchronously
+ * so that normally no id generation has to wait for the database.
+ *
+ * Blocks are always reserved in their own tx on the {@link #executor(Executor)},
+ * so ids can be generated inside a tx.  The executor must not run the task
+ * on the calling thread.
+ *
+ * Multiple processes can use the same name as each block is reserved
+ * with an optimistic update on the nextValue.  Ids are unique, but there
+ * will be gaps, eg for the unused ids of a block when the process stops.
+ */
+public class BlockIdGenerator implements IdGenerator {
+
+  static Logger log = LoggerFactory.getLogger(BlockIdGenerator.class);
+
+  public static final int DEFAULT_BLOCK_SIZE = 1000;
+  static final int MAX_RESERVE_ATTEMPTS = 10;
+
+  protected Db db;
+  protected String name;
+  protected int blockSize = DEFAULT_BLOCK_SIZE;
+  protected Executor executor = ForkJoinPool.commonPool();
+  protected volatile Block block = Block.EMPTY;
+  /** guarded by synchronized(this) */
+  protected CompletableFuture<Block> nextBlock;
+
+  protected static class Block {
+    static final Block EMPTY = new Block(0, 0);
+    final AtomicLong next;
+    final long end;
+    /** when this id is handed out, the next block is reserved */
+    final long reserveNextAt;
+    Block(long start, long end) {
+      this.next = new AtomicLong(start);
+      this.end = end;
+      this.reserveNextAt = start + (end-start)/2;
+    }
+  }
+
+  public BlockIdGenerator(Db db, String name) {
+    assertNotNullParameter(db, "db");
+    assertNotNullParameter(name, "name");
+    this.db = db;
+    this.name = name;
+  }
+
+  /** Number of ids that are reserved in the database at once */
+  public BlockIdGenerator blockSize(int blockSize) {
+    assertTrue(blockSize>1, "blockSize must be bigger than 1: %d", blockSize);
+    this.blockSize = blockSize;
+    return this;
+  }
+
+  /** Executor that reserves the next block.  Default is the common fork join pool. */
+  public BlockIdGenerator executor(Executor executor) {
+    assertNotNullParameter(executor, "executor");
+    this.executor = executor;
+    return this;
+  }
+
+  @Override
+  public String generateId(String prefix) {
+    String id = Long.toString(generateLongId());
+    return prefix!=null ? prefix+id : id;
+  }
+
+  public long generateLongId() {
+    while (true) {
+      Block block = this.block;
+      long id = block.next.getAndIncrement();
+      if (id<block.end) {
+        if (id==block.reserveNextAt) {
+          reserveNextBlockAsync();
+        }
+        return id;
+      }
+      nextBlock(block);
+    }
+  }
+
+  protected synchronized void reserveNextBlockAsync() {
+    if (nextBlock==null) {
+      nextBlock = CompletableFuture.supplyAsync(this::reserveBlock, executor);
+    }
+  }
+
+  /** Switches to the next block if the exhausted block is still the current one. */
+  protected synchronized void nextBlock(Block exhaustedBlock) {
+    if (block!=exhaustedBlock) {
+      return;
+    }
+    Block next = null;
+    if (nextBlock!=null) {
+      try {
+        next = nextBlock.join();
+      } catch (Exception e) {
+        log.warn("Reserving id block "+name+" asynchronously failed, retrying: "+e.getMessage());
+      }
+      nextBlock = null;
+    }
+    block = next!=null ? next : reserveBlockOnExecutor();
+  }
+
+  /** Reserves a block on the executor and waits for it.  Not on the calling
+   * thread because that may be in a tx, which a nested tx would replace as
+   * {@link ai.shape.basics.db.Tx#getCurrentTx()}. */
+  protected Block reserveBlockOnExecutor() {
+    try {
+      return CompletableFuture.supplyAsync(this::reserveBlock, executor).join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+    }
+  }
+
+  /** Reserves a block of ids in its own transaction */
+  protected Block reserveBlock() {
+    Exception lastException = null;
+    for (int attempt=0; attempt<MAX_RESERVE_ATTEMPTS; attempt++) {
+      try {
+        Long start = db.tx(tx->{
+          Optional<Long> nextValue = tx.newSelect(IdBlockTable.TABLE)
+            .where(equal(Columns.NAME, name))
+            .execute()
+            .getFirst(selectResults->selectResults.get(Columns.NEXT_VALUE));
+          if (nextValue.isPresent()) {
+            int updateCount = tx.newUpdate(IdBlockTable.TABLE)
+              .set(Columns.NEXT_VALUE, nextValue.get()+blockSize)
+              .where(and(
+                equal(Columns.NAME, name),
+                equal(Columns.NEXT_VALUE, nextValue.get())))
+              .execute();
+            // 0 means another process reserved the block first
+            tx.setResult(updateCount==1 ? nextValue.get() : null);
+          } else {
+            tx.newInsert(IdBlockTable.TABLE)
+              .set(Columns.NAME, name)
+              .set(Columns.NEXT_VALUE, 1L+blockSize)
+              .execute();
+            tx.setResult(1L);
+          }
+        });
+        if (start!=null) {
+          log.debug("Reserved id block "+name+" "+start+"-"+(start+blockSize-1));
+          return new Block(start, start+blockSize);
+        }
+      } catch (Exception e) {
+        // eg a concurrent insert of the first block
+        lastException = e;
+      }
+    }
+    throw exceptionWithCause("reserve id block "+name+" after "+MAX_RESERVE_ATTEMPTS+" attempts", lastException);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db.id;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Table;
+
+/**
+ * Contains one record per {@link BlockIdGenerator} name with the
+ * first id of the next block that can be reserved.
+ * Add this table to the schema when using a {@link BlockIdGenerator}.
+ */
+public class IdBlockTable extends Table {
+
+  public static final IdBlockTable TABLE = new IdBlockTable();
+
+  private IdBlockTable() {
+    name("idBlocks");
+    columns(Columns.class);
+  }
+
+  interface Columns {
+    Column NAME = new Column()
+      .name("name")
+      .typeVarchar(255)
+      .primaryKey();
+
+    Column NEXT_VALUE = new Column()
+      .name("nextValue")
+      .typeLong();
+  }
+}
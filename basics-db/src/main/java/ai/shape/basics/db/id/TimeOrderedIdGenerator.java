@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db.id;
+
+import ai.shape.basics.db.Db;
+
+import java.security.SecureRandom;
+
+import static ai.shape.basics.util.Exceptions.assertNotNullParameter;
+import static ai.shape.basics.util.Exceptions.assertTrue;
+
+/**
+ * Generates 26 character ids that sort by creation time without
+ * coordination, similar to ULIDs.  The 128 bits are:
+ *
+ * 48 bits milliseconds since the epoch
+ * 16 bits node id or hash of the node name, see {@link Db#getNodeName()}
+ * 24 bits random per thread
+ * 40 bits per thread counter, starting at a random value
+ *
+ * and are encoded in Crockford base32, which sorts the same as the bits.
+ * The counter ensures that ids of the same thread are unique and increasing
+ * within the same millisecond.  The random thread bits and counter start
+ * keep ids unique when node name hashes collide and when there are more
+ * threads than thread bits, eg with virtual threads.  Only thread creation
+ * uses the {@link SecureRandom}.  Each thread encodes in its own reusable
+ * char buffer, so no locks are taken.
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+  public static final int ID_LENGTH = 26;
+
+  static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+  static final long TIME_MASK = 0xFFFFFFFFFFFFL;
+  static final long NODE_MASK = 0xFFFFL;
+  static final long THREAD_MASK = 0xFFFFFFL;
+  static final long COUNTER_MASK = 0xFFFFFFFFFFL;
+  /** the start leaves 2^39 ids before the counter wraps */
+  static final long COUNTER_START_MASK = COUNTER_MASK>>>1;
+
+  static final SecureRandom random = new SecureRandom();
+
+  protected long nodeBits;
+  protected ThreadLocal<ThreadState> threadStates = ThreadLocal.withInitial(ThreadState::new);
+
+  protected static class ThreadState {
+    final long threadBits;
+    long counter;
+    char[] buffer = new char[ID_LENGTH];
+
+    ThreadState() {
+      threadBits = random.nextLong() & THREAD_MASK;
+      counter = random.nextLong() & COUNTER_START_MASK;
+    }
+
+    char[] getBuffer(int length) {
+      if (buffer.length<length) {
+        buffer = new char[length];
+      }
+      return buffer;
+    }
+  }
+
+  public TimeOrderedIdGenerator(Db db) {
+    this(db.getNodeName());
+  }
+
+  public TimeOrderedIdGenerator(String nodeName) {
+    assertNotNullParameter(nodeName, "nodeName");
+    this.nodeBits = nodeName.hashCode() & NODE_MASK;
+  }
+
+  /** An explicitly assigned node id between 0 and 65535 that is unique
+   * among the processes, which rules out node name hash collisions. */
+  public TimeOrderedIdGenerator(int nodeId) {
+    assertTrue(nodeId>=0 && nodeId<=NODE_MASK, "nodeId must be between 0 and %d: %d", NODE_MASK, nodeId);
+    this.nodeBits = nodeId;
+  }
+
+  @Override
+  public String generateId(String prefix) {
+    ThreadState threadState = threadStates.get();
+    long time = System.currentTimeMillis() & TIME_MASK;
+    long counter = threadState.counter++ & COUNTER_MASK;
+    long high = (time<<16) | nodeBits;
+    long low = (threadState.threadBits<<40) | counter;
+
+    int prefixLength = prefix!=null ? prefix.length() : 0;
+    char[] buffer = threadState.getBuffer(prefixLength+ID_LENGTH);
+    if (prefix!=null) {
+      prefix.getChars(0, prefixLength, buffer, 0);
+    }
+    // 5 bits per char, starting from the least significant bits at the end
+    for (int i=prefixLength+ID_LENGTH-1; i>=prefixLength; i--) {
+      buffer[i] = ALPHABET[(int)(low & 31)];
+      low = (low>>>5) | (high<<59);
+      high >>>= 5;
+    }
+    return new String(buffer, 0, prefixLength+ID_LENGTH);
+  }
+}
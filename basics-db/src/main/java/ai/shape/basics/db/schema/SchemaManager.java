@@ -29,6 +29,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static ai.shape.basics.db.Condition.*;
@@ -48,11 +54,20 @@ public class SchemaManager {
   /** Logs when a {@link SchemaUpdate} is performed */
   public static final String TYPE_UPDATE = "update";
 
+  public static final long DEFAULT_LOCK_TIMEOUT_MILLIS = 30000;
+  public static final int DEFAULT_PARALLELISM = 4;
+  static final long LOCK_INITIAL_BACKOFF_MILLIS = 50;
+  static final long LOCK_MAX_BACKOFF_MILLIS = 2000;
+
   @Inject
   protected Db db;
 
   List<Table> tables = new ArrayList<>();
   List<SchemaUpdate> updates = new ArrayList<>();
+  long lockTimeoutMillis = DEFAULT_LOCK_TIMEOUT_MILLIS;
+  int parallelism = DEFAULT_PARALLELISM;
+  /** duration of each phase of the last {@link #ensureCurrentSchema()} */
+  Map<String,Long> phaseMillis = new LinkedHashMap<>();
 
   public SchemaManager db(Db db) {
     this.db = db;
@@ -82,6 +97,20 @@ public class SchemaManager {
     return this;
   }
 
+  /** Max time to wait for another process that is upgrading the schema */
+  public SchemaManager lockTimeoutMillis(long lockTimeoutMillis) {
+    this.lockTimeoutMillis = lockTimeoutMillis;
+    return this;
+  }
+
+  /** Max number of tables that are created concurrently if the dialect
+   * {@link Dialect#supportsConcurrentDdl() supports concurrent DDL}.
+   * 1 creates all tables in a single transaction. */
+  public SchemaManager parallelism(int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+    return this;
+  }
+
   @Initialize
   public void initialize() {
     tables.forEach(table -> db.getDialect().initializeTable(table));
@@ -163,23 +192,41 @@ public class SchemaManager {
    * (thay may have run, bugfixes are allowed) and that unreleased changes always are
    * appended at the end. */
   public void ensureCurrentSchema() {
-    Map<String, Table> metaDataTablesByNameLowerCase = getMetaDataTables()
+    phaseMillis.clear();
+    long start = System.currentTimeMillis();
+    Map<String, Table> metaDataTablesByNameLowerCase = timePhase("metadata", ()->getMetaDataTables()
       .stream()
       .collect(toMap(
         table->table.getName().toLowerCase(),
         table->table
-      ));
+      )));
     if (!schemaHistoryExists(metaDataTablesByNameLowerCase)) {
-      createSchemaHistory();
+      timePhase("create schema history", ()->{
+        createSchemaHistory();
+        return null;
+      });
     }
-    if (acquireSchemaLock()) {
+    if (timePhase("lock", this::acquireSchemaLock)) {
       try {
         upgradeSchema(metaDataTablesByNameLowerCase);
       } finally {
         releaseSchemaLock();
       }
     } else {
-      throw new RuntimeException("Couldn't acquire schema upgrade lock");
+      throw new RuntimeException("Couldn't acquire schema upgrade lock within "+lockTimeoutMillis+" millis");
+    }
+    phaseMillis.put("total", System.currentTimeMillis()-start);
+    log.info("Schema is current: "+phaseMillis.entrySet().stream()
+      .map(phase->phase.getKey()+" "+phase.getValue()+"ms")
+      .collect(Collectors.joining(", ")));
+  }
+
+  protected <T> T timePhase(String phase, Supplier<T> phaseLogic) {
+    long start = System.currentTimeMillis();
+    try {
+      return phaseLogic.get();
+    } finally {
+      phaseMillis.put(phase, System.currentTimeMillis()-start);
     }
   }
 
@@ -205,14 +252,16 @@ public class SchemaManager {
     });
   }
 
+  /** Polls the lock with a jittered exponential backoff till the {@link #lockTimeoutMillis(long)},
+   * so that a lock that is released soon is picked up soon without hammering the database. */
   protected boolean acquireSchemaLock() {
-    int maxAttempts = 5;
-    long millisBetweenAttempts = 1000;
+    long deadline = System.currentTimeMillis() + lockTimeoutMillis;
+    long maxBackoffMillis = LOCK_INITIAL_BACKOFF_MILLIS;
 
     int attempts = 0;
     boolean lockAcquired = false;
 
-    while (!lockAcquired && attempts<maxAttempts) {
+    while (!lockAcquired) {
       log.debug("Attempt "+(attempts+1)+" to lock the schema");
       lockAcquired = db.tx(tx->{
         int updateCount = tx.newUpdate(SchemaHistoryTable.TABLE)
@@ -234,13 +283,19 @@ public class SchemaManager {
       if (lockAcquired) {
         log.debug("Schema lock was acquired");
       } else {
-        if (attempts<maxAttempts) {
-          try {
-            log.debug("Another process has locked the schema.  Waiting " + millisBetweenAttempts + " milliseconds before retrying");
-            Thread.sleep(millisBetweenAttempts);
-          } catch (InterruptedException e) {
-            log.debug("Waiting for other node to finish upgrade got interrupted");
-          }
+        long remainingMillis = deadline - System.currentTimeMillis();
+        if (remainingMillis<=0) {
+          return false;
+        }
+        long backoffMillis = Math.min(remainingMillis, 1 + ThreadLocalRandom.current().nextLong(maxBackoffMillis));
+        maxBackoffMillis = Math.min(maxBackoffMillis*2, LOCK_MAX_BACKOFF_MILLIS);
+        try {
+          log.debug("Another process has locked the schema.  Waiting " + backoffMillis + " milliseconds before retrying");
+          Thread.sleep(backoffMillis);
+        } catch (InterruptedException e) {
+          log.debug("Waiting for other node to finish upgrade got interrupted");
+          Thread.currentThread().interrupt();
+          return false;
         }
       }
     }
@@ -270,57 +325,202 @@ public class SchemaManager {
     return lockReleased;
   }
 
+  /** Without concurrent creates, the columns, tables and foreign keys are
+   * added in a single tx.  Concurrent creates need a tx per table,
+   * so then the columns, each table and the foreign keys are committed
+   * separately and a failure can leave a partial upgrade.  Indexes
+   * and updates always have their own txs. */
   protected void upgradeSchema(Map<String, Table> metaDataTablesByNameLowerCase) {
-    db.tx(tx->{
-      Map<Table, List<ForeignKey>> delayedForeignKeyConstraints = new LinkedHashMap<>();
+    Map<String,Table> tablesByLowerCaseName = tables.stream()
+      .collect(toMap(
+        table -> table.getName().toLowerCase(),
+        table -> table
+      ));
+    Set<Table> createdTables = new HashSet<>();
+    metaDataTablesByNameLowerCase.keySet().stream()
+      .map(tableNameLowerCase -> tablesByLowerCaseName.get(tableNameLowerCase))
+      .filter(Objects::nonNull)
+      .forEach(createdTables::add);
+
+    List<Table> tablesToCreate = tables.stream()
+      .filter(table->!createdTables.contains(table))
+      .collect(Collectors.toList());
+    List<List<Table>> waves = getCreateTableWaves(tablesToCreate, createdTables);
+    Map<Table, List<ForeignKey>> delayedForeignKeyConstraints = new LinkedHashMap<>();
+    if (isCreateTablesConcurrently(waves)) {
+      timePhase("add columns", ()->db.tx(tx->addMissingColumns(tx, metaDataTablesByNameLowerCase)));
+      timePhase("create tables", ()->{
+        createTablesConcurrently(waves, createdTables, delayedForeignKeyConstraints);
+        return null;
+      });
+      if (!delayedForeignKeyConstraints.isEmpty()) {
+        timePhase("foreign keys", ()->db.tx(tx->addDelayedForeignKeyConstraint(tx, delayedForeignKeyConstraints)));
+      }
+    } else {
+      timePhase("create tables", ()->db.tx(tx->{
+        addMissingColumns(tx, metaDataTablesByNameLowerCase);
+        createTables(tx, waves, createdTables, delayedForeignKeyConstraints);
+        addDelayedForeignKeyConstraint(tx, delayedForeignKeyConstraints);
+      }));
+    }
 
-      Map<String,Table> tablesByLowerCaseName = tables.stream()
-        .collect(toMap(
-          table -> table.getName().toLowerCase(),
-          table -> table
-        ));
-      Set<Table> createdTables = new HashSet<>(metaDataTablesByNameLowerCase.keySet()
-        .stream()
-        .map(tableNameLowerCase -> tablesByLowerCaseName.get(tableNameLowerCase))
-        .collect(Collectors.toSet()));
-
-      for (Table table: this.tables) {
-        String tableNameLowerCase = table.getName().toLowerCase();
-        Table metaDataTable = metaDataTablesByNameLowerCase.get(tableNameLowerCase);
-
-        if (metaDataTable!=null) {
-          Map<String, Column> metaDataColumnsByNameLowerCase = metaDataTable
-            .getColumns()
-            .entrySet()
-            .stream()
-            .collect(toMap(
-              entry->entry.getKey().toLowerCase(),
-              entry->entry.getValue()
-            ));
-
-          for (Column column: table.getColumns().values()) {
-            String columnNameLowerCase = column.getName().toLowerCase();
-            Column metaDataColumn = metaDataColumnsByNameLowerCase.get(columnNameLowerCase);
-            if (metaDataColumn==null) {
-              tx.newAlterTableAddColumn(column)
-                .execute();
-            }
+    // the indexes of the created tables are created with the tables
+    timePhase("indexes", ()->{
+      addMissingIndexes(metaDataTablesByNameLowerCase);
+      return null;
+    });
+
+    timePhase("updates", ()->{
+      executeUpdates();
+      return null;
+    });
+  }
+
+  protected void addMissingColumns(Tx tx, Map<String, Table> metaDataTablesByNameLowerCase) {
+    for (Table table: this.tables) {
+      Table metaDataTable = metaDataTablesByNameLowerCase.get(table.getName().toLowerCase());
+      if (metaDataTable!=null) {
+        Set<String> metaDataColumnNamesLowerCase = metaDataTable
+          .getColumns()
+          .keySet()
+          .stream()
+          .map(String::toLowerCase)
+          .collect(Collectors.toSet());
+        for (Column column: table.getColumns().values()) {
+          if (!metaDataColumnNamesLowerCase.contains(column.getName().toLowerCase())) {
+            tx.newAlterTableAddColumn(column)
+              .execute();
           }
+        }
+      }
+    }
+  }
 
-        } else {
-          List<ForeignKey> foreignKeysToNonCreatedTables = extractForeignKeysToNonCreatedTables(table, createdTables);
-          if (Sets.isNotEmpty(foreignKeysToNonCreatedTables)) {
-            delayedForeignKeyConstraints.put(table, foreignKeysToNonCreatedTables);
+  /** Creates the declared indexes that don't exist on the existing tables.
+   * Each index is created concurrently in its own tx, so on PostgreSQL
+   * the upgrade doesn't block writes to the table.  Invalid indexes,
+   * eg left behind by a failed concurrent create, are dropped and created again. */
+  protected void addMissingIndexes(Map<String, Table> metaDataTablesByNameLowerCase) {
+    List<Index> missingIndexes = new ArrayList<>();
+    Set<Index> invalidIndexes = new HashSet<>();
+    List<Table> existingTablesWithIndexes = tables.stream()
+      .filter(table->!table.getIndexes().isEmpty())
+      .filter(table->metaDataTablesByNameLowerCase.containsKey(table.getName().toLowerCase()))
+      .collect(Collectors.toList());
+    if (!existingTablesWithIndexes.isEmpty()) {
+      db.tx(tx->{
+        for (Table table: existingTablesWithIndexes) {
+          Set<String> indexNames = tx.getMetaDataIndexNames(table);
+          Set<String> invalidIndexNames = db.getDialect().getInvalidIndexNames(tx, table);
+          for (Index index: table.getIndexes()) {
+            String indexName = index.getName().toLowerCase();
+            if (invalidIndexNames.contains(indexName)) {
+              invalidIndexes.add(index);
+              missingIndexes.add(index);
+            } else if (!indexNames.contains(indexName)
+                       && (!index.isGin() || db.getDialect().supportsGinIndexes())) {
+              missingIndexes.add(index);
+            }
           }
+        }
+      });
+    }
+    for (Index index: missingIndexes) {
+      if (invalidIndexes.contains(index)) {
+        db.tx(tx->tx.newDropIndex(index)
+          .concurrently()
+          .execute());
+      }
+      db.tx(tx->tx.newCreateIndex(index)
+        .concurrently()
+        .execute());
+    }
+  }
+
+  /** True if the dialect {@link Dialect#supportsConcurrentDdl() supports concurrent DDL}
+   * and a wave has multiple tables that can be created in parallel */
+  protected boolean isCreateTablesConcurrently(List<List<Table>> waves) {
+    int maxWaveSize = waves.stream().mapToInt(List::size).max().orElse(0);
+    return parallelism>1 && maxWaveSize>1 && db.getDialect().supportsConcurrentDdl();
+  }
 
-          tx.newCreateTable(table).execute();
-          createdTables.add(table);
+  /** Creates the tables in waves.  A wave contains the tables of which
+   * all referenced tables are created.  The tables of a wave are created
+   * in parallel, each in its own transaction.  Foreign keys of tables
+   * in a cycle are added after all tables are created. */
+  protected void createTablesConcurrently(List<List<Table>> waves, Set<Table> createdTables, Map<Table, List<ForeignKey>> delayedForeignKeyConstraints) {
+    int maxWaveSize = waves.stream().mapToInt(List::size).max().orElse(0);
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, maxWaveSize));
+    try {
+      for (List<Table> wave: waves) {
+        List<CompletableFuture<Void>> creates = new ArrayList<>();
+        for (Table table: wave) {
+          delayForeignKeysToNonCreatedTables(table, createdTables, delayedForeignKeyConstraints);
+          creates.add(CompletableFuture.runAsync(()->db.tx(tx->tx.newCreateTable(table).execute()), executor));
         }
+        CompletableFuture.allOf(creates.toArray(new CompletableFuture<?>[0])).join();
+        createdTables.addAll(wave);
       }
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+    } finally {
+      executor.shutdown();
+    }
+  }
 
-      addDelayedForeignKeyConstraint(tx, delayedForeignKeyConstraints);
-    });
+  /** Creates the tables wave by wave in the given tx */
+  protected void createTables(Tx tx, List<List<Table>> waves, Set<Table> createdTables, Map<Table, List<ForeignKey>> delayedForeignKeyConstraints) {
+    for (List<Table> wave: waves) {
+      for (Table table: wave) {
+        delayForeignKeysToNonCreatedTables(table, createdTables, delayedForeignKeyConstraints);
+        tx.newCreateTable(table).execute();
+      }
+      createdTables.addAll(wave);
+    }
+  }
+
+  protected void delayForeignKeysToNonCreatedTables(Table table, Set<Table> createdTables, Map<Table, List<ForeignKey>> delayedForeignKeyConstraints) {
+    List<ForeignKey> foreignKeysToNonCreatedTables = extractForeignKeysToNonCreatedTables(table, createdTables);
+    if (Sets.isNotEmpty(foreignKeysToNonCreatedTables)) {
+      delayedForeignKeyConstraints.put(table, foreignKeysToNonCreatedTables);
+    }
+  }
+
+  /** Orders the tables over the foreign keys.  Each wave only references
+   * tables of previous waves.  A cycle is broken by putting the first
+   * remaining table in a wave of its own, its foreign keys are delayed. */
+  protected List<List<Table>> getCreateTableWaves(List<Table> tablesToCreate, Set<Table> createdTables) {
+    List<List<Table>> waves = new ArrayList<>();
+    Set<Table> remaining = new LinkedHashSet<>(tablesToCreate);
+    while (!remaining.isEmpty()) {
+      List<Table> wave = remaining.stream()
+        .filter(table->getReferencedTables(table).stream()
+          .noneMatch(referencedTable->referencedTable!=table && remaining.contains(referencedTable)))
+        .collect(Collectors.toList());
+      if (wave.isEmpty()) {
+        wave = Lists.of(remaining.iterator().next());
+      }
+      remaining.removeAll(wave);
+      waves.add(wave);
+    }
+    return waves;
+  }
+
+  protected Set<Table> getReferencedTables(Table table) {
+    Set<Table> referencedTables = new HashSet<>();
+    for (Column column: table.getColumns().values()) {
+      if (column.getConstraints()!=null) {
+        for (Constraint constraint: column.getConstraints()) {
+          if (constraint instanceof ForeignKey) {
+            referencedTables.add(((ForeignKey)constraint).getTo().getTable());
+          }
+        }
+      }
+    }
+    return referencedTables;
+  }
 
+  protected void executeUpdates() {
     List<String> dbSchemaUpdates = getDbSchemaUpdates();
     for (SchemaUpdate update: updates) {
       if (!dbSchemaUpdates.contains(update.getId())) {
@@ -361,4 +561,9 @@ public class SchemaManager {
   public List<SchemaUpdate> getUpdates() {
     return updates;
   }
+
+  /** Duration in millis of each phase of the last {@link #ensureCurrentSchema()} */
+  public Map<String, Long> getPhaseMillis() {
+    return phaseMillis;
+  }
 }
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.db.types;
+
+import ai.shape.basics.db.DataType;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Types;
+import java.util.Arrays;
+
+import static ai.shape.basics.util.Exceptions.exceptionWithCause;
+
+/** Binds an Object[] as a single JDBC array parameter,
+ * see {@link ai.shape.basics.db.conditions.InCondition} */
+public class ArrayType implements DataType {
+
+  static final int MAX_LOGGED_ELEMENTS = 10;
+
+  protected DataType elementType;
+
+  public ArrayType(DataType elementType) {
+    this.elementType = elementType;
+  }
+
+  /** Only the types of which the values are bound as is by all drivers */
+  public static boolean isSupportedElementType(DataType elementType) {
+    return elementType instanceof IntegerType
+      || elementType instanceof LongType
+      || elementType instanceof VarcharType;
+  }
+
+  @Override
+  public String getSql() {
+    return elementType.getSql()+" ARRAY";
+  }
+
+  /** The element type name without length as expected by {@link java.sql.Connection#createArrayOf(String, Object[])} */
+  protected String getElementTypeName() {
+    String sql = elementType.getSql();
+    int parenthesisIndex = sql.indexOf('(');
+    return (parenthesisIndex!=-1 ? sql.substring(0, parenthesisIndex) : sql).trim().toLowerCase();
+  }
+
+  @Override
+  public void setParameter(PreparedStatement statement, int jdbcParameterIndex, Object value) {
+    try {
+      if (value!=null) {
+        Object[] elements = (Object[]) value;
+        try {
+          statement.setArray(jdbcParameterIndex, statement.getConnection().createArrayOf(getElementTypeName(), elements));
+        } catch (SQLFeatureNotSupportedException e) {
+          // eg older H2 versions, which take the Object[] as array value
+          statement.setObject(jdbcParameterIndex, elements);
+        }
+      } else {
+        statement.setNull(jdbcParameterIndex, Types.ARRAY);
+      }
+    } catch (SQLException e) {
+      throw exceptionWithCause("set JDBC array parameter value "+getLogText(value), e);
+    }
+  }
+
+  @Override
+  public Object[] getResultSetValue(int index, ResultSet resultSet) {
+    try {
+      Array array = resultSet.getArray(index);
+      return array!=null ? (Object[]) array.getArray() : null;
+    } catch (SQLException e) {
+      throw exceptionWithCause("get JDBC array value "+index+" from result set", e);
+    }
+  }
+
+  /** Large arrays are logged with their first elements and the length */
+  @Override
+  public String getLogText(Object value) {
+    if (value==null) {
+      return "null";
+    }
+    Object[] elements = (Object[]) value;
+    if (elements.length<=MAX_LOGGED_ELEMENTS) {
+      return Arrays.toString(elements);
+    }
+    String firstElements = Arrays.toString(Arrays.copyOf(elements, MAX_LOGGED_ELEMENTS));
+    return firstElements.substring(0, firstElements.length()-1)+", ... "+elements.length+" elements]";
+  }
+
+  @Override
+  public int getSqlType() {
+    return Types.ARRAY;
+  }
+
+  public DataType getElementType() {
+    return elementType;
+  }
+}
@@ -36,6 +36,12 @@ public class BooleanType implements DataType {
     return "BOOLEAN";
   }
 
+  /** 1 and 0 because MySQL booleans are numbers */
+  @Override
+  public String getBulkLoadText(Object value) {
+    return Boolean.TRUE.equals(value) ? "1" : "0";
+  }
+
   @Override
   public void setParameter(PreparedStatement statement, int jdbcParameterIndex, Object value) {
     try {
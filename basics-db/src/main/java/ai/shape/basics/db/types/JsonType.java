@@ -18,12 +18,74 @@
  */
 package ai.shape.basics.db.types;
 
+import java.io.IOException;
+import java.sql.PreparedStatement;
+
+import static ai.shape.basics.util.Exceptions.exceptionWithCause;
+
+/** JSON text.  Parameter values can be a String or any object that the
+ * {@link #setJsonWriter(JsonWriter) json writer} serializes, eg with
+ * basics-gson: JsonType.setJsonWriter(gson::toJson) */
 public class JsonType extends ClobType {
 
   public static final JsonType INSTANCE = new JsonType();
 
+  /** Serializes a parameter value that is not a String */
+  public interface JsonWriter {
+    void write(Object value, Appendable out) throws IOException;
+  }
+
+  protected static volatile JsonWriter jsonWriter;
+
+  /** true for the binary JSONB storage of PostgreSQL */
+  protected boolean binary;
+
+  public static void setJsonWriter(JsonWriter jsonWriter) {
+    JsonType.jsonWriter = jsonWriter;
+  }
+
+  /** Stores the JSON parsed in a binary format on the databases that
+   * support it (JSONB on PostgreSQL), which makes the JSON conditions
+   * faster and allows GIN indexes, see {@link ai.shape.basics.db.Index#gin()}. */
+  public JsonType binary() {
+    this.binary = true;
+    return this;
+  }
+
+  public boolean isBinary() {
+    return binary;
+  }
+
   @Override
   public String getSql() {
     return "JSON";
   }
+
+  @Override
+  public void setParameter(PreparedStatement statement, int jdbcParameterIndex, Object value) {
+    super.setParameter(statement, jdbcParameterIndex, toJsonText(value));
+  }
+
+  @Override
+  public String getBulkLoadText(Object value) {
+    return toJsonText(value);
+  }
+
+  /** The value if it's a String, otherwise serialized with the json writer */
+  public static String toJsonText(Object value) {
+    if (value==null || value instanceof String) {
+      return (String) value;
+    }
+    JsonWriter jsonWriter = JsonType.jsonWriter;
+    if (jsonWriter==null) {
+      throw new RuntimeException("Call JsonType.setJsonWriter(...) to use "+value.getClass().getName()+" as JSON value");
+    }
+    try {
+      StringBuilder json = new StringBuilder();
+      jsonWriter.write(value, json);
+      return json.toString();
+    } catch (IOException e) {
+      throw exceptionWithCause("serialize JSON value "+value.getClass().getName(), e);
+    }
+  }
 }
@@ -33,7 +33,7 @@ public class LongType implements DataType {
 
   @Override
   public String getSql() {
-    return "INTEGER";
+    return "BIGINT";
   }
 
   @Override
@@ -43,7 +43,7 @@ public class LongType implements DataType {
         long longValue = value!=null ? ((Number) value).longValue() : null;
         statement.setLong(jdbcParameterIndex, longValue);
       } else {
-        statement.setNull(jdbcParameterIndex, Types.INTEGER);
+        statement.setNull(jdbcParameterIndex, Types.BIGINT);
       }
     } catch (SQLException e) {
       throw exceptionWithCause("set JDBC long appendParameter value "+value, e);
@@ -67,6 +67,6 @@ public class LongType implements DataType {
 
   @Override
   public int getSqlType() {
-    return Types.INTEGER;
+    return Types.BIGINT;
   }
 }
@@ -42,19 +42,7 @@ public class TimestampType implements DataType {
   @Override
   public void setParameter(PreparedStatement statement, int jdbcParameterIndex, Object value) {
     try {
-      Timestamp timestamp = null;
-
-      if (value!=null) {
-        if (value instanceof Timestamp) {
-          timestamp = (Timestamp) value;
-        } else if (value instanceof Date) {
-          timestamp = new Timestamp(((Date)value).getTime());
-        } else if (value instanceof LocalDateTime) {
-          timestamp = Timestamp.valueOf((LocalDateTime)value);
-        } else {
-          throw new RuntimeException("Unsupported data type: "+value);
-        }
-      }
+      Timestamp timestamp = toTimestamp(value);
 
       if (timestamp!=null) {
         statement.setTimestamp(jdbcParameterIndex, timestamp);
@@ -67,6 +55,25 @@ public class TimestampType implements DataType {
     }
   }
 
+  protected Timestamp toTimestamp(Object value) {
+    if (value==null) {
+      return null;
+    } else if (value instanceof Timestamp) {
+      return (Timestamp) value;
+    } else if (value instanceof Date) {
+      return new Timestamp(((Date)value).getTime());
+    } else if (value instanceof LocalDateTime) {
+      return Timestamp.valueOf((LocalDateTime)value);
+    }
+    throw new RuntimeException("Unsupported data type: "+value);
+  }
+
+  /** yyyy-mm-dd hh:mm:ss.fffffffff */
+  @Override
+  public String getBulkLoadText(Object value) {
+    return toTimestamp(value).toString();
+  }
+
   @Override
   public LocalDateTime getResultSetValue(int index, ResultSet resultSet) {
     try {
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import java.util.List;
+
+import static ai.shape.basics.db.Condition.gte;
+import static ai.shape.basics.db.SqlExpression.avg;
+import static ai.shape.basics.db.SqlExpression.count;
+import static ai.shape.basics.db.SqlExpression.countDistinct;
+import static ai.shape.basics.db.SqlExpression.max;
+import static ai.shape.basics.db.SqlExpression.sum;
+import static org.junit.Assert.assertEquals;
+
+public class AggregateTest {
+
+  static Column ID = new Column().name("id").typeInteger().primaryKey();
+  static Column CUSTOMER = new Column().name("customer").typeVarchar(255);
+  static Column PRODUCT = new Column().name("product").typeVarchar(255);
+  static Column AMOUNT = new Column().name("amount").typeInteger();
+  static Table ORDERS = new Table()
+    .name("aggregateOrders")
+    .column(ID)
+    .column(CUSTOMER)
+    .column(PRODUCT)
+    .column(AMOUNT);
+
+  @Test
+  public void testGroupByAndHaving() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:aggregateTest")
+      .build();
+    new SchemaManager()
+      .db(db)
+      .tables(ORDERS)
+      .createSchema();
+
+    db.tx(tx->tx.newBatchInsert(ORDERS)
+      .columns(ID, CUSTOMER, PRODUCT, AMOUNT)
+      .row(1, "ann", "apple", 10)
+      .row(2, "ann", "apple", 20)
+      .row(3, "ann", "pear", 30)
+      .row(4, "bob", "apple", 5)
+      .row(5, "cid", "pear", 100)
+      .execute());
+
+    List<String> totals = db.tx(tx->tx.setResult(tx
+      .newSelect(CUSTOMER, sum(AMOUNT), countDistinct(PRODUCT), count(), max(AMOUNT), avg(AMOUNT))
+      .from(ORDERS)
+      .groupBy(CUSTOMER)
+      .orderAsc(CUSTOMER)
+      .execute()
+      .getAll(selectResults->selectResults.get(CUSTOMER)
+        +" "+selectResults.getLong(sum(AMOUNT))
+        +" "+selectResults.getLong(countDistinct(PRODUCT))
+        +" "+selectResults.getLong(count())
+        +" "+selectResults.get(max(AMOUNT))
+        +" "+selectResults.get(avg(AMOUNT)))));
+    assertEquals("[ann 60 2 3 30 20.0, bob 5 1 1 5 5.0, cid 100 1 1 100 100.0]", totals.toString());
+
+    List<String> bigCustomers = db.tx(tx->tx.setResult(tx
+      .newSelect(CUSTOMER, sum(AMOUNT))
+      .from(ORDERS)
+      .groupBy(CUSTOMER)
+      .having(gte(sum(AMOUNT), 50))
+      .orderDesc(sum(AMOUNT))
+      .execute()
+      .getAll(selectResults->selectResults.get(CUSTOMER))));
+    assertEquals("[cid, ann]", bigCustomers.toString());
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.BatchFetch;
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.InMemoryDbMetrics;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static ai.shape.basics.db.Condition.gte;
+import static org.junit.Assert.assertEquals;
+
+public class BatchFetchTest {
+
+  static Column CUSTOMER_ID = new Column().name("id").typeInteger().primaryKey();
+  static Table CUSTOMERS = new Table()
+    .name("batchFetchCustomers")
+    .column(CUSTOMER_ID);
+
+  static Column ORDER_ID = new Column().name("id").typeInteger().primaryKey();
+  static Column ORDER_CUSTOMER_ID = new Column().name("customerId").typeInteger().foreignKey(CUSTOMER_ID);
+  static Column ORDER_AMOUNT = new Column().name("amount").typeInteger();
+  static Table ORDERS = new Table()
+    .name("batchFetchOrders")
+    .column(ORDER_ID)
+    .column(ORDER_CUSTOMER_ID)
+    .column(ORDER_AMOUNT);
+
+  @Test
+  public void testBatchFetch() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:batchFetchTest")
+      .build();
+    new SchemaManager()
+      .db(db)
+      .tables(CUSTOMERS, ORDERS)
+      .createSchema();
+
+    db.tx(tx->{
+      for (int c=1; c<=3; c++) {
+        tx.newInsert(CUSTOMERS).set(CUSTOMER_ID, c).execute();
+      }
+      tx.newBatchInsert(ORDERS)
+        .columns(ORDER_ID, ORDER_CUSTOMER_ID, ORDER_AMOUNT)
+        .row(1, 1, 30)
+        .row(2, 1, 10)
+        .row(3, 2, 20)
+        .row(4, 1, 5)
+        .execute();
+    });
+
+    InMemoryDbMetrics metrics = (InMemoryDbMetrics) db.getMetrics();
+    Map<Integer,List<Integer>> amountsByCustomer = db.tx(tx->tx.setResult(tx
+      .newBatchFetch(ORDER_CUSTOMER_ID)
+      .where(gte(ORDER_AMOUNT, 10))
+      .orderAsc(ORDER_AMOUNT)
+      .execute(Arrays.asList(1, 2, 3, 2), selectResults->selectResults.get(ORDER_AMOUNT))));
+
+    assertEquals("{1=[10, 30], 2=[20], 3=[]}", amountsByCustomer.toString());
+    assertEquals(1, metrics.getStatement("Select batchFetchOrders").getCount());
+
+    // a second execute only selects the children of its own parents
+    String secondAmounts = db.tx(tx->{
+      BatchFetch batchFetch = tx
+        .newBatchFetch(ORDER_CUSTOMER_ID)
+        .orderAsc(ORDER_AMOUNT);
+      batchFetch.execute(Arrays.asList(1), selectResults->selectResults.get(ORDER_AMOUNT));
+      tx.setResult(batchFetch
+        .execute(Arrays.asList(2), selectResults->selectResults.get(ORDER_AMOUNT))
+        .toString());
+    });
+    assertEquals("{2=[20]}", secondAmounts);
+  }
+}
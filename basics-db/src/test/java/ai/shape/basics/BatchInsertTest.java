@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.BatchInsert;
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.Tx;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ai.shape.basics.db.SqlExpression.count;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchInsertTest {
+
+  static Column ID = new Column()
+    .name("id")
+    .typeInteger()
+    .primaryKey();
+  static Column NAME = new Column()
+    .name("name")
+    .typeVarchar(255);
+  static Table TABLE = new Table()
+    .name("batchInsertTest")
+    .column(ID)
+    .column(NAME);
+
+  @Test
+  public void testBatchInsert() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:batchInsertTest")
+      .build();
+
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+
+    int inserted = db.tx(tx->{
+      tx.setResult(tx.newBatchInsert(TABLE)
+        .row()
+          .set(ID, 1)
+          .set(NAME, "one")
+        .row()
+          .set(ID, 2)
+        .execute());
+    });
+    assertEquals(2, inserted);
+
+    inserted = db.tx(tx->{
+      tx.setResult(tx.newBatchInsert(TABLE)
+        .columns(ID, NAME)
+        .flushSize(100)
+        .rowsPerStatement(7)
+        .row(3, "three")
+        .row(4, "four")
+        .execute());
+    });
+    assertEquals(2, inserted);
+
+    inserted = db.tx(tx->{
+      BatchInsert batchInsert = tx.newBatchInsert(TABLE)
+        .columns(ID, NAME)
+        .flushSize(100)
+        .rowsPerStatement(7);
+      for (int id=5; id<1005; id++) {
+        batchInsert.row(id, "name"+id);
+      }
+      tx.setResult(batchInsert.execute());
+    });
+    assertEquals(1000, inserted);
+
+    long count = db.tx(tx->{
+      tx.setResult(tx.newSelect(count())
+        .from(TABLE)
+        .execute()
+        .getFirst(selectResults->selectResults.get(count()))
+        .get());
+    });
+    assertEquals(1004, count);
+  }
+
+  @Test
+  public void testColumnDefaults() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:batchInsertTestDefaults")
+      .build();
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+    db.tx(tx->{
+      try (Statement statement = tx.getConnection().createStatement()) {
+        statement.execute("ALTER TABLE batchInsertTest ALTER COLUMN name SET DEFAULT 'default'");
+      }
+    });
+
+    db.tx(tx->tx.newBatchInsert(TABLE)
+      .columns(ID, NAME)
+      .flushSize(2)
+      // no row of the first flush sets the name, so the default applies
+      .row()
+        .set(ID, 1)
+      .row()
+        .set(ID, 2)
+      // in the second flush, the name is NULL in the row that doesn't set it
+      .row()
+        .set(ID, 3)
+        .set(NAME, "three")
+      .row()
+        .set(ID, 4)
+      .execute());
+
+    List<String> names = db.tx(tx->tx.setResult(tx.newSelect(NAME)
+      .from(TABLE)
+      .orderAsc(ID)
+      .execute()
+      .getAll(selectResults->selectResults.get(NAME))));
+    assertEquals(asList("default", "default", "three", null), names);
+  }
+
+  @Test
+  public void testStatementsClosedAfterFlush() throws Exception {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:batchInsertTestClose")
+      .build();
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+
+    List<PreparedStatement> jdbcStatements = new ArrayList<>();
+    try (Connection connection = db.getDataSource().getConnection()) {
+      Tx tx = new Tx(db, connection) {
+        @Override
+        public PreparedStatement createPreparedStatement(String sql) {
+          PreparedStatement jdbcStatement = super.createPreparedStatement(sql);
+          jdbcStatements.add(jdbcStatement);
+          return jdbcStatement;
+        }
+      };
+      BatchInsert batchInsert = tx.newBatchInsert(TABLE)
+        .columns(ID, NAME)
+        .flushSize(2)
+        .row(1, "one")
+        .row(2, "two")
+        .row(3, "three");
+      // the third row flushed the first two, execute is never called
+      assertEquals(1, jdbcStatements.size());
+      assertTrue(jdbcStatements.get(0).isClosed());
+
+      try {
+        // the duplicate key fails the flush
+        batchInsert
+          .row(3, "three again")
+          .execute();
+        fail("expected exception");
+      } catch (RuntimeException e) {
+        // expected
+      }
+    }
+    assertEquals(2, jdbcStatements.size());
+    for (PreparedStatement jdbcStatement: jdbcStatements) {
+      assertTrue(jdbcStatement.isClosed());
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Tx;
+import ai.shape.basics.db.id.BlockIdGenerator;
+import ai.shape.basics.db.id.IdBlockTable;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BlockIdGeneratorTest {
+
+  @Test
+  public void testBlockIdGenerator() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:blockIdGeneratorTest")
+      .build();
+
+    new SchemaManager()
+      .db(db)
+      .tables(IdBlockTable.TABLE)
+      .createSchema();
+
+    BlockIdGenerator generatorOne = new BlockIdGenerator(db, "users")
+      .blockSize(10);
+    BlockIdGenerator generatorTwo = new BlockIdGenerator(db, "users")
+      .blockSize(10);
+
+    assertEquals(1L, generatorOne.generateLongId());
+    assertEquals("u2", generatorOne.generateId("u"));
+
+    Set<Long> ids = new HashSet<>();
+    ids.add(1L);
+    ids.add(2L);
+    for (int i=0; i<100; i++) {
+      assertTrue(ids.add(generatorOne.generateLongId()));
+      assertTrue(ids.add(generatorTwo.generateLongId()));
+    }
+    assertEquals(202, ids.size());
+
+    // reserving blocks inside a tx leaves the current tx in place
+    BlockIdGenerator generatorThree = new BlockIdGenerator(db, "orders")
+      .blockSize(2);
+    db.tx(tx->{
+      for (int i=1; i<=5; i++) {
+        assertEquals(i, generatorThree.generateLongId());
+        assertSame(tx, Tx.getCurrentTx());
+      }
+    });
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.BulkLoadInputStream;
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.schema.SchemaManager;
+import ai.shape.basics.util.Io;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BulkLoadTest {
+
+  static final int ROWS = 10000;
+  static final String SPECIAL = "quote\" comma, tab\t newline\n backslash\\ \u00e9";
+
+  static Column ID = new Column()
+    .name("id")
+    .typeInteger()
+    .primaryKey();
+  static Column NAME = new Column()
+    .name("name")
+    .typeVarchar(255);
+  static Column ACTIVE = new Column()
+    .name("active")
+    .typeBoolean();
+  static Column CREATED = new Column()
+    .name("created")
+    .typeTimestamp();
+  static Table TABLE = new Table()
+    .name("bulkLoadTest")
+    .column(ID)
+    .column(NAME)
+    .column(ACTIVE)
+    .column(CREATED);
+
+  static final LocalDateTime CREATED_VALUE = LocalDateTime.of(2020, 1, 2, 3, 4, 5);
+
+  @Test
+  public void testTextFormat() {
+    List<Object[]> rows = asList(
+      new Object[]{1, SPECIAL, true, CREATED_VALUE},
+      new Object[]{2, null, false, null});
+    String text = Io.getString(
+      new BulkLoadInputStream(rows.iterator(), asList(ID, NAME, ACTIVE, CREATED), BulkLoadInputStream.Format.TEXT),
+      StandardCharsets.UTF_8);
+    assertEquals(
+      "1\tquote\" comma, tab\\t newline\\n backslash\\\\ \u00e9\t1\t2020-01-02 03:04:05.0\n"+
+      "2\t\\N\t0\t\\N\n", text);
+  }
+
+  @Test
+  public void testBulkLoad() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:bulkLoadTest")
+      .build();
+
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+
+    long rowCount = db.tx(tx->tx.setResult(tx.newBulkLoad(TABLE)
+      .columns(ID, NAME, ACTIVE, CREATED)
+      .execute(IntStream.range(0, ROWS)
+        .mapToObj(i->new Object[]{i, i==0 ? SPECIAL : i==1 ? null : "name"+i, i%2==0, CREATED_VALUE}))));
+    assertEquals(ROWS, rowCount);
+
+    db.tx(tx->{
+      List<Object[]> rows = tx.newSelect(ID, NAME, ACTIVE, CREATED)
+        .from(TABLE)
+        .orderAsc(ID)
+        .execute()
+        .getAll(results->new Object[]{results.get(ID), results.get(NAME), results.get(ACTIVE), results.get(CREATED)});
+      assertEquals(ROWS, rows.size());
+      assertEquals(SPECIAL, rows.get(0)[1]);
+      assertEquals(true, rows.get(0)[2]);
+      assertEquals(CREATED_VALUE, rows.get(0)[3]);
+      assertNull(rows.get(1)[1]);
+      assertEquals(false, rows.get(1)[2]);
+      assertEquals("name9999", rows.get(ROWS-1)[1]);
+    });
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Histogram;
+import ai.shape.basics.db.InMemoryDbMetrics;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DbMetricsTest {
+
+  static Column ID = new Column()
+    .name("id")
+    .typeInteger()
+    .primaryKey();
+  static Table TABLE = new Table()
+    .name("metricsTest")
+    .column(ID);
+
+  @Test
+  public void testHistogram() {
+    Histogram histogram = new Histogram();
+    assertEquals(0, histogram.getPercentileNanos(0.99));
+    for (int i=1; i<=100; i++) {
+      histogram.record(i*1000);
+    }
+    assertEquals(100, histogram.getCount());
+    assertEquals(100000, histogram.getMaxNanos());
+    assertEquals(50500, histogram.getMeanNanos());
+    long p50 = histogram.getPercentileNanos(0.5);
+    // accurate up to a factor 2
+    assertTrue(p50>=50000 && p50<100000);
+    assertEquals(100000, histogram.getPercentileNanos(1));
+  }
+
+  @Test
+  public void testDbMetrics() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:metricsTest")
+      .property(Db.CONFIGURATION_NAME_SLOW_QUERY_MILLIS, "1000")
+      .build();
+
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+
+    InMemoryDbMetrics metrics = (InMemoryDbMetrics) db.getMetrics();
+    long commits = metrics.getCommits().getCount();
+    long connectionAcquires = metrics.getConnectionAcquires().getCount();
+
+    db.tx(tx->tx.newInsert(TABLE)
+      .set(ID, 1)
+      .execute());
+    db.tx(tx->tx.newSelect(ID)
+      .from(TABLE)
+      .execute()
+      .close());
+    try {
+      db.tx(tx->{
+        throw new RuntimeException("rollback");
+      });
+      fail("expected exception");
+    } catch (RuntimeException e) {
+      assertEquals("rollback", e.getMessage());
+    }
+
+    assertEquals(commits+2, metrics.getCommits().getCount());
+    assertEquals(1, metrics.getRollbacks().getCount());
+    assertEquals(connectionAcquires+3, metrics.getConnectionAcquires().getCount());
+    assertNotNull(metrics.getStatement("Insert metricsTest"));
+    assertEquals(1, metrics.getStatement("Select metricsTest").getCount());
+
+    assertEquals(0, db.getActiveConnections());
+    assertTrue(db.getTotalConnections()>0);
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.EntityCache;
+import ai.shape.basics.db.PreparedQuery;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static ai.shape.basics.db.Condition.equal;
+import static ai.shape.basics.db.PreparedQuery.parameter;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class EntityCacheTest {
+
+  static Column ID = new Column()
+    .name("id")
+    .typeInteger()
+    .primaryKey();
+  static Column NAME = new Column()
+    .name("name")
+    .typeVarchar(255);
+  static Table TABLE = new Table()
+    .name("entityCacheTest")
+    .column(ID)
+    .column(NAME);
+
+  @Test
+  public void testEntityCache() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:entityCacheTest")
+      .build()
+      .entityCache(TABLE, 100, 60000);
+    EntityCache entityCache = db.getEntityCache(TABLE);
+
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+
+    db.tx(tx->tx.newInsert(TABLE)
+      .set(ID, 1)
+      .set(NAME, "one")
+      .execute());
+
+    assertEquals("one", selectName(db, 1).get());
+    assertEquals(0, entityCache.getHits());
+    assertEquals(1, entityCache.getLoads());
+    assertEquals("one", selectName(db, 1).get());
+    assertEquals(1, entityCache.getHits());
+
+    // rolled back updates don't invalidate
+    try {
+      db.tx(tx->{
+        tx.newUpdate(TABLE)
+          .set(NAME, "uno")
+          .where(equal(ID, 1))
+          .execute();
+        // within the tx the cache is bypassed
+        assertEquals("uno", tx.newSelect(TABLE)
+          .where(equal(ID, 1))
+          .execute()
+          .getFirst(selectResults->selectResults.get(NAME))
+          .get());
+        throw new RuntimeException("rollback");
+      });
+    } catch (RuntimeException e) {
+      assertEquals("rollback", e.getMessage());
+    }
+    assertEquals(1, entityCache.getSize());
+    assertEquals("one", selectName(db, 1).get());
+
+    // committed updates invalidate
+    db.tx(tx->tx.newUpdate(TABLE)
+      .set(NAME, "uno")
+      .where(equal(ID, 1L))
+      .execute());
+    assertEquals(0, entityCache.getSize());
+    assertEquals("uno", selectName(db, 1).get());
+    assertEquals(2, entityCache.getLoads());
+
+    // prepared updates invalidate by the primary key parameter value
+    PreparedQuery renameQuery = new PreparedQuery(tx->tx.newUpdate(TABLE)
+      .set(NAME, parameter("name"))
+      .where(equal(ID, parameter("id"))));
+    db.tx(tx->renameQuery.with(tx)
+      .set("name", "een")
+      .set("id", 1)
+      .update());
+    assertEquals(0, entityCache.getSize());
+    assertEquals("een", selectName(db, 1).get());
+    assertEquals(3, entityCache.getLoads());
+
+    db.tx(tx->tx.newDelete(TABLE)
+      .where(equal(ID, 1))
+      .execute());
+    assertFalse(selectName(db, 1).isPresent());
+    assertEquals(0, entityCache.getSize());
+  }
+
+  static Optional<String> selectName(Db db, int id) {
+    return db.tx(tx->tx.setResult(tx.newSelect(TABLE)
+      .where(equal(ID, id))
+      .execute()
+      .getFirst(selectResults->selectResults.get(NAME))));
+  }
+}
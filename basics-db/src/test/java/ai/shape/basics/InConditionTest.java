@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static ai.shape.basics.db.Condition.in;
+import static ai.shape.basics.db.SqlExpression.count;
+import static org.junit.Assert.assertEquals;
+
+public class InConditionTest {
+
+  static Column ID = new Column().name("id").typeInteger().primaryKey();
+  static Column NAME = new Column().name("name").typeVarchar(255);
+  /** double isn't bound as array, so it uses the buckets on all dialects */
+  static Column SCORE = new Column().name("score").typeDouble();
+  static Table TABLE = new Table()
+    .name("inConditionTest")
+    .column(ID)
+    .column(NAME)
+    .column(SCORE);
+
+  static List<Integer> ids(int count) {
+    // multiples of 3, the ones from 5000 are not in the table
+    return IntStream.range(0, count).map(i->i*3).boxed().collect(Collectors.toList());
+  }
+
+  static long countIn(Db db, Column column, List<?> values) {
+    return db.tx(tx->tx.setResult(tx.newSelect(count())
+      .from(TABLE)
+      .where(in(column, values))
+      .execute()
+      .getFirst(selectResults->selectResults.getLong(count()))
+      .get()));
+  }
+
+  @Test
+  public void testInStrategies() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:inConditionTest")
+      .build();
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+    db.tx(tx->{
+      for (int i=0; i<5000; i++) {
+        tx.newInsert(TABLE).set(ID, i).set(NAME, "n"+i).set(SCORE, (double) i).execute();
+      }
+    });
+
+    // padded to 8 parameters
+    assertEquals(5, countIn(db, ID, ids(5)));
+    // one array parameter
+    assertEquals(100, countIn(db, ID, ids(100)));
+    assertEquals(1667, countIn(db, ID, ids(2500)));
+
+    // 2 buckets of 1024 and 1 of 512 parameters
+    List<Double> scores = ids(2500).stream().map(Integer::doubleValue).collect(Collectors.toList());
+    assertEquals(1667, countIn(db, SCORE, scores));
+    assertEquals(5, countIn(db, SCORE, scores.subList(0, 5)));
+  }
+}
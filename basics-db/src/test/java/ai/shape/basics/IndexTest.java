@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.CreateIndex;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Dialect;
+import ai.shape.basics.db.DropIndex;
+import ai.shape.basics.db.Index;
+import ai.shape.basics.db.SqlBuilder;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.Tx;
+import ai.shape.basics.db.dialects.PostgreSQLDialect;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IndexTest {
+
+  static Table createTable(boolean withNameIndex) {
+    Column id = new Column().name("id").typeInteger().primaryKey();
+    Column email = new Column().name("email").typeVarchar(255);
+    Column tenant = new Column().name("tenant").typeVarchar(255);
+    Column name = new Column().name("name").typeVarchar(255);
+    Table table = new Table()
+      .name("indexTest")
+      .column(id)
+      .column(email)
+      .column(tenant)
+      .column(name)
+      .index(new Index()
+        .columns(tenant, email)
+        .unique());
+    if (withNameIndex) {
+      table.index(new Index()
+        .name("idx_indexTest_name")
+        .column(name)
+        // only applied on PostgreSQL
+        .include(email));
+    }
+    return table;
+  }
+
+  @Test
+  public void testIndexes() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:indexTest")
+      .build();
+
+    Table tableV1 = createTable(false);
+    new SchemaManager()
+      .db(db)
+      .tables(tableV1)
+      .ensureCurrentSchema();
+
+    Set<String> indexNames = db.tx(tx->tx.setResult(tx.getMetaDataIndexNames(tableV1)));
+    assertTrue(indexNames.contains("idx_indextest_tenant_email"));
+    assertFalse(indexNames.contains("idx_indextest_name"));
+
+    Column tenant = tableV1.getColumns().get("tenant");
+    Column email = tableV1.getColumns().get("email");
+    db.tx(tx->tx.newInsert(tableV1).set(tableV1.getPrimaryKeyColumn(), 1).set(tenant, "t").set(email, "e").execute());
+    try {
+      db.tx(tx->tx.newInsert(tableV1).set(tableV1.getPrimaryKeyColumn(), 2).set(tenant, "t").set(email, "e").execute());
+      fail("expected unique index violation");
+    } catch (RuntimeException e) {
+      // expected
+    }
+
+    // the upgrade adds the missing index to the existing table
+    Table tableV2 = createTable(true);
+    new SchemaManager()
+      .db(db)
+      .tables(tableV2)
+      .ensureCurrentSchema();
+
+    indexNames = db.tx(tx->tx.setResult(tx.getMetaDataIndexNames(tableV2)));
+    assertTrue(indexNames.contains("idx_indextest_name"));
+  }
+
+  /** Checks the PostgreSQL sql without a PostgreSQL database */
+  @Test
+  public void testConcurrentIndexes() {
+    Properties properties = new Properties();
+    properties.setProperty(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:concurrentIndexTest");
+    Db db = new Db(properties) {
+      @Override
+      protected Dialect getDialect(Properties properties) {
+        return PostgreSQLDialect.INSTANCE;
+      }
+    };
+    Table table = createTable(true);
+    db.getDialect().initializeTable(table);
+    Index nameIndex = table.getIndexes().get(1);
+
+    // a statement was already executed in the tx
+    Tx tx = new Tx(db, null) {
+      @Override
+      public int getStatementCount() {
+        return 1;
+      }
+    };
+
+    CreateIndex createIndex = tx.newCreateIndex(nameIndex).concurrently();
+    SqlBuilder createIndexSql = db.getDialect().newCreateIndexSql(createIndex);
+    createIndexSql.buildSqlNew();
+    assertEquals("CREATE INDEX CONCURRENTLY idx_indexTest_name ON indexTest (name) INCLUDE (email);", createIndexSql.getSql());
+
+    DropIndex dropIndex = tx.newDropIndex(nameIndex).concurrently().ifExists();
+    SqlBuilder dropIndexSql = db.getDialect().newDropIndexSql(dropIndex);
+    dropIndexSql.buildSqlNew();
+    assertEquals("DROP INDEX CONCURRENTLY IF EXISTS idx_indexTest_name;", dropIndexSql.getSql());
+
+    // switching to auto commit would commit the earlier statements
+    try {
+      createIndex.execute();
+      fail("expected exception");
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("must be the first statement"));
+    }
+    try {
+      dropIndex.execute();
+      fail("expected exception");
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("must be the first statement"));
+    }
+  }
+}
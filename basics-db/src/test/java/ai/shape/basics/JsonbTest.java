@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Index;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.schema.SchemaManager;
+import ai.shape.basics.db.types.JsonType;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import static ai.shape.basics.db.Condition.equal;
+import static ai.shape.basics.db.Condition.jsonPathEqual;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonbTest {
+
+  static Column ID = new Column().name("id").typeInteger().primaryKey();
+  static Column DATA = new Column().name("data").typeJsonb();
+  static Table TABLE = new Table()
+    .name("jsonbTest")
+    .column(ID)
+    .column(DATA)
+    .index(new Index().column(DATA).gin());
+
+  @Test
+  public void testJsonb() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:jsonbTest")
+      .build();
+    // GIN indexes are skipped on H2
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+    Set<String> indexNames = db.tx(tx->tx.setResult(tx.getMetaDataIndexNames(TABLE)));
+    assertFalse(indexNames.toString(), indexNames.contains("idx_jsonbtest_data"));
+
+    // a simple writer for maps, in an app that would be gson::toJson
+    JsonType.setJsonWriter((value, out)->{
+      Map<?,?> map = (Map<?,?>) value;
+      out.append("{");
+      for (Map.Entry<?,?> entry: map.entrySet()) {
+        out.append("\"").append(entry.getKey().toString()).append("\":\"").append(entry.getValue().toString()).append("\"");
+      }
+      out.append("}");
+    });
+    try {
+      db.tx(tx->{
+        tx.newInsert(TABLE).set(ID, 1).set(DATA, "{\"city\":\"Brussels\"}").execute();
+        tx.newInsert(TABLE).set(ID, 2).set(DATA, Collections.singletonMap("city", "Ghent")).execute();
+      });
+    } finally {
+      JsonType.setJsonWriter(null);
+    }
+    String json = db.tx(tx->tx.setResult(tx.newSelect(TABLE)
+      .where(equal(ID, 2))
+      .execute()
+      .getFirst(selectResults->selectResults.get(DATA))
+      .get()));
+    assertEquals("{\"city\":\"Ghent\"}", json);
+
+    try {
+      db.tx(tx->tx.newSelect(TABLE)
+        .where(jsonPathEqual(DATA, "city", "Ghent"))
+        .execute()
+        .logAllRows());
+      fail("expected JSON path conditions not to be supported by H2");
+    } catch (RuntimeException e) {
+      assertTrue(e.toString(), e.toString().contains("not supported by H2Dialect"));
+    }
+  }
+}
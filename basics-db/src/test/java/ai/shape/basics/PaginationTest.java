@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.BatchInsert;
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Dialect;
+import ai.shape.basics.db.Page;
+import ai.shape.basics.db.Select;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.Tx;
+import ai.shape.basics.db.dialects.MySQLDialect;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PaginationTest {
+
+  static Column ID = new Column()
+    .name("id")
+    .typeInteger()
+    .primaryKey();
+  static Column GROUP = new Column()
+    .name("grp")
+    .typeInteger();
+  static Table TABLE = new Table()
+    .name("paginationTest")
+    .column(ID)
+    .column(GROUP);
+
+  @Test
+  public void testPagination() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:paginationTest")
+      .build();
+
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+
+    db.tx(tx->{
+      BatchInsert batchInsert = tx.newBatchInsert(TABLE)
+        .columns(ID, GROUP);
+      for (int id=1; id<=10; id++) {
+        batchInsert.row(id, id%3);
+      }
+      batchInsert.execute();
+    });
+
+    List<Integer> ids = db.tx(tx->tx.setResult(tx.newSelect(ID)
+      .from(TABLE)
+      .orderAsc(ID)
+      .limit(3)
+      .offset(2)
+      .execute()
+      .getAll(selectResults->selectResults.get(ID))));
+    assertEquals(asList(3, 4, 5), ids);
+
+    // mixed directions: grp desc, id asc
+    List<Integer> allIds = new ArrayList<>();
+    String continuationToken = null;
+    int pages = 0;
+    do {
+      String pageToken = continuationToken;
+      Page<Integer> page = db.tx(tx->tx.setResult(tx.newSelect(TABLE)
+        .orderDesc(GROUP)
+        .orderAsc(ID)
+        .seekToken(pageToken)
+        .limit(4)
+        .execute()
+        .getPage(selectResults->selectResults.get(ID))));
+      allIds.addAll(page.getRows());
+      continuationToken = page.getContinuationToken();
+      pages++;
+    } while (continuationToken!=null);
+    assertEquals(asList(2, 5, 8, 1, 4, 7, 10, 3, 6, 9), allIds);
+    assertEquals(3, pages);
+
+    Page<Integer> page = db.tx(tx->tx.setResult(tx.newSelect(TABLE)
+      .orderAsc(ID)
+      .seekAfter(8)
+      .limit(5)
+      .execute()
+      .getPage(selectResults->selectResults.get(ID))));
+    assertEquals(asList(9, 10), page.getRows());
+    assertFalse(page.hasNext());
+  }
+
+  @Test
+  public void testMySQLOffsetWithoutLimit() {
+    // the Db connects to H2, but generates sql with the MySQL dialect
+    Properties properties = new Properties();
+    properties.setProperty(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:paginationTestMySQL");
+    Db db = new Db(properties) {
+      @Override
+      protected Dialect getDialect(Properties properties) {
+        return new MySQLDialect();
+      }
+    };
+    db.getDialect().initializeTable(TABLE);
+    List<String> sqls = new ArrayList<>();
+    Tx tx = new Tx(db, null) {
+      @Override
+      public PreparedStatement createPreparedStatement(String sql) {
+        sqls.add(sql);
+        throw new UnsupportedOperationException("no database");
+      }
+    };
+
+    executeIgnoringFailure(tx.newSelect(TABLE).offset(20));
+    executeIgnoringFailure(tx.newSelect(TABLE).limit(10).offset(20));
+    assertTrue(sqls.get(0), sqls.get(0).contains("LIMIT 18446744073709551615 \nOFFSET ?"));
+    assertFalse(sqls.get(1), sqls.get(1).contains("18446744073709551615"));
+  }
+
+  static void executeIgnoringFailure(Select select) {
+    try {
+      select.execute();
+      fail("expected exception");
+    } catch (RuntimeException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.BatchInsert;
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Condition;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.ParallelScan;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static ai.shape.basics.db.Condition.and;
+import static ai.shape.basics.db.Condition.gte;
+import static ai.shape.basics.db.Condition.lt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelScanTest {
+
+  static final int ROWS = 1000;
+
+  static Column ID = new Column()
+    .name("id")
+    .typeInteger()
+    .primaryKey();
+  static Column NAME = new Column()
+    .name("name")
+    .typeVarchar(255);
+  static Table TABLE = new Table()
+    .name("parallelScanTest")
+    .column(ID)
+    .column(NAME);
+
+  @Test
+  public void testParallelScan() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:parallelScanTest")
+      .build();
+
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+
+    assertEquals(0, new ParallelScan(db, TABLE)
+      .execute(results->results.getInt(ID), id->fail("empty table")));
+
+    db.tx(tx->{
+      BatchInsert batchInsert = tx.newBatchInsert(TABLE).columns(ID, NAME);
+      // a gap in the keys leaves some partitions empty
+      for (int i=0; i<ROWS; i++) {
+        int id = i<ROWS/2 ? i : i+10000;
+        batchInsert.row(id, "name"+id);
+      }
+      batchInsert.execute();
+    });
+
+    List<Integer> ids = new ArrayList<>();
+    long rowCount = new ParallelScan(db, TABLE)
+      .parallelism(3)
+      .partitions(7)
+      .queueSize(10)
+      .fetchSize(50)
+      .execute(results->results.getInt(ID), ids::add);
+    assertEquals(ROWS, rowCount);
+    Collections.sort(ids);
+    for (int i=0; i<ROWS; i++) {
+      assertEquals(i<ROWS/2 ? i : i+10000, (int) ids.get(i));
+    }
+
+    // the shared and filter must not collect the key range conditions of the partitions
+    Condition filter = and(gte(ID, 100), lt(ID, 10100));
+    List<Integer> filteredIds = Collections.synchronizedList(new ArrayList<>());
+    rowCount = new ParallelScan(db, TABLE)
+      .parallelism(3)
+      .partitions(7)
+      .where(filter)
+      .execute(results->results.getInt(ID), filteredIds::add);
+    assertEquals(ROWS/2-100, rowCount);
+    assertEquals(ROWS/2-100, filteredIds.size());
+    for (int id: filteredIds) {
+      assertTrue(id>=100 && id<ROWS/2);
+    }
+
+    try {
+      new ParallelScan(db, TABLE)
+        .queueSize(1)
+        .execute(results->results.getInt(ID), id->{
+          throw new RuntimeException("consumer failure");
+        });
+      fail("expected exception");
+    } catch (RuntimeException e) {
+      assertEquals("consumer failure", e.getMessage());
+    }
+  }
+}
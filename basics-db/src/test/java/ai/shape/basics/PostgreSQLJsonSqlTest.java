@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Dialect;
+import ai.shape.basics.db.Index;
+import ai.shape.basics.db.Select;
+import ai.shape.basics.db.SqlBuilder;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.Tx;
+import ai.shape.basics.db.dialects.PostgreSQLDialect;
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static ai.shape.basics.db.Condition.and;
+import static ai.shape.basics.db.Condition.jsonContains;
+import static ai.shape.basics.db.Condition.jsonPathEqual;
+import static org.junit.Assert.assertTrue;
+
+/** Checks the generated PostgreSQL sql without a PostgreSQL database:
+ * the Db connects to H2, but generates sql with the PostgreSQL dialect. */
+public class PostgreSQLJsonSqlTest {
+
+  static Column ID = new Column().name("id").typeInteger().primaryKey();
+  static Column DATA = new Column().name("data").typeJsonb();
+  static Table TABLE = new Table()
+    .name("jsonbSql")
+    .column(ID)
+    .column(DATA);
+  static Index DATA_INDEX = new Index().column(DATA).gin();
+  static {
+    TABLE.index(DATA_INDEX);
+  }
+
+  static String buildSql(SqlBuilder sqlBuilder) {
+    sqlBuilder.buildSqlNew();
+    return sqlBuilder.getSql();
+  }
+
+  @Test
+  public void testJsonbSql() {
+    Properties properties = new Properties();
+    properties.setProperty(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:postgreSQLJsonSqlTest");
+    Db db = new Db(properties) {
+      @Override
+      protected Dialect getDialect(Properties properties) {
+        return PostgreSQLDialect.INSTANCE;
+      }
+    };
+    Dialect dialect = db.getDialect();
+    dialect.initializeTable(TABLE);
+    Tx tx = new Tx(db, null);
+
+    String createTableSql = buildSql(dialect.newCreateTableSql(tx.newCreateTable(TABLE)));
+    assertTrue(createTableSql, createTableSql.contains("data JSONB"));
+
+    String createIndexSql = buildSql(dialect.newCreateIndexSql(tx.newCreateIndex(DATA_INDEX)));
+    assertTrue(createIndexSql, createIndexSql.contains("ON jsonbSql USING GIN (data)"));
+
+    Select select = tx.newSelect(ID)
+      .from(TABLE)
+      .where(and(
+        jsonContains(DATA, "{\"tags\":[\"new\"]}"),
+        jsonPathEqual(DATA, "address.city", "Ghent")));
+    select.getWhereCondition().collectParameters(select);
+    String selectSql = buildSql(dialect.newSelectSql(select));
+    assertTrue(selectSql, selectSql.contains("data @> CAST(? AS jsonb)"));
+    assertTrue(selectSql, selectSql.contains("data #>> '{\"address\",\"city\"}' = ?"));
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.PreparedQuery;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.Tx;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ai.shape.basics.db.Condition.equal;
+import static ai.shape.basics.db.PreparedQuery.parameter;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PreparedQueryTest {
+
+  static Column ID = new Column()
+    .name("id")
+    .typeInteger()
+    .primaryKey();
+  static Column NAME = new Column()
+    .name("name")
+    .typeVarchar(255);
+  static Table TABLE = new Table()
+    .name("preparedQueryTest")
+    .column(ID)
+    .column(NAME);
+
+  AtomicInteger definitions = new AtomicInteger();
+
+  PreparedQuery selectName = new PreparedQuery(tx->{
+    definitions.incrementAndGet();
+    return tx.newSelect(TABLE)
+      .where(equal(ID, parameter("id")));
+  });
+
+  PreparedQuery rename = new PreparedQuery(tx->{
+    definitions.incrementAndGet();
+    return tx.newUpdate(TABLE)
+      .set(NAME, parameter("name"))
+      .where(equal(ID, parameter("id")));
+  });
+
+  @Test
+  public void testDefinedOnceExecutedMany() {
+    Db db = createDb("preparedQueryTest", "name");
+
+    for (int i=1; i<=3; i++) {
+      assertEquals("name"+i, selectName(db, i));
+    }
+    db.tx(tx->{
+      for (int i=1; i<=3; i++) {
+        assertEquals(1, rename.with(tx)
+          .set("name", "renamed"+i)
+          .set("id", i)
+          .update());
+      }
+    });
+    for (int i=1; i<=3; i++) {
+      assertEquals("renamed"+i, selectName(db, i));
+    }
+    assertEquals(2, definitions.get());
+  }
+
+  @Test
+  public void testCompiledPerDb() {
+    Db dbOne = createDb("preparedQueryTestOne", "one");
+    Db dbTwo = createDb("preparedQueryTestTwo", "two");
+
+    assertEquals("one1", selectName(dbOne, 1));
+    assertEquals(1, definitions.get());
+    assertEquals("one2", selectName(dbOne, 2));
+    assertEquals(1, definitions.get());
+    // another db defines the statement again
+    assertEquals("two1", selectName(dbTwo, 1));
+    assertEquals(2, definitions.get());
+    assertEquals("two2", selectName(dbTwo, 2));
+    assertEquals(2, definitions.get());
+  }
+
+  @Test
+  public void testStatementClosedWhenBindingFails() throws Exception {
+    Db db = createDb("preparedQueryTestBinding", "name");
+    List<PreparedStatement> jdbcStatements = new ArrayList<>();
+    try (Connection connection = db.getDataSource().getConnection()) {
+      Tx tx = new Tx(db, connection) {
+        @Override
+        public PreparedStatement createPreparedStatement(String sql) {
+          PreparedStatement jdbcStatement = super.createPreparedStatement(sql);
+          jdbcStatements.add(jdbcStatement);
+          return jdbcStatement;
+        }
+      };
+      try {
+        selectName.with(tx).set("id", "not a number").select();
+        fail("expected exception");
+      } catch (ClassCastException e) {
+        // expected
+      }
+      try {
+        rename.with(tx).set("id", 1).update();
+        fail("expected exception");
+      } catch (RuntimeException e) {
+        assertTrue(e.getMessage().contains("name"));
+      }
+    }
+    assertEquals(2, jdbcStatements.size());
+    for (PreparedStatement jdbcStatement: jdbcStatements) {
+      assertTrue(jdbcStatement.isClosed());
+    }
+  }
+
+  String selectName(Db db, int id) {
+    return db.tx(tx->tx.setResult(selectName.with(tx)
+      .set("id", id)
+      .select()
+      .getFirst(selectResults->selectResults.get(NAME))
+      .get()));
+  }
+
+  static Db createDb(String name, String namePrefix) {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:"+name)
+      .build();
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+    db.tx(tx->{
+      for (int i=1; i<=3; i++) {
+        tx.newInsert(TABLE)
+          .set(ID, i)
+          .set(NAME, namePrefix+i)
+          .execute();
+      }
+    });
+    return db;
+  }
+}
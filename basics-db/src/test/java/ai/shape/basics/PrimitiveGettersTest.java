@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import static ai.shape.basics.db.Condition.equal;
+import static ai.shape.basics.db.SqlExpression.max;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** {@link ai.shape.basics.db.SelectResults#getLong(ai.shape.basics.db.SqlExpression)},
+ * getInt and getBoolean */
+public class PrimitiveGettersTest {
+
+  static Column ID = new Column()
+    .name("id")
+    .typeInteger()
+    .primaryKey();
+  static Column VISITS = new Column()
+    .name("visits")
+    .typeLong();
+  static Column ACTIVE = new Column()
+    .name("active")
+    .typeBoolean();
+  static Table TABLE = new Table()
+    .name("primitiveGettersTest")
+    .column(ID)
+    .column(VISITS)
+    .column(ACTIVE);
+
+  @Test
+  public void testPrimitiveGetters() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:primitiveGettersTest")
+      .build();
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+
+    db.tx(tx->tx.newBatchInsert(TABLE)
+      .columns(ID, VISITS, ACTIVE)
+      .row(1, 5000000000L, true)
+      .row(2, null, null)
+      .execute());
+
+    // the selected instances are found by identity
+    assertEquals("1 5000000000 true", db.tx(tx->tx.setResult(tx.newSelect(TABLE)
+      .where(equal(ID, 1))
+      .execute()
+      .getFirst(selectResults->selectResults.getInt(ID)
+        +" "+selectResults.getLong(VISITS)
+        +" "+selectResults.getBoolean(ACTIVE))
+      .get())));
+
+    // SQL NULL is 0 and false
+    assertEquals("2 0 false", db.tx(tx->tx.setResult(tx.newSelect(TABLE)
+      .where(equal(ID, 2))
+      .execute()
+      .getFirst(selectResults->selectResults.getInt(ID)
+        +" "+selectResults.getLong(VISITS)
+        +" "+selectResults.getBoolean(ACTIVE))
+      .get())));
+
+    // an equal but not identical expression falls back to equals
+    assertEquals(5000000000L, (long) db.tx(tx->tx.setResult(tx.newSelect(max(VISITS))
+      .from(TABLE)
+      .execute()
+      .getFirst(selectResults->selectResults.getLong(max(VISITS)))
+      .get())));
+    assertEquals(0L, (long) db.tx(tx->tx.setResult(tx.newSelect(max(VISITS))
+      .from(TABLE)
+      .where(equal(ID, 2))
+      .execute()
+      .getFirst(selectResults->selectResults.getLong(max(VISITS)))
+      .get())));
+
+    // fields that are not selected are an error
+    db.tx(tx->{
+      try {
+        tx.newSelect(ID)
+          .from(TABLE)
+          .where(equal(ID, 1))
+          .execute()
+          .getFirst(selectResults->selectResults.getBoolean(ACTIVE));
+        fail("expected exception");
+      } catch (RuntimeException e) {
+        assertTrue(e.getMessage(), e.getMessage().contains("not included in the select fields"));
+      }
+    });
+    assertFalse(db.tx(tx->tx.setResult(tx.newSelect(ID, ACTIVE)
+      .from(TABLE)
+      .where(equal(ID, 2))
+      .execute()
+      .getFirst(selectResults->selectResults.getBoolean(ACTIVE))
+      .get())));
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Index;
+import ai.shape.basics.db.QueryPlan;
+import ai.shape.basics.db.QueryPlanChecker;
+import ai.shape.basics.db.Select;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.dialects.PostgreSQLDialect;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import static ai.shape.basics.db.Condition.equal;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QueryPlanTest {
+
+  static Column ID = new Column().name("id").typeInteger().primaryKey();
+  static Column EMAIL = new Column().name("email").typeVarchar(255);
+  static Column NAME = new Column().name("name").typeVarchar(255);
+  static Table TABLE = new Table()
+    .name("queryPlanTest")
+    .column(ID)
+    .column(EMAIL)
+    .column(NAME)
+    .index(new Index().column(EMAIL));
+
+  @Test
+  public void testExplain() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:queryPlanTest")
+      .build();
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+
+    QueryPlan indexPlan = db.tx(tx->tx.setResult(tx.newSelect(TABLE).where(equal(EMAIL, "e")).explain()));
+    assertFalse(indexPlan.toString(), indexPlan.hasFullScan(TABLE));
+    assertTrue(indexPlan.toString(), indexPlan.getIndexes().contains("idx_queryplantest_email"));
+
+    // explain doesn't change the parameters of the select
+    String name = db.tx(tx->{
+      tx.newInsert(TABLE).set(ID, 1).set(EMAIL, "e").set(NAME, "n").execute();
+      Select select = tx.newSelect(TABLE).where(equal(EMAIL, "e"));
+      select.explain();
+      tx.setResult(select.execute().getFirst(selectResults->selectResults.get(NAME)).get());
+    });
+    assertEquals("n", name);
+
+    QueryPlan scanPlan = db.tx(tx->tx.setResult(tx.newSelect(TABLE).where(equal(NAME, "n")).explain()));
+    assertTrue(scanPlan.toString(), scanPlan.hasFullScan(TABLE));
+
+    QueryPlan updatePlan = db.tx(tx->tx.setResult(tx.newUpdate(TABLE).set(NAME, "m").where(equal(NAME, "n")).explain()));
+    assertTrue(updatePlan.toString(), updatePlan.hasFullScan(TABLE));
+
+    QueryPlanChecker checker = new QueryPlanChecker(db)
+      .largeTables(TABLE)
+      .query("byEmail", tx->tx.newSelect(TABLE).where(equal(EMAIL, "e")))
+      .check();
+    assertEquals(1, checker.getPlans().size());
+
+    try {
+      checker
+        .query("deleteByName", tx->tx.newDelete(TABLE).where(equal(NAME, "n")))
+        .check();
+      fail("expected a plan regression");
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("deleteByName fully scans queryPlanTest"));
+    }
+  }
+
+  @Test
+  public void testPostgreSQLPlan() {
+    String postgresPlan = "[{\"Plan\": {\"Node Type\": \"Seq Scan\", \"Relation Name\": \"orders\", \"Plan Rows\": 1200, "
+      +"\"Plans\": [{\"Node Type\": \"Index Scan\", \"Index Name\": \"orders_pkey\", \"Relation Name\": \"orders\"}]}}]";
+    QueryPlan queryPlan = PostgreSQLDialect.INSTANCE.parseQueryPlan(postgresPlan);
+    assertEquals("[orders]", queryPlan.getFullScanTables().toString());
+    assertEquals("[orders_pkey]", queryPlan.getIndexes().toString());
+    assertEquals(Long.valueOf(1200), queryPlan.getEstimatedRows());
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.TxLogic;
+import ai.shape.basics.db.schema.SchemaManager;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReadReplicaTest {
+
+  static Column ID = new Column()
+    .name("id")
+    .typeInteger()
+    .primaryKey();
+  static Column NAME = new Column()
+    .name("name")
+    .typeVarchar(255);
+  static Table TABLE = new Table()
+    .name("readReplicaTest")
+    .column(ID)
+    .column(NAME);
+
+  static final String PRIMARY_URL = "jdbc:h2:mem:readReplicaTestPrimary;DB_CLOSE_DELAY=-1";
+  static final String REPLICA_URL = "jdbc:h2:mem:readReplicaTestReplica;DB_CLOSE_DELAY=-1";
+
+  @Test
+  public void testReadReplicas() {
+    createTableWithName(PRIMARY_URL, "primary");
+    createTableWithName(REPLICA_URL, "replica");
+
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, PRIMARY_URL)
+      .property("replica.1.jdbcUrl", REPLICA_URL)
+      // replica 2 is down, so readTx must fall back to replica 1
+      .property("replica.2.jdbcUrl", "jdbc:h2:tcp://localhost:1/readReplicaTestDown")
+      .property("replica.2.connectionTimeout", "250")
+      .build();
+
+    assertEquals("primary", selectName(db, false));
+    assertEquals("replica", selectName(db, true));
+    assertEquals("replica", selectName(db, true));
+
+    // H2 doesn't report Connection.setReadOnly, so the routing is checked on the url
+    String url = db.readTx(tx->{
+      assertTrue(tx.isReadOnly());
+      assertTrue(tx.isReplica());
+      tx.setResult(tx.getConnection().getMetaData().getURL());
+    });
+    assertEquals("jdbc:h2:mem:readReplicaTestReplica", url);
+  }
+
+  @Test
+  public void testReadTxWithoutReplicas() {
+    createTableWithName(PRIMARY_URL, "primary");
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, PRIMARY_URL)
+      .build();
+
+    assertEquals("primary", selectName(db, true));
+    boolean replica = db.readTx(tx->tx.setResult(tx.isReplica()));
+    assertFalse(replica);
+  }
+
+  @Test
+  public void testAllReplicasDown() throws Exception {
+    createTableWithName(PRIMARY_URL, "primary");
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, PRIMARY_URL)
+      .property(Db.CONFIGURATION_NAME_REPLICA_RETRY_MILLIS, "1000")
+      .property("replica.1.jdbcUrl", "jdbc:h2:tcp://localhost:1/readReplicaTestDown1")
+      .property("replica.1.connectionTimeout", "250")
+      .property("replica.2.jdbcUrl", "jdbc:h2:tcp://localhost:1/readReplicaTestDown2")
+      .property("replica.2.connectionTimeout", "250")
+      .build();
+
+    assertEquals("primary", selectName(db, true));
+    assertTrue(db.isReplicaUnhealthy(0));
+    assertTrue(db.isReplicaUnhealthy(1));
+
+    // the unhealthy replicas are skipped without waiting for their connection timeout
+    long start = System.nanoTime();
+    boolean replica = db.readTx(tx->tx.setResult(tx.isReplica()));
+    assertFalse(replica);
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-start)<250);
+
+    // after the retry period, the replicas are tried again
+    Thread.sleep(1000);
+    assertFalse(db.isReplicaUnhealthy(0));
+    assertFalse(db.isReplicaUnhealthy(1));
+    assertEquals("primary", selectName(db, true));
+    assertTrue(db.isReplicaUnhealthy(0));
+  }
+
+  @Test
+  public void testReplicaConnectionTimeout() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, PRIMARY_URL)
+      .property(Db.CONFIGURATION_NAME_REPLICA_RETRY_MILLIS, "5000")
+      .property("replica.1.jdbcUrl", REPLICA_URL)
+      .property("replica.2.jdbcUrl", REPLICA_URL)
+      .property("replica.2.connectionTimeout", "2000")
+      .build();
+    List<DataSource> replicaDataSources = db.getReplicaDataSources();
+    assertEquals(Db.DEFAULT_REPLICA_CONNECTION_TIMEOUT_MILLIS, ((HikariDataSource)replicaDataSources.get(0)).getConnectionTimeout());
+    assertEquals(2000, ((HikariDataSource)replicaDataSources.get(1)).getConnectionTimeout());
+  }
+
+  static void createTableWithName(String jdbcUrl, String name) {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, jdbcUrl)
+      .build();
+    SchemaManager schemaManager = new SchemaManager()
+      .db(db)
+      .tables(TABLE);
+    schemaManager.dropSchema();
+    schemaManager.createSchema();
+    db.tx(tx->tx.newInsert(TABLE)
+      .set(ID, 1)
+      .set(NAME, name)
+      .execute());
+  }
+
+  static String selectName(Db db, boolean readOnly) {
+    TxLogic select = tx->tx.setResult(tx.newSelect(TABLE)
+      .execute()
+      .getFirst(selectResults->selectResults.get(NAME))
+      .get());
+    return readOnly ? db.readTx(select) : db.tx(select);
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.RowMapper;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RowMapperTest {
+
+  static Column ID = new Column()
+    .name("id")
+    .typeLong()
+    .primaryKey();
+  static Column FIRST_NAME = new Column()
+    .name("first_name")
+    .typeVarchar(255);
+  static Column AGE = new Column()
+    .name("age")
+    .typeInteger();
+  static Column ACTIVE = new Column()
+    .name("active")
+    .typeBoolean();
+  static Table TABLE = new Table()
+    .name("rowMapperTest")
+    .column(ID)
+    .column(FIRST_NAME)
+    .column(AGE)
+    .column(ACTIVE);
+
+  static final RowMapper<Person> PERSON_MAPPER = new RowMapper<>(Person.class, TABLE);
+
+  public static class Person {
+    long id;
+    String firstName;
+    Integer age;
+    boolean active;
+
+    public void setId(long id) {
+      this.id = id;
+    }
+    public Person firstName(String firstName) {
+      this.firstName = firstName;
+      return this;
+    }
+  }
+
+  @Test
+  public void testRowMapper() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:rowMapperTest")
+      .build();
+
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+
+    db.tx(tx->{
+      tx.newBatchInsert(TABLE)
+        .columns(ID, FIRST_NAME, AGE, ACTIVE)
+        .row(1L, "one", 31, true)
+        .row(2L, null, null, false)
+        .execute();
+    });
+
+    List<Person> persons = db.tx(tx->{
+      tx.setResult(tx.newSelect(TABLE)
+        .orderAsc(ID)
+        .execute()
+        .getAll(PERSON_MAPPER));
+    });
+
+    assertEquals(2, persons.size());
+    Person one = persons.get(0);
+    assertEquals(1L, one.id);
+    assertEquals("one", one.firstName);
+    assertEquals(Integer.valueOf(31), one.age);
+    assertTrue(one.active);
+    Person two = persons.get(1);
+    assertEquals(2L, two.id);
+    assertNull(two.firstName);
+    assertNull(two.age);
+    assertFalse(two.active);
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Dialect;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.dialects.H2Dialect;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SchemaManagerTest {
+
+  static Column A_ID = new Column().name("id").typeInteger().primaryKey();
+  static Table A = new Table().name("schemaA").column(A_ID);
+
+  static Column B_ID = new Column().name("id").typeInteger().primaryKey();
+  static Table B = new Table().name("schemaB").column(B_ID)
+    .column(new Column().name("aId").typeInteger().foreignKey(A_ID));
+
+  static Column C_ID = new Column().name("id").typeInteger().primaryKey();
+  static Column D_ID = new Column().name("id").typeInteger().primaryKey();
+  static Table C = new Table().name("schemaC").column(C_ID)
+    .column(new Column().name("bId").typeInteger().foreignKey(B_ID))
+    .column(new Column().name("dId").typeInteger().foreignKey(D_ID));
+  static Table D = new Table().name("schemaD").column(D_ID)
+    .column(new Column().name("cId").typeInteger().foreignKey(C_ID));
+
+  static Table E = new Table().name("schemaE")
+    .column(new Column().name("id").typeInteger().primaryKey());
+
+  static class WavesSchemaManager extends SchemaManager {
+    List<List<Table>> getWaves(List<Table> tables) {
+      return getCreateTableWaves(tables, new HashSet<>());
+    }
+  }
+
+  @Test
+  public void testCreateTableWaves() {
+    List<List<Table>> waves = new WavesSchemaManager().getWaves(asList(C, D, B, A, E));
+    assertEquals(asList(
+      asList(A, E),
+      asList(B),
+      // C and D reference each other, so C is created first and its foreign key is delayed
+      asList(C),
+      asList(D)), waves);
+  }
+
+  @Test
+  public void testEnsureCurrentSchema() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:schemaManagerTest")
+      .build();
+
+    SchemaManager schemaManager = new SchemaManager()
+      .db(db)
+      .tables(C, D, B, A, E)
+      .lockTimeoutMillis(1000);
+    schemaManager.ensureCurrentSchema();
+
+    assertTrue(schemaManager.getPhaseMillis().containsKey("metadata"));
+    assertTrue(schemaManager.getPhaseMillis().containsKey("create tables"));
+    assertTrue(schemaManager.getPhaseMillis().containsKey("total"));
+
+    List<Table> metaDataTables = db.tx(tx->tx.setResult(tx.getMetaDataTables()));
+    Table metaDataC = metaDataTables.stream()
+      .filter(table->table.getName().equalsIgnoreCase(C.getName()))
+      .findFirst()
+      .get();
+    assertEquals(3, metaDataC.getColumns().size());
+
+    // a second run finds all tables
+    schemaManager.ensureCurrentSchema();
+  }
+
+  @Test
+  public void testEnsureCurrentSchemaConcurrently() {
+    Properties properties = new Properties();
+    properties.setProperty(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:schemaManagerConcurrentTest");
+    Db db = new Db(properties) {
+      @Override
+      protected Dialect getDialect(Properties properties) {
+        return new H2Dialect() {
+          @Override
+          public boolean supportsConcurrentDdl() {
+            return true;
+          }
+        };
+      }
+    };
+
+    SchemaManager schemaManager = new SchemaManager()
+      .db(db)
+      .tables(C, D, B, A, E)
+      .parallelism(2)
+      .lockTimeoutMillis(1000);
+    schemaManager.ensureCurrentSchema();
+
+    // only the concurrent upgrade adds the columns and foreign keys in separate txs
+    assertTrue(schemaManager.getPhaseMillis().containsKey("add columns"));
+    assertTrue(schemaManager.getPhaseMillis().containsKey("foreign keys"));
+
+    List<Table> metaDataTables = db.tx(tx->tx.setResult(tx.getMetaDataTables()));
+    assertEquals(new HashSet<>(asList("schemaa", "schemab", "schemac", "schemad", "schemae")), metaDataTables.stream()
+      .map(table->table.getName().toLowerCase())
+      .filter(tableName->tableName.startsWith("schema") && !tableName.equals("schemahistory"))
+      .collect(Collectors.toSet()));
+
+    schemaManager.ensureCurrentSchema();
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.BatchInsert;
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.SelectResults;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.Tx;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SelectStreamTest {
+
+  static final int ROWS = 100;
+  static final int FETCH_SIZE = 10;
+
+  static Column ID = new Column()
+    .name("id")
+    .typeInteger()
+    .primaryKey();
+  static Table TABLE = new Table()
+    .name("selectStreamTest")
+    .column(ID);
+
+  List<PreparedStatement> jdbcStatements = new ArrayList<>();
+  List<String> logs = new ArrayList<>();
+
+  @Test
+  public void testStream() throws Exception {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:selectStreamTest")
+      .build();
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+    db.tx(tx->{
+      BatchInsert batchInsert = tx.newBatchInsert(TABLE).columns(ID);
+      for (int i=0; i<ROWS; i++) {
+        batchInsert.row(i);
+      }
+      batchInsert.execute();
+    });
+
+    try (Connection connection = db.getDataSource().getConnection()) {
+      // captures the JDBC statements and the SQL log, also when debug logging is off
+      Tx tx = new Tx(db, connection) {
+        @Override
+        public PreparedStatement createPreparedStatement(String sql) {
+          PreparedStatement jdbcStatement = super.createPreparedStatement(sql);
+          jdbcStatements.add(jdbcStatement);
+          return jdbcStatement;
+        }
+        @Override
+        public boolean isSqlLogEnabled() {
+          return true;
+        }
+        @Override
+        public void logSQL(String sql) {
+          logs.add(sql);
+        }
+      };
+
+      // more rows than the fetch size
+      List<Integer> ids;
+      try (Stream<Integer> rows = tx.newSelect(TABLE)
+             .orderAsc(ID)
+             .fetchSize(FETCH_SIZE)
+             .execute()
+             .stream(selectResults->selectResults.getInt(ID))) {
+        assertEquals(FETCH_SIZE, jdbcStatements.get(0).getFetchSize());
+        ids = rows.collect(Collectors.toList());
+      }
+      assertEquals(ROWS, ids.size());
+      for (int i=0; i<ROWS; i++) {
+        assertEquals(i, (int) ids.get(i));
+      }
+      assertTrue(jdbcStatements.get(0).isClosed());
+
+      // only the first rows are logged
+      String rowsLog = logs.stream()
+        .filter(log->log.startsWith("+"))
+        .findFirst()
+        .get();
+      String[] rowsLogLines = rowsLog.split("\n");
+      // header, logged rows and the not logged rows count
+      assertEquals(1+SelectResults.STREAM_MAX_LOGGED_ROWS+1, rowsLogLines.length);
+      assertEquals("... "+(ROWS-SelectResults.STREAM_MAX_LOGGED_ROWS)+" more rows not logged",
+        rowsLogLines[rowsLogLines.length-1]);
+
+      // closing the stream early closes the result set and the statement
+      ResultSet resultSet;
+      try (Stream<Integer> rows = tx.newSelect(TABLE)
+             .fetchSize(FETCH_SIZE)
+             .execute()
+             .stream(selectResults->selectResults.getInt(ID))) {
+        Iterator<Integer> iterator = rows.iterator();
+        for (int i=0; i<FETCH_SIZE+5; i++) {
+          iterator.next();
+        }
+        resultSet = jdbcStatements.get(1).getResultSet();
+        assertFalse(resultSet.isClosed());
+        assertFalse(jdbcStatements.get(1).isClosed());
+      }
+      assertTrue(resultSet.isClosed());
+      assertTrue(jdbcStatements.get(1).isClosed());
+
+      // getFirst closes the statement although there are more rows
+      int firstId = tx.newSelect(TABLE)
+        .orderAsc(ID)
+        .execute()
+        .getFirst(selectResults->selectResults.getInt(ID))
+        .get();
+      assertEquals(0, firstId);
+      assertTrue(jdbcStatements.get(2).isClosed());
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Select;
+import ai.shape.basics.db.SqlCache;
+import ai.shape.basics.db.StatementShape;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static ai.shape.basics.db.Condition.equal;
+import static ai.shape.basics.db.Condition.in;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SqlCacheTest {
+
+  static Column ID = new Column()
+    .name("id")
+    .typeInteger()
+    .primaryKey();
+  static Column NAME = new Column()
+    .name("name")
+    .typeVarchar(255);
+  static Table TABLE = new Table()
+    .name("sqlCacheTest")
+    .column(ID)
+    .column(NAME);
+
+  @Test
+  public void testSqlCache() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:sqlCacheTest")
+      .build();
+
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+
+    SqlCache sqlCache = db.getSqlCache();
+    long hits = sqlCache.getHits();
+    long misses = sqlCache.getMisses();
+
+    for (int i=0; i<3; i++) {
+      int id = i;
+      db.tx(tx->{
+        tx.newInsert(TABLE)
+          .set(ID, id)
+          .set(NAME, "name"+id)
+          .execute();
+      });
+    }
+    assertEquals(misses+1, sqlCache.getMisses());
+    assertEquals(hits+2, sqlCache.getHits());
+
+    String name = db.tx(tx->{
+      tx.setResult(tx.newSelect(TABLE)
+        .where(equal(ID, 2))
+        .execute()
+        .getFirst(selectResults->selectResults.get(NAME))
+        .get());
+    });
+    assertEquals("name2", name);
+
+    name = db.tx(tx->{
+      tx.setResult(tx.newSelect(TABLE)
+        .where(equal(ID, 1))
+        .execute()
+        .getFirst(selectResults->selectResults.get(NAME))
+        .get());
+    });
+    assertEquals("name1", name);
+    assertEquals(misses+2, sqlCache.getMisses());
+    assertEquals(hits+3, sqlCache.getHits());
+
+    // a different IN-list arity is a different shape
+    db.tx(tx->{
+      tx.newSelect(TABLE)
+        .where(in(ID, Arrays.asList(0, 1)))
+        .execute()
+        .logAllRows();
+      tx.newSelect(TABLE)
+        .where(in(ID, Arrays.asList(0, 1, 2)))
+        .execute()
+        .logAllRows();
+    });
+    assertEquals(misses+4, sqlCache.getMisses());
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    SqlCache sqlCache = new SqlCache(2);
+    StatementShape one = new StatementShape(Select.class).add("one");
+    StatementShape two = new StatementShape(Select.class).add("two");
+    StatementShape three = new StatementShape(Select.class).add("three");
+    sqlCache.put(one, "sql one");
+    sqlCache.put(two, "sql two");
+    // one is used, so two is the least recently used
+    assertEquals("sql one", sqlCache.get(one));
+    sqlCache.put(three, "sql three");
+    assertEquals(2, sqlCache.getSize());
+    assertEquals("sql one", sqlCache.get(one));
+    assertNull(sqlCache.get(two));
+    assertEquals("sql three", sqlCache.get(three));
+
+    // concurrent puts never exceed the max size
+    SqlCache concurrentCache = new SqlCache(10);
+    List<Thread> threads = new ArrayList<>();
+    for (int t=0; t<4; t++) {
+      int threadIndex = t;
+      threads.add(new Thread(()->{
+        for (int i=0; i<1000; i++) {
+          concurrentCache.put(new StatementShape(Select.class).add(threadIndex).add(i), "sql");
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread: threads) {
+      thread.join();
+    }
+    assertEquals(10, concurrentCache.getSize());
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.PreparedQuery;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.Tx;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static ai.shape.basics.db.Condition.equal;
+import static ai.shape.basics.db.Condition.gte;
+import static ai.shape.basics.db.PreparedQuery.parameter;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Runs the statement path with the sql log disabled, in which case
+ * no log text is built, and enabled. */
+public class SqlLogTest {
+
+  static Column ID = new Column()
+    .name("id")
+    .typeInteger()
+    .primaryKey();
+  static Column NAME = new Column()
+    .name("name")
+    .typeVarchar(255);
+  static Table TABLE = new Table()
+    .name("sqlLogTest")
+    .column(ID)
+    .column(NAME);
+
+  static PreparedQuery SELECT_NAME = new PreparedQuery(tx->tx
+    .newSelect(TABLE)
+    .where(equal(ID, parameter("id"))));
+
+  @Test
+  public void testSqlLogDisabled() throws Exception {
+    List<String> logs = executeStatements("sqlLogDisabledTest", false);
+    assertEquals(new ArrayList<>(), logs);
+  }
+
+  @Test
+  public void testSqlLogEnabled() throws Exception {
+    List<String> logs = executeStatements("sqlLogEnabledTest", true);
+    String log = String.join("\n", logs);
+    // parameter values are inlined or listed after the sql
+    assertTrue(log, log.contains("'name2'"));
+    assertTrue(log, log.contains("parameters: 3"));
+    // the rows are logged
+    assertTrue(log, log.contains("|'renamed1'|"));
+  }
+
+  /** Inserts, updates and selects in all the ways rows are read and
+   * returns what was logged */
+  List<String> executeStatements(String dbName, boolean isSqlLogEnabled) throws Exception {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:"+dbName)
+      .build();
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+
+    List<String> logs = new ArrayList<>();
+    try (Connection connection = db.getDataSource().getConnection()) {
+      Tx tx = new Tx(db, connection) {
+        @Override
+        public boolean isSqlLogEnabled() {
+          return isSqlLogEnabled;
+        }
+        @Override
+        public void logSQL(String sql) {
+          if (sql!=null) {
+            logs.add(sql);
+          }
+        }
+      };
+
+      for (int i=1; i<=3; i++) {
+        tx.newInsert(TABLE)
+          .set(ID, i)
+          .set(NAME, "name"+i)
+          .execute();
+      }
+      assertEquals(1, tx.newUpdate(TABLE)
+        .set(NAME, "renamed1")
+        .where(equal(ID, 1))
+        .execute());
+
+      assertEquals(3, tx.newSelect(TABLE)
+        .where(gte(ID, 1))
+        .execute()
+        .getAll(selectResults->selectResults.get(NAME))
+        .size());
+      assertEquals("renamed1", tx.newSelect(TABLE)
+        .where(equal(ID, 1))
+        .execute()
+        .getFirst(selectResults->selectResults.get(NAME))
+        .get());
+      try (Stream<Integer> ids = tx.newSelect(TABLE)
+             .where(gte(ID, 1))
+             .execute()
+             .stream(selectResults->selectResults.getInt(ID))) {
+        assertEquals(3, ids.collect(Collectors.toList()).size());
+      }
+      assertEquals("name3", SELECT_NAME.with(tx)
+        .set("id", 3)
+        .select()
+        .getFirst(selectResults->selectResults.get(NAME))
+        .get());
+    }
+    return logs;
+  }
+}
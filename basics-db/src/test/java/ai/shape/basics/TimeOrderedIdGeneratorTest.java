@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.id.TimeOrderedIdGenerator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TimeOrderedIdGeneratorTest {
+
+  @Test
+  public void testTimeOrderedIds() {
+    TimeOrderedIdGenerator idGenerator = new TimeOrderedIdGenerator("node1");
+    String previousId = idGenerator.generateId(null);
+    assertEquals(TimeOrderedIdGenerator.ID_LENGTH, previousId.length());
+    for (int i=0; i<1000; i++) {
+      String id = idGenerator.generateId(null);
+      assertTrue(previousId+" < "+id, previousId.compareTo(id)<0);
+      previousId = id;
+    }
+
+    String prefixedId = idGenerator.generateId("user-");
+    assertTrue(prefixedId.startsWith("user-"));
+    assertEquals(5+TimeOrderedIdGenerator.ID_LENGTH, prefixedId.length());
+    assertTrue(previousId.compareTo(prefixedId.substring(5))<0);
+  }
+
+  @Test
+  public void testUniqueAcrossThreadsAndGenerators() throws Exception {
+    // same node name, so only the random thread bits and counters differ
+    TimeOrderedIdGenerator generatorOne = new TimeOrderedIdGenerator("node1");
+    TimeOrderedIdGenerator generatorTwo = new TimeOrderedIdGenerator("node1");
+    Set<String> ids = ConcurrentHashMap.newKeySet();
+    List<Thread> threads = new ArrayList<>();
+    for (int i=0; i<50; i++) {
+      Thread thread = new Thread(()->{
+        for (int j=0; j<1000; j++) {
+          assertTrue(ids.add(generatorOne.generateId(null)));
+          assertTrue(ids.add(generatorTwo.generateId(null)));
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread: threads) {
+      thread.join();
+    }
+    assertEquals(100000, ids.size());
+  }
+
+  @Test
+  public void testNodeId() {
+    assertEquals(TimeOrderedIdGenerator.ID_LENGTH, new TimeOrderedIdGenerator(65535).generateId(null).length());
+    try {
+      new TimeOrderedIdGenerator(65536);
+      fail("expected exception");
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage().contains("nodeId"));
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.Tx;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TxAsyncTest {
+
+  static Logger log = LoggerFactory.getLogger(TxAsyncTest.class);
+
+  static final int CALLERS = 1000;
+
+  static Column ID = new Column()
+    .name("id")
+    .typeInteger()
+    .primaryKey();
+  static Table TABLE = new Table()
+    .name("txAsyncTest")
+    .column(ID);
+
+  @Test
+  public void testTxAsync() throws Exception {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:txAsyncTest")
+      .build();
+
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+
+    Tx asyncTx = db.<Tx>txAsync(tx->tx.setResult(Tx.getCurrentTx())).get();
+    assertNotNull(asyncTx);
+
+    CompletableFuture<Object> failed = db.txAsync(tx->{
+      throw new RuntimeException("failure");
+    });
+    assertTrue(failed.handle((result, e)->e!=null).get());
+
+    // load test: async versus blocking with 1k concurrent callers
+    long start = System.nanoTime();
+    AtomicInteger nextId = new AtomicInteger();
+    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+    for (int i=0; i<CALLERS; i++) {
+      futures.add(db.txAsync(tx->{
+        assertSame(tx, Tx.getCurrentTx());
+        tx.setResult(tx.newInsert(TABLE)
+          .set(ID, nextId.getAndIncrement())
+          .execute());
+      }));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+    long asyncMillis = (System.nanoTime()-start)/1000000;
+
+    start = System.nanoTime();
+    List<Thread> threads = new ArrayList<>();
+    for (int i=0; i<CALLERS; i++) {
+      Thread thread = new Thread(()->db.tx(tx->tx.newInsert(TABLE)
+        .set(ID, nextId.getAndIncrement())
+        .execute()));
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread: threads) {
+      thread.join();
+    }
+    long blockingMillis = (System.nanoTime()-start)/1000000;
+    log.debug(CALLERS+" concurrent transactions: async "+asyncMillis+" millis, blocking "+blockingMillis+" millis");
+
+    int count = db.tx(tx->tx.setResult(tx.newSelect(ID)
+      .from(TABLE)
+      .execute()
+      .getAll(results->results.getInt(ID))
+      .size()));
+    assertEquals(2*CALLERS, count);
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.InMemoryDbMetrics;
+import ai.shape.basics.db.TxOptions;
+import ai.shape.basics.db.TxRetryMetrics;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class TxRetryTest {
+
+  @Test
+  public void testRetry() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:txRetryTest")
+      .build();
+
+    AtomicInteger attempts = new AtomicInteger();
+    int isolation = db.tx(new TxOptions()
+        .isolation(Connection.TRANSACTION_SERIALIZABLE)
+        .retry(3)
+        .backoff(1, 5),
+      tx->{
+        if (attempts.incrementAndGet()<3) {
+          throw new SQLException("serialization failure", "40001");
+        }
+        tx.setResult(tx.getConnection().getTransactionIsolation());
+      });
+    assertEquals(3, attempts.get());
+    assertEquals(Connection.TRANSACTION_SERIALIZABLE, isolation);
+    TxRetryMetrics txRetries = ((InMemoryDbMetrics) db.getMetrics()).getTxRetries();
+    assertEquals(2, txRetries.getRetries());
+    assertEquals(1, txRetries.getRetriedTransactions());
+    assertEquals(0, txRetries.getFailedRetriedTransactions());
+
+    // exceptions that are not retryable are thrown immediately
+    attempts.set(0);
+    try {
+      db.tx(new TxOptions().retry(3), tx->{
+        attempts.incrementAndGet();
+        throw new SQLException("syntax error", "42000");
+      });
+      fail("expected exception");
+    } catch (RuntimeException e) {
+      assertEquals(1, attempts.get());
+    }
+  }
+}
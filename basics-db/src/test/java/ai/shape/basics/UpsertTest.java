@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics;
+
+import ai.shape.basics.db.Column;
+import ai.shape.basics.db.Db;
+import ai.shape.basics.db.Dialect;
+import ai.shape.basics.db.Table;
+import ai.shape.basics.db.Tx;
+import ai.shape.basics.db.schema.SchemaManager;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Properties;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class UpsertTest {
+
+  static Column ID = new Column()
+    .name("id")
+    .typeInteger()
+    .primaryKey();
+  static Column NAME = new Column()
+    .name("name")
+    .typeVarchar(255);
+  static Table TABLE = new Table()
+    .name("upsertTest")
+    .column(ID)
+    .column(NAME);
+
+  @Test
+  public void testUpsert() {
+    Db db = Db.builder()
+      .property(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:upsertTest")
+      .build();
+
+    new SchemaManager()
+      .db(db)
+      .tables(TABLE)
+      .createSchema();
+
+    db.tx(tx->tx.newUpsert(TABLE)
+      .set(ID, 1)
+      .set(NAME, "one")
+      .execute());
+    db.tx(tx->tx.newUpsert(TABLE)
+      .set(ID, 1)
+      .set(NAME, "uno")
+      .execute());
+    assertEquals(asList("uno"), selectNames(db));
+
+    db.tx(tx->tx.newBatchUpsert(TABLE)
+      .columns(ID, NAME)
+      .rowsPerStatement(2)
+      .row(1, "one")
+      .row(2, "two")
+      .row(3, "three")
+      .execute());
+    assertEquals(asList("one", "two", "three"), selectNames(db));
+
+    // null values are upserted as NULL
+    db.tx(tx->tx.newUpsert(TABLE)
+      .set(ID, 1)
+      .set(NAME, null)
+      .execute());
+    db.tx(tx->tx.newBatchUpsert(TABLE)
+      .columns(ID, NAME)
+      .row(2, null)
+      .execute());
+    assertEquals(asList(null, null, "three"), selectNames(db));
+  }
+
+  @Test
+  public void testUpsertNotSupported() {
+    Properties properties = new Properties();
+    properties.setProperty(Db.CONFIGURATION_NAME_JDBC_URL, "jdbc:h2:mem:upsertNotSupportedTest");
+    Db db = new Db(properties) {
+      @Override
+      protected Dialect getDialect(Properties properties) {
+        return new Dialect();
+      }
+    };
+    db.getDialect().initializeTable(TABLE);
+    Tx tx = new Tx(db, null);
+    try {
+      tx.newUpsert(TABLE)
+        .set(ID, 1)
+        .set(NAME, "one")
+        .execute();
+      fail("expected exception");
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("Upsert is not supported by Dialect"));
+    }
+  }
+
+  static List<String> selectNames(Db db) {
+    return db.tx(tx->tx.setResult(tx.newSelect(NAME)
+      .from(TABLE)
+      .orderAsc(ID)
+      .execute()
+      .getAll(selectResults->selectResults.get(NAME))));
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.gson;
+
+import ai.shape.basics.db.types.JsonType;
+import ai.shape.com.google.gson.Gson;
+import ai.shape.com.google.gson.JsonElement;
+
+/** Serializes JSON column parameters of basics-db with Gson,
+ * directly into the parameter text without an intermediate toJson String.
+ *
+ * JsonType.setJsonWriter(new GsonJsonWriter(gson));
+ *
+ * After that, JsonElements and objects can be set as values of JSON columns.
+ */
+public class GsonJsonWriter implements JsonType.JsonWriter {
+
+  Gson gson;
+
+  public GsonJsonWriter(Gson gson) {
+    this.gson = gson;
+  }
+
+  @Override
+  public void write(Object value, Appendable out) {
+    if (value instanceof JsonElement) {
+      gson.toJson((JsonElement) value, out);
+    } else {
+      gson.toJson(value, out);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.shape.basics.gson;
+
+import ai.shape.basics.db.types.JsonType;
+import ai.shape.com.google.gson.Gson;
+import ai.shape.com.google.gson.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class GsonJsonWriterTest {
+
+  public static class Address {
+    String city = "Ghent";
+  }
+
+  @Test
+  public void testJsonTypeText() {
+    JsonType.setJsonWriter(new GsonJsonWriter(new Gson()));
+    try {
+      assertEquals("{\"city\":\"Ghent\"}", JsonType.toJsonText(new Address()));
+      JsonObject jsonObject = new JsonObject();
+      jsonObject.addProperty("city", "Brussels");
+      assertEquals("{\"city\":\"Brussels\"}", JsonType.toJsonText(jsonObject));
+      assertEquals("{\"city\":\"Ghent\"}", JsonType.INSTANCE.getBulkLoadText(new Address()));
+    } finally {
+      JsonType.setJsonWriter(null);
+    }
+  }
+}